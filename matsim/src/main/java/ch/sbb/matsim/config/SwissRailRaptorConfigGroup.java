@@ -45,6 +45,9 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_WALK_MARGIN = "transferWalkMargin";
     private static final String PARAM_TRANSFER_WALK_MARGIN_DESC = "time deducted from transfer walk leg during transfers between pt legs in order to avoid missing a vehicle by a few seconds due to delays.";
 
+    private static final String PARAM_TRANSFER_CACHE_DIRECTORY = "transferCacheDirectory";
+    private static final String PARAM_TRANSFER_CACHE_DIRECTORY_DESC = "Directory in which the transfers between transit stops are cached in a binary file, so that later runs with the same schedule and transfer settings do not need to calculate them again. Caching is disabled if not set.";
+
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
     private IntermodalAccessEgressModeSelection intermodalAccessEgressModeSelection = IntermodalAccessEgressModeSelection.CalcLeastCostModePerStop;
@@ -56,6 +59,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
     private double transferWalkMargin = 5;
+    private String transferCacheDirectory = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -117,6 +121,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferWalkMargin = transferWalkMargin;
     }
 
+    @StringGetter(PARAM_TRANSFER_CACHE_DIRECTORY)
+    public String getTransferCacheDirectory() {
+        return this.transferCacheDirectory;
+    }
+
+    @StringSetter(PARAM_TRANSFER_CACHE_DIRECTORY)
+    public void setTransferCacheDirectory(String transferCacheDirectory) {
+        this.transferCacheDirectory = transferCacheDirectory == null || transferCacheDirectory.isEmpty() ? null : transferCacheDirectory;
+    }
+
     @StringGetter(PARAM_USE_MODE_MAPPING)
     public boolean isUseModeMappingForPassengers() {
         return this.useModeMapping;
@@ -596,6 +610,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
         comments.put(PARAM_USE_CAPACITY_CONSTRAINTS, PARAM_USE_CAPACITY_CONSTRAINTS_DESC);
         comments.put(PARAM_TRANSFER_WALK_MARGIN, PARAM_TRANSFER_WALK_MARGIN_DESC);
+        comments.put(PARAM_TRANSFER_CACHE_DIRECTORY, PARAM_TRANSFER_CACHE_DIRECTORY_DESC);
         return comments;
     }
 
@@ -47,6 +47,8 @@ public class RaptorStaticConfig {
 
     private RaptorOptimization optimization = RaptorOptimization.OneToOneRouting;
 
+    private String transferCacheDirectory = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -118,4 +120,16 @@ public class RaptorStaticConfig {
     public void setOptimization(RaptorOptimization optimization) {
         this.optimization = optimization;
     }
+
+    public String getTransferCacheDirectory() {
+        return this.transferCacheDirectory;
+    }
+
+    /**
+     * Sets the directory in which the transfers between route stops are cached in a binary file,
+     * so that later runs with the same schedule do not need to calculate them again. <code>null</code> disables the cache.
+     */
+    public void setTransferCacheDirectory(String transferCacheDirectory) {
+        this.transferCacheDirectory = transferCacheDirectory;
+    }
 }
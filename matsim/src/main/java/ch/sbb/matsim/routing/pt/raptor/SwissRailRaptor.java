@@ -24,6 +24,9 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 /**
  * Provides public transport route search capabilities using an implementation of the
@@ -40,6 +43,8 @@ public class SwissRailRaptor implements TransitRouter {
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
 
     private boolean treeWarningShown = false;
 
@@ -54,6 +59,8 @@ public class SwissRailRaptor implements TransitRouter {
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
     }
 
     @Override
@@ -218,11 +225,68 @@ public class SwissRailRaptor implements TransitRouter {
             log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
             this.treeWarningShown = true;
         }
+        return this.calcLeastCostTree(createInitialStops(fromStops), departureTime, parameters, person);
+    }
+
+    /**
+     * Calculates the trees for many origins and departure times, using several threads. All threads share the
+     * {@link SwissRailRaptorData}, but each of them uses its own {@link SwissRailRaptorCore} with its own work arrays,
+     * which are re-used for all the trees calculated by the thread.
+     *
+     * @param fromStopsPerOrigin the stops at which the trees of each origin start, e.g. the stops near a zone
+     * @param departureTimes the departure times for which a tree is calculated for each origin
+     * @param consumer is called with each origin and its trees, in the order of <code>departureTimes</code>.
+     *                 It is called from several threads concurrently and must be thread-safe.
+     */
+    public <T> void calcTrees(Map<T, ? extends Collection<TransitStopFacility>> fromStopsPerOrigin, double[] departureTimes, RaptorParameters parameters, Person person,
+                              int numberOfThreads, BiConsumer<T, List<Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>>> consumer) {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+        ConcurrentLinkedQueue<Map.Entry<T, ? extends Collection<TransitStopFacility>>> origins = new ConcurrentLinkedQueue<>(fromStopsPerOrigin.entrySet());
+        AtomicReference<Throwable> exception = new AtomicReference<>();
+
+        Thread[] threads = new Thread[numberOfThreads];
+        for (int i = 0; i < numberOfThreads; i++) {
+            SwissRailRaptorCore core = new SwissRailRaptorCore(this.data, this.inVehicleCostCalculator, this.transferCostCalculator);
+            threads[i] = new Thread(() -> {
+                try {
+                    Map.Entry<T, ? extends Collection<TransitStopFacility>> origin;
+                    while (exception.get() == null && (origin = origins.poll()) != null) {
+                        List<InitialStop> accessStops = createInitialStops(origin.getValue());
+                        List<Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo>> trees = new ArrayList<>(departureTimes.length);
+                        for (double departureTime : departureTimes) {
+                            trees.add(core.calcLeastCostTree(departureTime, accessStops, parameters, person));
+                        }
+                        consumer.accept(origin.getKey(), trees);
+                    }
+                } catch (Throwable t) {
+                    exception.compareAndSet(null, t);
+                }
+            }, "SwissRailRaptor-Trees-" + i);
+            threads[i].start();
+        }
+
+        // wait until all threads have finished
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (exception.get() != null) {
+            throw new RuntimeException("Exception while calculating trees.", exception.get());
+        }
+    }
+
+    private static List<InitialStop> createInitialStops(Collection<TransitStopFacility> fromStops) {
         List<InitialStop> accessStops = new ArrayList<>();
         for (TransitStopFacility stop : fromStops) {
             accessStops.add(new InitialStop(stop, 0, 0, 0, null));
         }
-        return this.calcLeastCostTree(accessStops, departureTime, parameters, person);
+        return accessStops;
     }
 
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(Facility fromFacility, double departureTime, Person person) {
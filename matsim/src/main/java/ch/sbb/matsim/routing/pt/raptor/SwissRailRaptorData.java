@@ -31,9 +31,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -82,6 +85,25 @@ public class SwissRailRaptorData {
 
     public static SwissRailRaptorData create(TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, Network network, OccupancyData occupancyData) {
         log.info("Preparing data for SwissRailRaptor...");
+        return create(schedule, transitVehicles, staticConfig, network, occupancyData, null);
+    }
+
+    /**
+     * Creates the data for a changed schedule, based on the data of the previous schedule. The routes and route stops
+     * are always created anew, but the transfers are only re-calculated around stops served by transit routes which
+     * were added, removed or changed. The transfers of all other stops are taken over from the previous data.
+     * <p>
+     * A transit route counts as unchanged if it is the same object, served by the same line, with the same stops,
+     * offsets and departure times. Changes of the minimal transfer times in the schedule are only taken into account
+     * around the affected stops.
+     */
+    public static SwissRailRaptorData update(SwissRailRaptorData previous, TransitSchedule schedule, @Nullable Vehicles transitVehicles, Network network) {
+        log.info("Updating data for SwissRailRaptor...");
+        return create(schedule, transitVehicles, previous.config, network, previous.occupancyData, previous);
+    }
+
+    private static SwissRailRaptorData create(TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, Network network,
+                                              OccupancyData occupancyData, @Nullable SwissRailRaptorData previous) {
         long startMillis = System.currentTimeMillis();
 
         Map<Id<Vehicle>, Vehicle> vehicles = transitVehicles == null ? Collections.emptyMap() : transitVehicles.getVehicles();
@@ -183,7 +205,20 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
+        Map<Integer, RTransfer[]> allTransfers;
+        if (previous == null) {
+            String cacheDirectory = staticConfig.getTransferCacheDirectory();
+            SwissRailRaptorTransferCache cache = cacheDirectory == null ? null : new SwissRailRaptorTransferCache(cacheDirectory, schedule, routeStops, departures, staticConfig);
+            allTransfers = cache == null ? null : cache.read(routeStops);
+            if (allTransfers == null) {
+                allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig, null);
+                if (cache != null) {
+                    cache.write(routeStops, allTransfers);
+                }
+            }
+        } else {
+            allTransfers = updateRouteStopTransfers(previous, schedule, stopsQT, routeStopsPerStopFacility, routes, departures, routeStops, staticConfig);
+        }
         long countTransfers = 0;
         for (RTransfer[] transfers : allTransfers.values()) {
             countTransfers += transfers.length;
@@ -217,8 +252,9 @@ public class SwissRailRaptorData {
         return data;
     }
 
-    // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
+    // calculate possible transfers between TransitRouteStops, only from the given stops if fromStopsFilter is not null
+    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility,
+                                                                         RRouteStop[] routeStops, RaptorStaticConfig config, @Nullable Set<TransitStopFacility> fromStopsFilter) {
         Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
         double beelineWalkSpeed = config.getBeelineWalkSpeed();
@@ -229,6 +265,9 @@ public class SwissRailRaptorData {
 
         // first, add transfers based on distance
         for (TransitStopFacility fromStop : routeStopsPerStopFacility.keySet()) {
+            if (fromStopsFilter != null && !fromStopsFilter.contains(fromStop)) {
+                continue;
+            }
             Coord fromCoord = fromStop.getCoord();
             Collection<TransitStopFacility> nearbyStops = stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance);
             stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).addAll(nearbyStops);
@@ -240,6 +279,9 @@ public class SwissRailRaptorData {
             iter.next();
             Id<TransitStopFacility> fromStopId = iter.getFromStopId();
             TransitStopFacility fromStop = schedule.getFacilities().get(fromStopId);
+            if (fromStopsFilter != null && !fromStopsFilter.contains(fromStop)) {
+                continue;
+            }
             Id<TransitStopFacility> toStopId = iter.getToStopId();
             TransitStopFacility toStop = schedule.getFacilities().get(toStopId);
             List<TransitStopFacility> destinationStops = stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5));
@@ -294,6 +336,116 @@ public class SwissRailRaptorData {
         return transfers;
     }
 
+    // re-calculate the transfers around stops with changed routes, re-use all other transfers from the previous data
+    private static Map<Integer, RTransfer[]> updateRouteStopTransfers(SwissRailRaptorData previous, TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT,
+                                                                      Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRoute[] routes, int[] departures,
+                                                                      RRouteStop[] routeStops, RaptorStaticConfig config) {
+        Map<TransitRoute, Integer> previousRouteIndices = new IdentityHashMap<>();
+        for (int i = 0; i < previous.routes.length; i++) {
+            RRoute previousRoute = previous.routes[i];
+            if (previousRoute.countRouteStops > 0) {
+                previousRouteIndices.put(previous.routeStops[previousRoute.indexFirstRouteStop].route, i);
+            }
+        }
+
+        // map the route stops of unchanged routes, and collect the stops served by changed routes
+        int[] previousToNewRouteStop = new int[previous.routeStops.length];
+        int[] newToPreviousRouteStop = new int[routeStops.length];
+        Arrays.fill(previousToNewRouteStop, -1);
+        Arrays.fill(newToPreviousRouteStop, -1);
+        boolean[] isPreviousRouteUnchanged = new boolean[previous.routes.length];
+        Set<TransitStopFacility> affectedStops = new HashSet<>();
+        for (RRoute route : routes) {
+            if (route.countRouteStops == 0) {
+                continue;
+            }
+            Integer previousRouteIndex = previousRouteIndices.get(routeStops[route.indexFirstRouteStop].route);
+            if (previousRouteIndex != null && isSameRoute(previous, previous.routes[previousRouteIndex], route, departures, routeStops)) {
+                RRoute previousRoute = previous.routes[previousRouteIndex];
+                isPreviousRouteUnchanged[previousRouteIndex] = true;
+                for (int i = 0; i < route.countRouteStops; i++) {
+                    previousToNewRouteStop[previousRoute.indexFirstRouteStop + i] = route.indexFirstRouteStop + i;
+                    newToPreviousRouteStop[route.indexFirstRouteStop + i] = previousRoute.indexFirstRouteStop + i;
+                }
+            } else {
+                for (int i = 0; i < route.countRouteStops; i++) {
+                    affectedStops.add(routeStops[route.indexFirstRouteStop + i].routeStop.getStopFacility());
+                }
+            }
+        }
+        for (int i = 0; i < previous.routes.length; i++) {
+            if (!isPreviousRouteUnchanged[i]) {
+                RRoute previousRoute = previous.routes[i];
+                for (int j = 0; j < previousRoute.countRouteStops; j++) {
+                    affectedStops.add(previous.routeStops[previousRoute.indexFirstRouteStop + j].routeStop.getStopFacility());
+                }
+            }
+        }
+
+        // the transfers from a stop change if the stop itself or one of the stops it can transfer to is affected
+        Set<TransitStopFacility> recalculatedStops = new HashSet<>(affectedStops);
+        double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
+        for (TransitStopFacility stop : affectedStops) {
+            recalculatedStops.addAll(stopsQT.getDisk(stop.getCoord().getX(), stop.getCoord().getY(), maxBeelineWalkConnectionDistance));
+        }
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            TransitStopFacility toStop = schedule.getFacilities().get(iter.getToStopId());
+            if (affectedStops.contains(toStop)) {
+                recalculatedStops.add(schedule.getFacilities().get(iter.getFromStopId()));
+            }
+        }
+
+        Map<Integer, RTransfer[]> transfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, config, recalculatedStops);
+
+        int countReusedStops = 0;
+        for (Map.Entry<TransitStopFacility, int[]> e : routeStopsPerStopFacility.entrySet()) {
+            if (recalculatedStops.contains(e.getKey())) {
+                continue;
+            }
+            countReusedStops++;
+            // all routes serving this stop are unchanged, so all its route stops existed before
+            for (int routeStopIndex : e.getValue()) {
+                RRouteStop previousRouteStop = previous.routeStops[newToPreviousRouteStop[routeStopIndex]];
+                RTransfer[] stopTransfers = new RTransfer[previousRouteStop.countTransfers];
+                int count = 0;
+                for (int i = 0; i < previousRouteStop.countTransfers; i++) {
+                    RTransfer transfer = previous.transfers[previousRouteStop.indexFirstTransfer + i];
+                    int toRouteStopIndex = previousToNewRouteStop[transfer.toRouteStop];
+                    if (toRouteStopIndex >= 0) {
+                        stopTransfers[count++] = new RTransfer(routeStopIndex, toRouteStopIndex, transfer.transferTime, transfer.transferDistance);
+                    }
+                }
+                if (count > 0) {
+                    transfers.put(routeStopIndex, count == stopTransfers.length ? stopTransfers : Arrays.copyOf(stopTransfers, count));
+                }
+            }
+        }
+        log.info("SwissRailRaptor data update: re-calculated transfers at " + recalculatedStops.size() + " stops, re-used transfers at " + countReusedStops + " stops.");
+        return transfers;
+    }
+
+    private static boolean isSameRoute(SwissRailRaptorData previous, RRoute previousRoute, RRoute route, int[] departures, RRouteStop[] routeStops) {
+        if (previousRoute.countRouteStops != route.countRouteStops || previousRoute.countDepartures != route.countDepartures) {
+            return false;
+        }
+        for (int i = 0; i < route.countRouteStops; i++) {
+            RRouteStop previousRouteStop = previous.routeStops[previousRoute.indexFirstRouteStop + i];
+            RRouteStop routeStop = routeStops[route.indexFirstRouteStop + i];
+            if (previousRouteStop.routeStop != routeStop.routeStop
+                    || previousRouteStop.line != routeStop.line
+                    || !Objects.equals(previousRouteStop.mode, routeStop.mode)
+                    || previousRouteStop.arrivalOffset != routeStop.arrivalOffset
+                    || previousRouteStop.departureOffset != routeStop.departureOffset
+                    || Double.compare(previousRouteStop.distanceAlongRoute, routeStop.distanceAlongRoute) != 0) {
+                return false;
+            }
+        }
+        return Arrays.equals(previous.departures, previousRoute.indexFirstDeparture, previousRoute.indexFirstDeparture + previousRoute.countDepartures,
+                departures, route.indexFirstDeparture, route.indexFirstDeparture + route.countDepartures);
+    }
+
     private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
         if (fromRouteStop == toRouteStop) {
             return false;
@@ -23,6 +23,8 @@ import javax.inject.Singleton;
 public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
 
     private SwissRailRaptorData data = null;
+    /** the data before the last schedule change, which is updated instead of creating the data from scratch */
+    private SwissRailRaptorData previousData = null;
     private final TransitSchedule schedule;
     private final Vehicles transitVehicles;
     private final RaptorStaticConfig raptorConfig;
@@ -54,7 +56,7 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
         this.transferCostCalculator = transferCostCalculator;
 
         if (events != null) {
-            events.addHandler((TransitScheduleChangedEventHandler) event -> this.data = null);
+            events.addHandler((TransitScheduleChangedEventHandler) event -> this.scheduleChanged());
         }
     }
 
@@ -71,13 +73,25 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
         return this.data;
     }
 
+    synchronized private void scheduleChanged() {
+        if (this.data != null) {
+            this.previousData = this.data;
+        }
+        this.data = null;
+    }
+
     synchronized private SwissRailRaptorData prepareData() {
         if (this.data != null) {
             // due to multithreading / race conditions, this could still happen.
             // prevent doing the work twice.
             return this.data;
         }
-        this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        if (this.previousData != null) {
+            this.data = SwissRailRaptorData.update(this.previousData, this.schedule, this.transitVehicles, this.network);
+            this.previousData = null;
+        } else {
+            this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        }
         return this.data;
     }
 
@@ -0,0 +1,148 @@
+package ch.sbb.matsim.routing.pt.raptor;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.io.CacheFileUtils;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.matsim.core.utils.io.CacheFileUtils.mix;
+
+/**
+ * Persists the transfers between route stops calculated by {@link SwissRailRaptorData} to a binary file, as the
+ * search for nearby stops is by far the most expensive part of preparing the data on large schedules.
+ * <p>
+ * The file name is derived from a checksum of everything the transfers depend on: the route stops in the order in
+ * which {@link SwissRailRaptorData} enumerates them (incl. stop locations and offsets), the departures, the minimal
+ * transfer times of the schedule and the transfer-related values of the {@link RaptorStaticConfig}. The file stores,
+ * for each route stop, the target route stop, time and distance of each of its transfers.
+ *
+ * @author mrieser / SBB
+ */
+final class SwissRailRaptorTransferCache {
+
+    private static final Logger log = Logger.getLogger(SwissRailRaptorTransferCache.class);
+
+    private static final int MAGIC = 0x53525254; // "SRRT"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final long checksum;
+
+    SwissRailRaptorTransferCache(String directory, TransitSchedule schedule, RRouteStop[] routeStops, int[] departures, RaptorStaticConfig config) {
+        this.checksum = computeChecksum(schedule, routeStops, departures, config);
+        this.file = new File(directory, "raptorTransfers_" + Long.toHexString(this.checksum) + ".bin");
+    }
+
+    File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return the transfers per route stop index, or <code>null</code> if there is no matching cache file.
+     */
+    Map<Integer, RTransfer[]> read(RRouteStop[] routeStops) {
+        if (!this.file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != this.checksum || in.readInt() != routeStops.length) {
+                log.warn("SwissRailRaptor transfers file " + this.file + " does not match the schedule, ignoring it.");
+                return null;
+            }
+            Map<Integer, RTransfer[]> transfers = new HashMap<>();
+            for (int fromRouteStop = 0; fromRouteStop < routeStops.length; fromRouteStop++) {
+                int count = in.readInt();
+                if (count > 0) {
+                    RTransfer[] stopTransfers = new RTransfer[count];
+                    for (int i = 0; i < count; i++) {
+                        int toRouteStop = in.readInt();
+                        int transferTime = in.readInt();
+                        int transferDistance = in.readInt();
+                        stopTransfers[i] = new RTransfer(fromRouteStop, toRouteStop, transferTime, transferDistance);
+                    }
+                    transfers.put(fromRouteStop, stopTransfers);
+                }
+            }
+            log.info("SwissRailRaptor transfers read from " + this.file);
+            return transfers;
+        } catch (IOException e) {
+            log.warn("Could not read SwissRailRaptor transfers file " + this.file + ", transfers will be re-calculated.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the transfers to the cache file, see {@link CacheFileUtils#writeAtomically}.
+     */
+    void write(RRouteStop[] routeStops, Map<Integer, RTransfer[]> transfers) {
+        try {
+            CacheFileUtils.writeAtomically(this.file, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(this.checksum);
+                out.writeInt(routeStops.length);
+                for (int fromRouteStop = 0; fromRouteStop < routeStops.length; fromRouteStop++) {
+                    RTransfer[] stopTransfers = transfers.get(fromRouteStop);
+                    if (stopTransfers == null) {
+                        out.writeInt(0);
+                    } else {
+                        out.writeInt(stopTransfers.length);
+                        for (RTransfer transfer : stopTransfers) {
+                            out.writeInt(transfer.toRouteStop);
+                            out.writeInt(transfer.transferTime);
+                            out.writeInt(transfer.transferDistance);
+                        }
+                    }
+                }
+            });
+            log.info("SwissRailRaptor transfers written to " + this.file);
+        } catch (IOException e) {
+            log.warn("Could not write SwissRailRaptor transfers file " + this.file, e);
+        }
+    }
+
+    static long computeChecksum(TransitSchedule schedule, RRouteStop[] routeStops, int[] departures, RaptorStaticConfig config) {
+        long hash = CacheFileUtils.HASH_SEED;
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkConnectionDistance()));
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkSpeed()));
+        hash = mix(hash, Double.doubleToLongBits(config.getBeelineWalkDistanceFactor()));
+        hash = mix(hash, Double.doubleToLongBits(config.getMinimalTransferTime()));
+        hash = mix(hash, config.getOptimization().ordinal());
+
+        hash = mix(hash, routeStops.length);
+        for (RRouteStop routeStop : routeStops) {
+            hash = mix(hash, routeStop.line.getId().toString().hashCode());
+            hash = mix(hash, routeStop.route.getId().toString().hashCode());
+            hash = mix(hash, routeStop.routeStop.getStopFacility().getId().toString().hashCode());
+            Coord coord = routeStop.routeStop.getStopFacility().getCoord();
+            hash = mix(hash, Double.doubleToLongBits(coord.getX()));
+            hash = mix(hash, Double.doubleToLongBits(coord.getY()));
+            hash = mix(hash, routeStop.arrivalOffset);
+            hash = mix(hash, routeStop.departureOffset);
+        }
+        hash = mix(hash, departures.length);
+        for (int departure : departures) {
+            hash = mix(hash, departure);
+        }
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            hash = mix(hash, iter.getFromStopId().toString().hashCode());
+            hash = mix(hash, iter.getToStopId().toString().hashCode());
+            hash = mix(hash, Double.doubleToLongBits(iter.getSeconds()));
+        }
+        return hash;
+    }
+
+}
@@ -37,6 +37,7 @@ public final class PopulationWriter implements MatsimWriter {
 	private final Population population;
 	private final Network network;
 	private final Map<Class<?>,AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int numberOfThreads = 1;
 
 	public PopulationWriter(
 			final CoordinateTransformation transformation,
@@ -69,6 +70,15 @@ public final class PopulationWriter implements MatsimWriter {
 		this.attributeConverters.putAll( converters );
 	}
 
+	/**
+	 * Sets the number of threads used to write gzip-compressed files in the most current format.
+	 *
+	 * @see org.matsim.core.population.io.PopulationWriter#setNumberOfThreads(int)
+	 */
+	public void setNumberOfThreads( final int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Writes the population in the most current format (currently population_v6.dtd).
 	 */
@@ -108,6 +118,7 @@ public final class PopulationWriter implements MatsimWriter {
 		final org.matsim.core.population.io.PopulationWriter writer =
 				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
 		writer.putAttributeConverters( attributeConverters );
+		writer.setNumberOfThreads( numberOfThreads );
 		writer.writeV6(filename);
 	}
 
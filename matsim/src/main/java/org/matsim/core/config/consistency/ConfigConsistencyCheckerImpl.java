@@ -27,6 +27,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ModeParams;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.pt.PtConstants;
 
 /**
@@ -157,6 +158,12 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 				config.controler().getRoutingAlgorithmType() != RoutingAlgorithmType.Dijkstra ) {
 			log.warn("We don't know if non-Dijkstra routing works together with LinkToLink routing.");
 		}
+
+		if ( config.controler().getRoutingAlgorithmType() == RoutingAlgorithmType.ContractionHierarchies &&
+				config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			throw new IllegalStateException("Routing with contraction hierarchies does not support person specific travel disutilities. " +
+					"Set the routing randomness in " + PlansCalcRouteConfigGroup.GROUP_NAME + " to 0.");
+		}
 		
 	}
 
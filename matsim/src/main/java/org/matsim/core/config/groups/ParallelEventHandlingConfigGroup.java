@@ -45,6 +45,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 
+	private final static String ROUTE_EVENTS_BY_TYPE = "routeEventsByType";
+	private Boolean routeEventsByType = false;
+
 	private final static String EVENTS_QUEUE_SIZE = "eventsQueueSize";
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
@@ -66,6 +69,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(ROUTE_EVENTS_BY_TYPE, "If enabled, the handlers are distributed over " + NUMBER_OF_THREADS + " threads and each event is only passed to the threads "
+				+ "with a handler for its type, through a lock-free ring buffer of size " + EVENTS_QUEUE_SIZE + ". Respects " + SYNCHRONIZE_ON_SIMSTEPS + ". "
+				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
 		return comments;
 	}
@@ -144,6 +150,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( ROUTE_EVENTS_BY_TYPE )
+	public Boolean getRouteEventsByType() {
+		return this.routeEventsByType;
+	}
+
+	@StringSetter( ROUTE_EVENTS_BY_TYPE )
+	public void setRouteEventsByType(Boolean routeEventsByType) {
+		if ( !this.locked ) {
+			this.routeEventsByType = routeEventsByType;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
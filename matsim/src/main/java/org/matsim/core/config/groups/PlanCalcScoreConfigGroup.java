@@ -73,6 +73,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch";
@@ -416,6 +418,9 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_THREADS,
+				"number of threads that score the persons during the events processing, each thread scoring a fixed part of the population. "
+						+ "Only use values larger than 1 if the scoring functions of different persons do not share any mutable state. Default: 1");
 
 		return map;
 	}
@@ -782,6 +787,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		if (getScoringParameters(null) != null)
 			return getScoringParameters(null).getMarginalUtlOfWaiting_utils_hr();
@@ -1573,6 +1586,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringThreads = 1;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1646,5 +1661,16 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(NUMBER_OF_SCORING_THREADS)
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter(NUMBER_OF_SCORING_THREADS)
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked();
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 }
@@ -79,6 +79,13 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 	// ---
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize";
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize";
+	private static final String ROUTE_CACHE_INVALIDATION_THRESHOLD = "routeCacheInvalidationThreshold";
+	private int routeCacheSize = 0;
+	private double routeCacheTimeBinSize = 900.;
+	private double routeCacheInvalidationThreshold = 0.1;
+	// ---
 	private static final String CLEAR_MODE_ROUTING_PARAMS = "clearDefaultTeleportedModeParams";
 	private static final String CLEAR_MODE_ROUTING_PARAMS_CMT = "Some typical teleportation routing params are set by default, such as for walk and bike.  " +
 																		"Setting this switch to \"true\" will clear them.  Note that this will also clear " +
@@ -443,6 +450,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			this.setClearingDefaultModeRoutingParams( Boolean.parseBoolean( value ) );
 		} else if (RANDOMNESS.equals( key ) ) {
 			this.setRoutingRandomness( Double.parseDouble( value ) );
+		} else if (ROUTE_CACHE_SIZE.equals( key ) ) {
+			this.setRouteCacheSize( Integer.parseInt( value ) );
+		} else if (ROUTE_CACHE_TIME_BIN_SIZE.equals( key ) ) {
+			this.setRouteCacheTimeBinSize( Double.parseDouble( value ) );
+		} else if (ROUTE_CACHE_INVALIDATION_THRESHOLD.equals( key ) ) {
+			this.setRouteCacheInvalidationThreshold( Double.parseDouble( value ) );
 		}
 //		else if (ISINSERTINGACCESSEGRESSWALK.equals( key ) ) {
 //			this.setInsertingAccessEgressWalk(AccessEgressType.valueOf(value));
@@ -459,6 +472,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray( new String[0] ) ) );
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
+		map.put( ROUTE_CACHE_SIZE, Integer.toString( this.routeCacheSize ) );
+		map.put( ROUTE_CACHE_TIME_BIN_SIZE, Double.toString( this.routeCacheTimeBinSize ) );
+		map.put( ROUTE_CACHE_INVALIDATION_THRESHOLD, Double.toString( this.routeCacheInvalidationThreshold ) );
 //		map.put(  ISINSERTINGACCESSEGRESSWALK,getAccessEgressType().toString()) ;
 //TODO: uncomment this for release 13.0
 		return map;
@@ -474,6 +490,13 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(ROUTE_CACHE_SIZE, "Maximal number of network routes kept in a cache which is shared by all persons and iterations. "
+				+ "Routes are cached per start node, end node, mode and departure time bin; the least recently used ones are evicted first. "
+				+ "Cached routes ignore person-specific travel disutilities, so this should only be used with a routing randomness of 0. "
+				+ "Default is 0, i.e. no caching.");
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, "Size of the departure time bins of the route cache, in seconds.");
+		map.put(ROUTE_CACHE_INVALIDATION_THRESHOLD, "A cached route is discarded at the beginning of an iteration if the travel time of one of its links "
+				+ "changed by more than this fraction since the route was cached.");
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
 		map.put(ACCESSEGRESSTYPE, ACCESSEGRESSTYPE_CMT);
 		return map;
@@ -579,6 +602,25 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+	public void setRouteCacheSize(int routeCacheSize) {
+		this.routeCacheSize = routeCacheSize;
+	}
+	public double getRouteCacheTimeBinSize() {
+		return routeCacheTimeBinSize;
+	}
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+	public double getRouteCacheInvalidationThreshold() {
+		return routeCacheInvalidationThreshold;
+	}
+	public void setRouteCacheInvalidationThreshold(double routeCacheInvalidationThreshold) {
+		this.routeCacheInvalidationThreshold = routeCacheInvalidationThreshold;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 		Set<String> modesRoutedAsTeleportation = this.getModeRoutingParams().keySet();
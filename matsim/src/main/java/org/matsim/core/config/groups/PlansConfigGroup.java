@@ -91,6 +91,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACTING_UNSELECTED_PLANS, "If true, the non-selected plans are stored in a compact encoding before each mobsim, " +
+				"and are only decoded when they are accessed again. Reduces the memory used by large populations. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -217,6 +220,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String COMPACTING_UNSELECTED_PLANS = "compactingUnselectedPlans";
+	private boolean compactingUnselectedPlans = false;
+	@StringGetter(COMPACTING_UNSELECTED_PLANS)
+	public boolean isCompactingUnselectedPlans() {
+		return this.compactingUnselectedPlans;
+	}
+	@StringSetter(COMPACTING_UNSELECTED_PLANS)
+	public void setCompactingUnselectedPlans(final boolean compactingUnselectedPlans) {
+		this.compactingUnselectedPlans = compactingUnselectedPlans;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -287,6 +287,24 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NodeAssignment na : NodeAssignment.values() ) {
+				stb.append(" ").append(na.toString());
+			}
+			map.put(NODE_ASSIGNMENT, "How the nodes (and their out-links) are assigned to the threads of the netsim engine. "
+					+ "The spatial options keep neighbouring nodes in the same thread. Default: roundRobin; options:" + stb );
+		}
+		map.put(RUNNER_REBALANCING_INTERVAL, "Number of time steps after which the active nodes and links are redistributed among the "
+				+ "threads of the netsim engine, so that congested parts of the network do not keep a single thread busy. "
+				+ "0 (default) keeps the initial assignment, see " + NODE_ASSIGNMENT + ".");
+		map.put(USE_EVENTS_BATCHING, "If true, events generated by the mobsim engines during a time step are collected per thread "
+				+ "and handed over to the events manager in bulk. Events then reach the handlers only at the end of the time step. "
+				+ "Default is false.");
+		map.put(SKIP_IDLE_TIME_STEPS, "If true, the qsim jumps directly to the next time step in which one of the mobsim engines has "
+				+ "something to do, e.g. the next activity end or teleportation arrival. This only happens while all mobsim engines can "
+				+ "tell their next wake-up time, and mobsim listeners which cannot tell it are not called in the skipped time steps. "
+				+ "Default is false.");
 		{	
 			StringBuilder stb = new StringBuilder() ;
 			for ( VehiclesSource src : VehiclesSource.values() ) {
@@ -545,6 +563,58 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.useLanes = useLanes;
 	}
 	// ---
+	public enum NodeAssignment { roundRobin, coordinateBisection, hilbertCurve }
+	private static final String NODE_ASSIGNMENT = "nodeAssignment";
+	private NodeAssignment nodeAssignment = NodeAssignment.roundRobin;
+	@StringGetter(NODE_ASSIGNMENT)
+	public NodeAssignment getNodeAssignment() {
+		return this.nodeAssignment;
+	}
+	@StringSetter(NODE_ASSIGNMENT)
+	public void setNodeAssignment(final NodeAssignment nodeAssignment) {
+		testForLocked();
+		this.nodeAssignment = nodeAssignment;
+	}
+	// ---
+	private static final String RUNNER_REBALANCING_INTERVAL = "runnerRebalancingInterval";
+	private int runnerRebalancingInterval = 0;
+	@StringGetter(RUNNER_REBALANCING_INTERVAL)
+	public int getRunnerRebalancingInterval() {
+		return this.runnerRebalancingInterval;
+	}
+	@StringSetter(RUNNER_REBALANCING_INTERVAL)
+	public void setRunnerRebalancingInterval(final int runnerRebalancingInterval) {
+		testForLocked();
+		if (runnerRebalancingInterval < 0) {
+			throw new IllegalArgumentException("runnerRebalancingInterval must not be negative, but is " + runnerRebalancingInterval);
+		}
+		this.runnerRebalancingInterval = runnerRebalancingInterval;
+	}
+	// ---
+	private static final String USE_EVENTS_BATCHING = "useEventsBatching";
+	private boolean useEventsBatching = false;
+	@StringGetter(USE_EVENTS_BATCHING)
+	public boolean isUseEventsBatching() {
+		return this.useEventsBatching;
+	}
+	@StringSetter(USE_EVENTS_BATCHING)
+	public void setUseEventsBatching(final boolean useEventsBatching) {
+		testForLocked();
+		this.useEventsBatching = useEventsBatching;
+	}
+	// ---
+	private static final String SKIP_IDLE_TIME_STEPS = "skipIdleTimeSteps";
+	private boolean skipIdleTimeSteps = false;
+	@StringGetter(SKIP_IDLE_TIME_STEPS)
+	public boolean isSkipIdleTimeSteps() {
+		return this.skipIdleTimeSteps;
+	}
+	@StringSetter(SKIP_IDLE_TIME_STEPS)
+	public void setSkipIdleTimeSteps(final boolean skipIdleTimeSteps) {
+		testForLocked();
+		this.skipIdleTimeSteps = skipIdleTimeSteps;
+	}
+	// ---
 	private static final String SEEP_MODE = "seepMode";
 	private Collection<String> seepModes = Arrays.asList(TransportMode.bike);
 	@StringGetter(SEEP_MODE)
@@ -42,7 +42,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorPackedArray,TravelTimeCalculatorPackedOffHeap}
 
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
@@ -56,6 +56,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String NUMBER_OF_SHARDS = "numberOfShards";
 
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
@@ -69,6 +70,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private Set<String> analyzedModes = new LinkedHashSet<>(  ) ;
 	private boolean filterModes = false;
 	private boolean separateModes = true;
+	private int numberOfShards = 1;
 
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
@@ -90,7 +92,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 							 "respected by the travel time collector. 'car' is default which includes also buses from the pt simulation module.");
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
-		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() ) );
+		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() )
+				+ ". The packed types store the link travel times of all links in one contiguous array with float precision, "
+				+ TravelTimeCalculatorType.TravelTimeCalculatorPackedOffHeap + " outside of the java heap (limited by -XX:MaxDirectMemorySize)." );
+		map.put(NUMBER_OF_SHARDS, "Number of event handlers over which the link travel time aggregation is split by vehicle. With a parallel events manager, "
+				+ "each of them may run in its own thread. 0 means: use " + ParallelEventHandlingConfigGroup.GROUP_NAME + ".numberOfThreads. Default is 1.");
 		return map;
 	}
 
@@ -213,5 +219,15 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+	// ---
+	@StringGetter(NUMBER_OF_SHARDS)
+	public int getNumberOfShards() {
+		return this.numberOfShards;
+	}
+
+	@StringSetter(NUMBER_OF_SHARDS)
+	public void setNumberOfShards(int numberOfShards) {
+		this.numberOfShards = numberOfShards;
+	}
 
 }
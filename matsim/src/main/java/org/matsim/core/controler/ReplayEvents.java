@@ -76,6 +76,11 @@ public final class ReplayEvents {
         };
     }
 
+    /**
+     * Replays the events file through the controler listener protocol. Binary events files (<code>*.bin</code>,
+     * see {@link org.matsim.core.events.algorithms.EventWriterBinary}) are memory mapped and are by far the fastest
+     * format to replay large outputs from.
+     */
     public void playEventsFile(String eventsFilename, int iterationNumber, boolean isLastIteration) {
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerStartupEvent();
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Delegate that collects the events of a thread in an {@link EventArray} instead of passing each of them on
+ * separately. Between {@link #startBatch()} and {@link #endBatch()}, all events the calling thread submits are
+ * buffered; the mobsim then hands the collected batch to the underlying events manager with a single call to
+ * {@link #processEvents(EventArray)}. This removes the per-event synchronization of the parallel events managers
+ * when many threads of the mobsim generate events.
+ * <p>
+ * Threads which have not started a batch submit their events directly. The delegate must thus be thread safe,
+ * which is ensured by {@link EventsUtils#getParallelFeedableInstance(EventsManager)}. Note that direct events of
+ * such threads may overtake events which were submitted earlier, but are still buffered in a batch; worker threads of
+ * a batching mobsim should thus batch as well, and their batches should be added in a deterministic order.
+ */
+public final class BatchingEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+	private final ThreadLocal<EventArray> batches = new ThreadLocal<>();
+
+	public BatchingEventsManager(EventsManager eventsManager) {
+		this.delegate = EventsUtils.getParallelFeedableInstance(eventsManager);
+	}
+
+	/**
+	 * Starts to collect the events submitted by the calling thread. A batch which was not ended before (e.g. because
+	 * of an exception) is discarded.
+	 */
+	public void startBatch() {
+		this.batches.set(new EventArray());
+	}
+
+	/**
+	 * Stops collecting events on the calling thread and returns the events collected since {@link #startBatch()},
+	 * without submitting them. Events submitted afterwards are passed on directly again.
+	 */
+	public EventArray endBatch() {
+		EventArray batch = this.batches.get();
+		if (batch == null) {
+			throw new IllegalStateException("No batch was started on thread " + Thread.currentThread().getName());
+		}
+		this.batches.remove();
+		return batch;
+	}
+
+	public boolean isBatching() {
+		return this.batches.get() != null;
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		EventArray batch = this.batches.get();
+		if (batch != null) {
+			batch.add(event);
+		} else {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	/**
+	 * Appends the events to the batch of the calling thread if there is one, otherwise passes them on to the
+	 * delegate in one call. In the latter case, the delegate may keep the array, so it must not be reused by the
+	 * caller.
+	 */
+	@Override
+	public void processEvents(EventArray events) {
+		if (events.size() == 0) {
+			return;
+		}
+		EventArray batch = this.batches.get();
+		if (batch != null) {
+			for (int i = 0; i < events.size(); i++) {
+				batch.add(events.get(i));
+			}
+		} else {
+			this.delegate.processEvents(events);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+
+}
@@ -26,7 +26,10 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.events.handler.EventHandler;
 
+import com.google.inject.Injector;
+
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.util.Set;
 
@@ -34,20 +37,45 @@ public final class EventsManagerModule extends AbstractModule {
 
 	@Override
 	public void install() {
-		if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getOneThreadPerHandler())) {
-			bindEventsManager().to(ParallelEventsManager.class).in(Singleton.class);
+		Class<? extends EventsManager> eventsManagerClass;
+		if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getRouteEventsByType())) {
+			eventsManagerClass = TypeRoutingParallelEventsManager.class;
+		} else if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getOneThreadPerHandler())) {
+			eventsManagerClass = ParallelEventsManager.class;
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getSynchronizeOnSimSteps())) {
-				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).in(Singleton.class);
+				eventsManagerClass = SimStepParallelEventsManagerImpl.class;
 			} else {
-				bindEventsManager().to(ParallelEventsManagerImpl.class).in(Singleton.class);
+				eventsManagerClass = ParallelEventsManagerImpl.class;
 			}
 		} else {
-			bindEventsManager().to(SimStepParallelEventsManagerImpl.class).in(Singleton.class);
+			eventsManagerClass = SimStepParallelEventsManagerImpl.class;
+		}
+		if (getConfig().qsim().isUseEventsBatching()) {
+			// the mobsim submits the events of its threads in batches, see BatchingEventsManager
+			bind(eventsManagerClass).in(Singleton.class);
+			bindEventsManager().toProvider(new BatchingEventsManagerProvider(eventsManagerClass)).in(Singleton.class);
+		} else {
+			bindEventsManager().to(eventsManagerClass).in(Singleton.class);
 		}
 		bind(EventHandlerRegistrator.class).asEagerSingleton();
 	}
 
+	private static class BatchingEventsManagerProvider implements Provider<EventsManager> {
+		@Inject
+		private Injector injector;
+		private final Class<? extends EventsManager> eventsManagerClass;
+
+		BatchingEventsManagerProvider(Class<? extends EventsManager> eventsManagerClass) {
+			this.eventsManagerClass = eventsManagerClass;
+		}
+
+		@Override
+		public EventsManager get() {
+			return new BatchingEventsManager(this.injector.getInstance(this.eventsManagerClass));
+		}
+	}
+
 	public static class EventHandlerRegistrator {
 		@Inject
 		EventHandlerRegistrator(EventsManager eventsManager, Set<EventHandler> eventHandlersDeclaredByModules) {
@@ -0,0 +1,702 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasLinkId;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.Stack;
+
+/**
+ * Reads events written by {@link EventWriterBinary}.
+ * <p>
+ * The reader can be restricted to a time window, to a set of event types and to a set of links. Blocks which
+ * cannot contain any matching event according to their index are skipped without decoding them, and within
+ * the remaining blocks only the attributes of matching events are decoded.
+ * <p>
+ * Uncompressed files are memory mapped and decoded directly from the mapping. The most frequent event types
+ * (link enter/leave, vehicle enters/leaves traffic, person enters/leaves vehicle, departure and arrival) are
+ * created directly, with one {@link Id} lookup per dictionary entry instead of one per event. All other events
+ * are created the same way as when reading xml events, including custom event mappers.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	/** size of the memory mapped window, must be larger than any block */
+	private static final int MAPPED_WINDOW = 1 << 30;
+
+	private static final byte GENERIC = 0;
+	private static final byte LINK_ENTER = 1;
+	private static final byte LINK_LEAVE = 2;
+	private static final byte VEHICLE_ENTERS_TRAFFIC = 3;
+	private static final byte VEHICLE_LEAVES_TRAFFIC = 4;
+	private static final byte PERSON_ENTERS_VEHICLE = 5;
+	private static final byte PERSON_LEAVES_VEHICLE = 6;
+	private static final byte PERSON_DEPARTURE = 7;
+	private static final byte PERSON_ARRIVAL = 8;
+
+	private static final int MISSING = -1;
+	private static final int NUMBER = -2;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 delegate;
+	private final Stack<String> context = new Stack<>();
+
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private Set<String> eventTypes = null;
+	private Set<String> linkIds = null;
+
+	private final List<String> dictionary = new ArrayList<>();
+	/** per dictionary entry, if it is one of the requested event types */
+	private boolean[] acceptedType = new boolean[0];
+	/** per dictionary entry, if it is one of the requested links */
+	private boolean[] acceptedLink = new boolean[0];
+	/** per dictionary entry, which kind of event is created if it is used as event type */
+	private byte[] kind = new byte[0];
+	private Id<Link>[] linkIdCache = newIdCache(0);
+	private Id<Vehicle>[] vehicleIdCache = newIdCache(0);
+	private Id<Person>[] personIdCache = newIdCache(0);
+	private String[] internedCache = new String[0];
+
+	private int keyLink;
+	private int keyVehicle;
+	private int keyPerson;
+	private int keyLegMode;
+	private int keyNetworkMode;
+	private int keyPosition;
+
+	private double[] times = new double[0];
+	private int[] types = new int[0];
+	private int[] lengths = new int[0];
+	private int attrCount;
+	private int[] attrKeys = new int[8];
+	/** dictionary index of the value, or {@link #MISSING} / {@link #NUMBER} */
+	private int[] attrValues = new int[8];
+	private double[] attrNumbers = new double[8];
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only reads events with <code>fromTime &lt;= time &lt; toTime</code>.
+	 */
+	public void setTimeWindow(double fromTime, double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * Only reads events of the given types, or all events if <code>null</code>.
+	 */
+	public void setEventTypes(Set<String> eventTypes) {
+		this.eventTypes = eventTypes == null ? null : new HashSet<>(eventTypes);
+	}
+
+	/**
+	 * Only reads events which have one of the given links as <code>link</code> attribute, or all events if
+	 * <code>null</code>.
+	 */
+	public void setLinkIds(Set<Id<Link>> linkIds) {
+		if (linkIds == null) {
+			this.linkIds = null;
+		} else {
+			this.linkIds = new HashSet<>();
+			for (Id<Link> linkId : linkIds) {
+				this.linkIds.add(linkId.toString());
+			}
+		}
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		File file = new File(filename);
+		if (filename.toLowerCase(Locale.ROOT).endsWith(".bin") && file.isFile()) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				parse(new MappedSource(channel));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			parse(IOUtils.getInputStream(IOUtils.getFileUrl(filename)));
+		}
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		parse(IOUtils.getInputStream(url));
+	}
+
+	public void parse(InputStream input) {
+		try (DataInputStream in = new DataInputStream(input)) {
+			parse(new StreamSource(in));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void parse(Source source) throws IOException {
+		this.dictionary.clear();
+		this.acceptedType = new boolean[0];
+		this.acceptedLink = new boolean[0];
+		this.kind = new byte[0];
+		this.linkIdCache = newIdCache(0);
+		this.vehicleIdCache = newIdCache(0);
+		this.personIdCache = newIdCache(0);
+		this.internedCache = new String[0];
+		this.keyLink = this.keyVehicle = this.keyPerson = MISSING;
+		this.keyLegMode = this.keyNetworkMode = this.keyPosition = MISSING;
+
+		byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+		source.readFully(magic);
+		if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+			throw new IllegalArgumentException("Not a binary events file.");
+		}
+		int version = source.readInt();
+		if (version != EventWriterBinary.VERSION) {
+			throw new IllegalArgumentException("Unsupported binary events version " + version + ".");
+		}
+		while (readBlock(source)) {
+		}
+	}
+
+	private boolean readBlock(Source source) throws IOException {
+		int first = source.read();
+		if (first < 0) {
+			return false;
+		}
+		int newStrings = readVarInt(source, first);
+		for (int i = 0; i < newStrings; i++) {
+			byte[] bytes = new byte[readVarInt(source, source.readUnsignedByte())];
+			source.readFully(bytes);
+			addString(new String(bytes, StandardCharsets.UTF_8));
+		}
+
+		int count = readVarInt(source, source.readUnsignedByte());
+		double minTime = source.readDouble();
+		double maxTime = source.readDouble();
+		boolean relevant = maxTime >= this.fromTime && minTime < this.toTime;
+		int typeCount = readVarInt(source, source.readUnsignedByte());
+		boolean anyType = this.eventTypes == null;
+		for (int i = 0; i < typeCount; i++) {
+			anyType |= this.acceptedType[readVarInt(source, source.readUnsignedByte())];
+		}
+		int linkCount = readVarInt(source, source.readUnsignedByte());
+		boolean anyLink = this.linkIds == null;
+		for (int i = 0; i < linkCount; i++) {
+			anyLink |= this.acceptedLink[readVarInt(source, source.readUnsignedByte())];
+		}
+		int payloadLength = readVarInt(source, source.readUnsignedByte());
+
+		if (!(relevant && anyType && anyLink)) {
+			source.skip(payloadLength);
+			return true;
+		}
+		decodeBlock(source.payload(payloadLength), count);
+		return true;
+	}
+
+	private void addString(String s) {
+		int id = this.dictionary.size();
+		this.dictionary.add(s);
+		if (this.acceptedType.length <= id) {
+			int length = Math.max(id + 1, this.acceptedType.length * 2);
+			this.acceptedType = Arrays.copyOf(this.acceptedType, length);
+			this.acceptedLink = Arrays.copyOf(this.acceptedLink, length);
+			this.kind = Arrays.copyOf(this.kind, length);
+			this.linkIdCache = Arrays.copyOf(this.linkIdCache, length);
+			this.vehicleIdCache = Arrays.copyOf(this.vehicleIdCache, length);
+			this.personIdCache = Arrays.copyOf(this.personIdCache, length);
+			this.internedCache = Arrays.copyOf(this.internedCache, length);
+		}
+		this.acceptedType[id] = this.eventTypes != null && this.eventTypes.contains(s);
+		this.acceptedLink[id] = this.linkIds != null && this.linkIds.contains(s);
+		this.kind[id] = kindOf(s);
+		switch (s) {
+			case HasLinkId.ATTRIBUTE_LINK: this.keyLink = id; break;
+			case LinkEnterEvent.ATTRIBUTE_VEHICLE: this.keyVehicle = id; break;
+			case HasPersonId.ATTRIBUTE_PERSON: this.keyPerson = id; break;
+			case PersonDepartureEvent.ATTRIBUTE_LEGMODE: this.keyLegMode = id; break;
+			case VehicleEntersTrafficEvent.ATTRIBUTE_NETWORKMODE: this.keyNetworkMode = id; break;
+			case VehicleEntersTrafficEvent.ATTRIBUTE_POSITION: this.keyPosition = id; break;
+			default:
+		}
+	}
+
+	private static byte kindOf(String eventType) {
+		switch (eventType) {
+			case LinkEnterEvent.EVENT_TYPE: return LINK_ENTER;
+			case LinkLeaveEvent.EVENT_TYPE: return LINK_LEAVE;
+			case VehicleEntersTrafficEvent.EVENT_TYPE: return VEHICLE_ENTERS_TRAFFIC;
+			case VehicleLeavesTrafficEvent.EVENT_TYPE: return VEHICLE_LEAVES_TRAFFIC;
+			case PersonEntersVehicleEvent.EVENT_TYPE: return PERSON_ENTERS_VEHICLE;
+			case PersonLeavesVehicleEvent.EVENT_TYPE: return PERSON_LEAVES_VEHICLE;
+			case PersonDepartureEvent.EVENT_TYPE: return PERSON_DEPARTURE;
+			case PersonArrivalEvent.EVENT_TYPE: return PERSON_ARRIVAL;
+			default: return GENERIC;
+		}
+	}
+
+	private void decodeBlock(ByteBuffer payload, int count) {
+		if (this.times.length < count) {
+			this.times = new double[count];
+			this.types = new int[count];
+			this.lengths = new int[count];
+		}
+		int timeEncoding = payload.get();
+		if (timeEncoding == EventWriterBinary.TIMES_INTEGRAL) {
+			long time = 0;
+			for (int i = 0; i < count; i++) {
+				long zigZag = readVarLong(payload);
+				time += (zigZag >>> 1) ^ -(zigZag & 1);
+				this.times[i] = time;
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				this.times[i] = payload.getDouble();
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			this.types[i] = (int) readVarLong(payload);
+		}
+		for (int i = 0; i < count; i++) {
+			this.lengths[i] = (int) readVarLong(payload);
+		}
+
+		for (int i = 0; i < count; i++) {
+			int start = payload.position();
+			double time = this.times[i];
+			int type = this.types[i];
+			boolean accepted = time >= this.fromTime && time < this.toTime
+					&& (this.eventTypes == null || this.acceptedType[type]);
+			if (accepted) {
+				readAttributes(payload);
+				if (this.linkIds == null || isLinkAccepted()) {
+					processEvent(time, type);
+				}
+			}
+			payload.position(start + this.lengths[i]);
+		}
+	}
+
+	private void readAttributes(ByteBuffer payload) {
+		int n = (int) readVarLong(payload);
+		if (this.attrKeys.length < n) {
+			this.attrKeys = new int[n];
+			this.attrValues = new int[n];
+			this.attrNumbers = new double[n];
+		}
+		for (int a = 0; a < n; a++) {
+			this.attrKeys[a] = (int) readVarLong(payload);
+			int value = (int) readVarLong(payload);
+			if (value == EventWriterBinary.VALUE_NULL) {
+				this.attrValues[a] = MISSING;
+			} else if (value == EventWriterBinary.VALUE_DOUBLE) {
+				this.attrValues[a] = NUMBER;
+				this.attrNumbers[a] = payload.getDouble();
+			} else {
+				this.attrValues[a] = value - EventWriterBinary.VALUE_DICTIONARY_OFFSET;
+			}
+		}
+		this.attrCount = n;
+	}
+
+	private boolean isLinkAccepted() {
+		int a = find(this.keyLink);
+		return a >= 0 && this.attrValues[a] >= 0 && this.acceptedLink[this.attrValues[a]];
+	}
+
+	private void processEvent(double time, int type) {
+		int person = value(this.keyPerson);
+		int vehicle = value(this.keyVehicle);
+		int link = value(this.keyLink);
+		switch (this.kind[type]) {
+			case LINK_ENTER:
+				if (vehicle >= 0 && link >= 0) {
+					this.events.processEvent(new LinkEnterEvent(time, vehicleId(vehicle), linkId(link)));
+					return;
+				}
+				break;
+			case LINK_LEAVE:
+				if (vehicle >= 0 && link >= 0) {
+					this.events.processEvent(new LinkLeaveEvent(time, vehicleId(vehicle), linkId(link)));
+					return;
+				}
+				break;
+			case PERSON_ENTERS_VEHICLE:
+				if (person >= 0 && vehicle >= 0) {
+					this.events.processEvent(new PersonEntersVehicleEvent(time, personId(person), vehicleId(vehicle)));
+					return;
+				}
+				break;
+			case PERSON_LEAVES_VEHICLE:
+				if (person >= 0 && vehicle >= 0) {
+					this.events.processEvent(new PersonLeavesVehicleEvent(time, personId(person), vehicleId(vehicle)));
+					return;
+				}
+				break;
+			case PERSON_DEPARTURE:
+				if (person >= 0 && link >= 0) {
+					this.events.processEvent(new PersonDepartureEvent(time, personId(person), linkId(link), interned(value(this.keyLegMode))));
+					return;
+				}
+				break;
+			case PERSON_ARRIVAL:
+				if (person >= 0 && link >= 0) {
+					this.events.processEvent(new PersonArrivalEvent(time, personId(person), linkId(link), interned(value(this.keyLegMode))));
+					return;
+				}
+				break;
+			case VEHICLE_ENTERS_TRAFFIC:
+			case VEHICLE_LEAVES_TRAFFIC:
+				int position = find(this.keyPosition);
+				if (person >= 0 && vehicle >= 0 && link >= 0 && position >= 0 && this.attrValues[position] == NUMBER) {
+					String networkMode = string(value(this.keyNetworkMode));
+					if (this.kind[type] == VEHICLE_ENTERS_TRAFFIC) {
+						this.events.processEvent(new VehicleEntersTrafficEvent(time, personId(person), linkId(link), vehicleId(vehicle),
+								networkMode, this.attrNumbers[position]));
+					} else {
+						this.events.processEvent(new VehicleLeavesTrafficEvent(time, personId(person), linkId(link), vehicleId(vehicle),
+								networkMode, this.attrNumbers[position]));
+					}
+					return;
+				}
+				break;
+			default:
+		}
+		processGenericEvent(time, type);
+	}
+
+	private void processGenericEvent(double time, int type) {
+		AttributesImpl atts = new AttributesImpl();
+		atts.addAttribute(null, Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, null, Double.toString(time));
+		atts.addAttribute(null, Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, null, this.dictionary.get(type));
+		for (int a = 0; a < this.attrCount; a++) {
+			int value = this.attrValues[a];
+			String valueString = value == NUMBER ? Double.toString(this.attrNumbers[a]) : string(value);
+			String keyString = this.dictionary.get(this.attrKeys[a]);
+			atts.addAttribute(null, keyString, keyString, null, valueString);
+		}
+		this.delegate.startTag(EventsReaderXMLv1.EVENT, atts, this.context);
+	}
+
+	private int find(int key) {
+		if (key < 0) {
+			return MISSING;
+		}
+		for (int a = 0; a < this.attrCount; a++) {
+			if (this.attrKeys[a] == key) {
+				return a;
+			}
+		}
+		return MISSING;
+	}
+
+	/**
+	 * @return the dictionary index of the (non-numeric) value of the given attribute, or {@link #MISSING}
+	 */
+	private int value(int key) {
+		int a = find(key);
+		return a < 0 || this.attrValues[a] < 0 ? MISSING : this.attrValues[a];
+	}
+
+	private String string(int value) {
+		return value < 0 ? null : this.dictionary.get(value);
+	}
+
+	private String interned(int value) {
+		if (value < 0) {
+			return null;
+		}
+		String s = this.internedCache[value];
+		if (s == null) {
+			s = this.dictionary.get(value).intern();
+			this.internedCache[value] = s;
+		}
+		return s;
+	}
+
+	private Id<Link> linkId(int value) {
+		Id<Link> id = this.linkIdCache[value];
+		if (id == null) {
+			id = Id.create(this.dictionary.get(value), Link.class);
+			this.linkIdCache[value] = id;
+		}
+		return id;
+	}
+
+	private Id<Vehicle> vehicleId(int value) {
+		Id<Vehicle> id = this.vehicleIdCache[value];
+		if (id == null) {
+			id = Id.create(this.dictionary.get(value), Vehicle.class);
+			this.vehicleIdCache[value] = id;
+		}
+		return id;
+	}
+
+	private Id<Person> personId(int value) {
+		Id<Person> id = this.personIdCache[value];
+		if (id == null) {
+			id = Id.create(this.dictionary.get(value), Person.class);
+			this.personIdCache[value] = id;
+		}
+		return id;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Id<T>[] newIdCache(int length) {
+		return new Id[length];
+	}
+
+	private static int readVarInt(Source source, int first) throws IOException {
+		int value = first & 0x7F;
+		int shift = 7;
+		int b = first;
+		while ((b & 0x80) != 0) {
+			b = source.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		return value;
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * The bytes of a binary events file, either from a stream or from a memory mapped file.
+	 */
+	private interface Source {
+		/** @return the next byte, or -1 at the end of the file */
+		int read() throws IOException;
+
+		int readUnsignedByte() throws IOException;
+
+		int readInt() throws IOException;
+
+		double readDouble() throws IOException;
+
+		void readFully(byte[] bytes) throws IOException;
+
+		void skip(int length) throws IOException;
+
+		/** @return a buffer containing the next <code>length</code> bytes, valid until the next call */
+		ByteBuffer payload(int length) throws IOException;
+	}
+
+	private static final class StreamSource implements Source {
+		private final DataInputStream in;
+		private byte[] buffer = new byte[0];
+
+		StreamSource(DataInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return this.in.read();
+		}
+
+		@Override
+		public int readUnsignedByte() throws IOException {
+			return this.in.readUnsignedByte();
+		}
+
+		@Override
+		public int readInt() throws IOException {
+			return this.in.readInt();
+		}
+
+		@Override
+		public double readDouble() throws IOException {
+			return this.in.readDouble();
+		}
+
+		@Override
+		public void readFully(byte[] bytes) throws IOException {
+			this.in.readFully(bytes);
+		}
+
+		@Override
+		public void skip(int length) throws IOException {
+			long remaining = length;
+			while (remaining > 0) {
+				long skipped = this.in.skip(remaining);
+				if (skipped <= 0) {
+					if (this.in.read() < 0) {
+						throw new EOFException();
+					}
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+		}
+
+		@Override
+		public ByteBuffer payload(int length) throws IOException {
+			if (this.buffer.length < length) {
+				this.buffer = new byte[length];
+			}
+			this.in.readFully(this.buffer, 0, length);
+			return ByteBuffer.wrap(this.buffer, 0, length).slice();
+		}
+	}
+
+	/**
+	 * Maps the file window by window, so that files larger than 2GB can be read as well.
+	 */
+	private static final class MappedSource implements Source {
+		private final FileChannel channel;
+		private final long size;
+		private long windowStart = 0;
+		private MappedByteBuffer buffer;
+
+		MappedSource(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			map(0);
+		}
+
+		private void map(long position) throws IOException {
+			this.windowStart = position;
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_WINDOW, this.size - position));
+		}
+
+		private long position() {
+			return this.windowStart + this.buffer.position();
+		}
+
+		private void ensure(int length) throws IOException {
+			if (this.buffer.remaining() < length) {
+				long position = position();
+				if (position + length > this.size) {
+					throw new EOFException();
+				}
+				map(position);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position() >= this.size) {
+				return -1;
+			}
+			ensure(1);
+			return this.buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int readUnsignedByte() throws IOException {
+			ensure(1);
+			return this.buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int readInt() throws IOException {
+			ensure(4);
+			return this.buffer.getInt();
+		}
+
+		@Override
+		public double readDouble() throws IOException {
+			ensure(8);
+			return this.buffer.getDouble();
+		}
+
+		@Override
+		public void readFully(byte[] bytes) throws IOException {
+			ensure(bytes.length);
+			this.buffer.get(bytes);
+		}
+
+		@Override
+		public void skip(int length) throws IOException {
+			if (this.buffer.remaining() >= length) {
+				this.buffer.position(this.buffer.position() + length);
+			} else {
+				long position = position() + length;
+				if (position > this.size) {
+					throw new EOFException();
+				}
+				map(position);
+			}
+		}
+
+		@Override
+		public ByteBuffer payload(int length) throws IOException {
+			ensure(length);
+			ByteBuffer payload = this.buffer.slice();
+			payload.limit(length);
+			this.buffer.position(this.buffer.position() + length);
+			return payload;
+		}
+	}
+
+}
@@ -61,6 +61,10 @@ public final class EventsUtils {
 		}
 		else if (events instanceof SynchronizedEventsManagerImpl) {
 			return events;
+		} else if (events instanceof TypeRoutingParallelEventsManager) {
+			return events;
+		} else if (events instanceof BatchingEventsManager) {
+			return events;
 		} else {
 			return new SynchronizedEventsManagerImpl(events);
 		}
@@ -81,6 +81,10 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.zst") || lcFilename.endsWith(".bin.lz4")) {
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -106,6 +110,11 @@ public final class MatsimEventsReader implements MatsimReader {
 				customEventMappers.forEach(reader::addCustomEventMapper);
 				reader.parse(stream);
 				break;
+			case binary:
+				EventsReaderBinary binaryReader = new EventsReaderBinary(this.events);
+				customEventMappers.forEach(binaryReader::addCustomEventMapper);
+				binaryReader.parse(stream);
+				break;
 		}
 	}
 
@@ -117,6 +126,10 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(url);
+		} else if (url.getFile().contains(".bin")) {
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.readURL(url);
 		}
 	}
 
@@ -101,6 +101,17 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		} else delegate.processEvent(event);
 	}
 
+	@Override
+	public void processEvents(final EventArray events) {
+		this.counter.addAndGet(events.size());
+
+		if (parallelMode) {
+			for (int i = 0; i < events.size(); i++) {
+				runnables[0].processEvent(events.get(i));
+			}
+		} else delegate.processEvents(events);
+	}
+
 	@Override
 	public void addHandler(final EventHandler handler) {
 		delegate.addHandler(handler);
@@ -54,6 +54,11 @@ class SynchronizedEventsManagerImpl implements EventsManager {
 	public synchronized void processEvent(Event event) {
 		this.delegate.processEvent(event);
 	}
+
+	@Override
+	public synchronized void processEvents(EventArray events) {
+		this.delegate.processEvents(events);
+	}
 	
 	@Override
 	public void removeHandler(EventHandler handler) {
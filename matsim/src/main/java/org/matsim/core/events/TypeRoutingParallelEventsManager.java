@@ -0,0 +1,532 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An EventsManager that distributes its handlers over a fixed number of threads and only hands an event to the
+ * threads which have at least one handler for it.
+ * <p>
+ * Events are published into a single ring buffer, together with the set of threads interested in the event.
+ * Every thread follows the ring with its own sequence and only processes the events which are meant for it, so
+ * no event is copied, and events nobody listens to are not published at all. The producer side is synchronized;
+ * the consumers do not take any locks. A thread without events to process spins briefly and then blocks until an
+ * event for it is published. If <code>syncOnSimSteps</code> is set, {@link #afterSimStep(double)}
+ * waits until all events published so far (including events created by handlers) have been processed.
+ * <p>
+ * Per thread metrics are available through {@link #getThreadStatistics()} and are logged at the end of every
+ * iteration.
+ */
+public final class TypeRoutingParallelEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(TypeRoutingParallelEventsManager.class);
+
+	private static final int SPINS = 100;
+	private static final int YIELDS = 100;
+	private static final long PARK_NANOS = 10_000;
+
+	private final int numOfThreads;
+	private final boolean syncOnSimSteps;
+	private final int ringSize;
+	private final int ringMask;
+
+	private final List<EventHandler> eventHandlers = new ArrayList<>();
+
+	private Event[] ring;
+	/** the threads interested in the event in the same slot of the ring */
+	private BitSet[] masks;
+	/** sequence of the next event to be published */
+	private long next = 0;
+	private final AtomicLong published = new AtomicLong();
+	private long producerStalls = 0;
+
+	private Consumer[] consumers = new Consumer[0];
+	private final Map<Class<?>, BitSet> routing = new HashMap<>();
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+	private volatile boolean init = false;
+
+	@Inject
+	TypeRoutingParallelEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getSynchronizeOnSimSteps() == null || config.getSynchronizeOnSimSteps(),
+				config.getEventsQueueSize());
+	}
+
+	/**
+	 * @param numOfThreads number of event processing threads
+	 * @param syncOnSimSteps if all events are processed at the end of each sim step
+	 * @param ringSize the capacity of the ring buffer, rounded up to the next power of two
+	 */
+	public TypeRoutingParallelEventsManager(int numOfThreads, boolean syncOnSimSteps, int ringSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("numOfThreads must be at least 1, but is " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		this.syncOnSimSteps = syncOnSimSteps;
+		this.ringSize = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+		this.ringMask = this.ringSize - 1;
+		log.info("number of threads=" + numOfThreads + ", ring size=" + this.ringSize);
+	}
+
+	@Override
+	public synchronized void processEvent(final Event event) {
+		if (!this.init) {
+			throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+		}
+		publish(event);
+	}
+
+	@Override
+	public synchronized void processEvents(final EventArray events) {
+		if (!this.init) {
+			throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+		}
+		for (int i = 0; i < events.size(); i++) {
+			publish(events.get(i));
+		}
+	}
+
+	private void publish(Event event) {
+		BitSet mask = routing(event.getClass());
+		if (mask.isEmpty()) {
+			return;
+		}
+		long sequence = this.next;
+		if (minConsumerSequence() <= sequence - this.ringSize) {
+			this.producerStalls++;
+			Consumer self = currentConsumer();
+			do {
+				checkException();
+				if (self != null && self.sequence.get() <= sequence - this.ringSize) {
+					// a handler creates events while its own thread is the one the ring waits for
+					self.processAvailable();
+				} else {
+					// releases the lock, so handlers on the consumer threads can still publish their events
+					wakeUpLagging();
+					try {
+						this.wait(1);
+					} catch (InterruptedException e) {
+						throw new RuntimeException("Exception while adding event.", e);
+					}
+				}
+				sequence = this.next;
+			} while (minConsumerSequence() <= sequence - this.ringSize);
+		}
+		int index = (int) sequence & this.ringMask;
+		this.ring[index] = event;
+		this.masks[index] = mask;
+		this.next = sequence + 1;
+		// a volatile write, so that a thread which is about to block either sees the event or is woken up below
+		this.published.set(sequence + 1);
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			this.consumers[i].wakeUp();
+		}
+	}
+
+	/**
+	 * @return the indices of the threads interested in events of the class; the set must not be modified
+	 */
+	private BitSet routing(Class<?> eventClass) {
+		BitSet mask = this.routing.get(eventClass);
+		if (mask == null) {
+			mask = new BitSet(this.consumers.length);
+			for (Consumer consumer : this.consumers) {
+				for (Class<?> handled : consumer.eventClasses) {
+					if (handled.isAssignableFrom(eventClass)) {
+						mask.set(consumer.index);
+						break;
+					}
+				}
+			}
+			this.routing.put(eventClass, mask);
+		}
+		return mask;
+	}
+
+	/**
+	 * Wakes up the blocked threads which have not looked at all published events yet. Threads are only woken up for
+	 * the events they are interested in, so they still have to skip the others before the ring slots can be reused.
+	 */
+	private void wakeUpLagging() {
+		long available = this.published.get();
+		for (Consumer consumer : this.consumers) {
+			if (consumer.sequence.get() < available) {
+				consumer.wakeUp();
+			}
+		}
+	}
+
+	private long minConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			min = Math.min(min, consumer.sequence.get());
+		}
+		return min;
+	}
+
+	private long minConsumerCompleted() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			min = Math.min(min, consumer.completed.get());
+		}
+		return min;
+	}
+
+	private Consumer currentConsumer() {
+		Thread thread = Thread.currentThread();
+		for (Consumer consumer : this.consumers) {
+			if (consumer == thread) {
+				return consumer;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (this.init) {
+			throw new IllegalStateException("Handlers can not be added after .initProcessing() was called!");
+		}
+		this.eventHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		// this will be used the next time we start an iteration
+		this.eventHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		log.info("resetting Event-Handlers");
+		for (EventHandler handler : new LinkedHashSet<>(this.eventHandlers)) {
+			handler.reset(iteration);
+		}
+	}
+
+	@Override
+	public synchronized void initProcessing() {
+		this.ring = new Event[this.ringSize];
+		this.masks = new BitSet[this.ringSize];
+		this.next = 0;
+		this.published.set(0);
+		this.producerStalls = 0;
+		this.routing.clear();
+		this.hadException.set(null);
+
+		int threads = Math.max(1, Math.min(this.numOfThreads, this.eventHandlers.size()));
+		this.consumers = new Consumer[threads];
+		for (int i = 0; i < threads; i++) {
+			this.consumers[i] = new Consumer(i);
+		}
+		for (int i = 0; i < this.eventHandlers.size(); i++) {
+			this.consumers[i % threads].addHandler(this.eventHandlers.get(i));
+		}
+		for (Consumer consumer : this.consumers) {
+			consumer.eventsManager.initProcessing();
+			consumer.start();
+		}
+		this.init = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnSimSteps) {
+			awaitProcessed();
+		}
+		checkException();
+	}
+
+	/*
+	 * Not synchronized, as handlers may still publish events while we wait for the threads to catch up.
+	 */
+	@Override
+	public void finishProcessing() {
+		try {
+			if (this.init) {
+				awaitProcessed();
+			}
+		} finally {
+			for (Consumer consumer : this.consumers) {
+				consumer.running = false;
+				LockSupport.unpark(consumer);
+			}
+			for (Consumer consumer : this.consumers) {
+				try {
+					consumer.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException("Exception while waiting on join...", e);
+				}
+				consumer.eventsManager.finishProcessing();
+			}
+			this.init = false;
+			this.ring = null;
+			this.masks = null;
+		}
+		log.info("events processing statistics (producer stalls: " + this.producerStalls + "):");
+		for (ThreadStatistics statistics : getThreadStatistics()) {
+			log.info("  " + statistics);
+		}
+		checkException();
+	}
+
+	/**
+	 * Waits until all published events have been processed, including events which handlers create in the meantime.
+	 */
+	private void awaitProcessed() {
+		int idle = 0;
+		while (minConsumerCompleted() < this.published.get()) {
+			checkException();
+			wakeUpLagging();
+			idle = backOff(idle);
+		}
+	}
+
+	private void checkException() {
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/**
+	 * Spins, then yields, and then parks for short periods. The event threads block instead of parking, see
+	 * {@link Consumer#awaitEvents()}.
+	 */
+	private static int backOff(int idle) {
+		if (idle < SPINS) {
+			Thread.onSpinWait();
+		} else if (idle < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return idle + 1;
+	}
+
+	/**
+	 * @return the statistics of the threads of the last iteration, only reliable after {@link #finishProcessing()}
+	 */
+	public List<ThreadStatistics> getThreadStatistics() {
+		List<ThreadStatistics> statistics = new ArrayList<>();
+		for (Consumer consumer : this.consumers) {
+			statistics.add(new ThreadStatistics(consumer.getName(), consumer.handlerNames, consumer.processed, consumer.skipped, consumer.idle));
+		}
+		return statistics;
+	}
+
+	public long getProducerStalls() {
+		return this.producerStalls;
+	}
+
+	public static final class ThreadStatistics {
+		private final String threadName;
+		private final List<String> handlers;
+		private final long processedEvents;
+		private final long skippedEvents;
+		private final long idleWaits;
+
+		ThreadStatistics(String threadName, List<String> handlers, long processedEvents, long skippedEvents, long idleWaits) {
+			this.threadName = threadName;
+			this.handlers = Collections.unmodifiableList(new ArrayList<>(handlers));
+			this.processedEvents = processedEvents;
+			this.skippedEvents = skippedEvents;
+			this.idleWaits = idleWaits;
+		}
+
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		/** the class names of the handlers processed by this thread */
+		public List<String> getHandlers() {
+			return this.handlers;
+		}
+
+		/** the number of events handed to the handlers of this thread */
+		public long getProcessedEvents() {
+			return this.processedEvents;
+		}
+
+		/** the number of events in the ring none of this thread's handlers is interested in */
+		public long getSkippedEvents() {
+			return this.skippedEvents;
+		}
+
+		/** how often the thread blocked because there were no new events for it */
+		public long getIdleWaits() {
+			return this.idleWaits;
+		}
+
+		@Override
+		public String toString() {
+			return this.threadName + ": processed=" + this.processedEvents + " skipped=" + this.skippedEvents
+					+ " idle=" + this.idleWaits + " handlers=" + this.handlers;
+		}
+	}
+
+	private final class Consumer extends Thread {
+		private final int index;
+		private final EventsManagerImpl eventsManager = new EventsManagerImpl();
+		private final Set<Class<?>> eventClasses = new HashSet<>();
+		private final List<String> handlerNames = new ArrayList<>();
+		/** sequence of the next event to be looked at by this thread; the slots before can be reused */
+		private final AtomicLong sequence = new AtomicLong();
+		/** sequence of the next event not fully processed by this thread */
+		private final AtomicLong completed = new AtomicLong();
+		/** &gt; 1 if a handler creates events while the ring is full and this thread has to drain it itself */
+		private int depth = 0;
+		private volatile boolean running = true;
+		/** if this thread is about to block or blocked because there are no events for it */
+		private volatile boolean waiting = false;
+
+		// only written by this thread, read after it has been joined
+		private long processed = 0;
+		private long skipped = 0;
+		private long idle = 0;
+
+		Consumer(int index) {
+			this.index = index;
+			setName("TypeRoutingEventsThread-" + index);
+			setDaemon(true);
+		}
+
+		void addHandler(EventHandler handler) {
+			this.eventsManager.addHandler(handler);
+			this.handlerNames.add(handler.getClass().getName());
+			Class<?> klass = handler.getClass();
+			do {
+				addHandledEventClasses(klass);
+				klass = klass.getSuperclass();
+			} while (klass != null && EventHandler.class.isAssignableFrom(klass));
+		}
+
+		private void addHandledEventClasses(Class<?> klass) {
+			for (Class<?> theInterface : klass.getInterfaces()) {
+				if (EventHandler.class.isAssignableFrom(theInterface)) {
+					for (Method method : theInterface.getMethods()) {
+						if (method.getName().equals("handleEvent") && method.getParameterTypes().length == 1) {
+							this.eventClasses.add(method.getParameterTypes()[0]);
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				int idleCount = 0;
+				while (true) {
+					if (processAvailable()) {
+						idleCount = 0;
+					} else if (!this.running) {
+						if (!processAvailable()) {
+							return;
+						}
+					} else if (idleCount < SPINS + YIELDS) {
+						idleCount = backOff(idleCount);
+					} else {
+						this.idle++;
+						awaitEvents();
+					}
+				}
+			} catch (Throwable e) {
+				log.error("Thread " + getName() + " died with exception while handling events.", e);
+				hadException.compareAndSet(null, e);
+			}
+		}
+
+		/**
+		 * Blocks until an event for this thread is published, or until the thread is woken up to skip events or to
+		 * stop.
+		 */
+		private void awaitEvents() {
+			this.waiting = true;
+			// check again after announcing to wait, so that an event published in between is not missed
+			if (this.running && published.get() <= this.sequence.get()) {
+				LockSupport.park(this);
+			}
+			this.waiting = false;
+		}
+
+		void wakeUp() {
+			if (this.waiting) {
+				LockSupport.unpark(this);
+			}
+		}
+
+		/**
+		 * @return if there were any events to look at
+		 */
+		boolean processAvailable() {
+			long available = published.get();
+			if (this.sequence.get() >= available) {
+				return false;
+			}
+			Event[] events = ring;
+			BitSet[] eventMasks = masks;
+			long current;
+			this.depth++;
+			try {
+				// re-read the sequence each time, a handler creating events may have advanced it in the meantime
+				while ((current = this.sequence.get()) < available) {
+					int index = (int) current & ringMask;
+					Event event = events[index];
+					boolean interested = eventMasks[index].get(this.index);
+					this.sequence.lazySet(current + 1);
+					if (interested) {
+						this.eventsManager.processEvent(event);
+						this.processed++;
+					} else {
+						this.skipped++;
+					}
+					if (this.depth == 1) {
+						this.completed.lazySet(current + 1);
+					}
+				}
+			} finally {
+				this.depth--;
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,337 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.HasLinkId;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events into a compact, block based binary format that can be read selectively by
+ * {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by blocks of up to
+ * <code>blockSize</code> events. All strings (event types, attribute keys, Ids and other non-numeric values)
+ * are dictionary encoded; every block first lists the strings added to the dictionary since the previous block.
+ * The block header then contains the number of events, the minimal and maximal event time, the event types and the
+ * links (attribute <code>link</code>) occurring in the block, and the size of the payload. A reader can thus decide
+ * from the header alone whether a block is relevant for a time window, a set of event types or a set of links,
+ * and skip the payload otherwise.
+ * <p>
+ * The payload is stored column by column: delta encoded times, event types, the byte length of each event's
+ * attributes, and finally the attributes as pairs of dictionary key and value. Integer values are written as
+ * variable length numbers.
+ * <p>
+ * The file should not be compressed if blocks are to be skipped without reading them.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = "MATSIMEB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	/** all times in the block are full seconds and stored as delta encoded integers */
+	public static final int TIMES_INTEGRAL = 0;
+	/** the block contains fractional times which are stored as raw doubles */
+	public static final int TIMES_RAW = 1;
+
+	/** value marker for attributes without value */
+	public static final int VALUE_NULL = 0;
+	/** value marker for numbers that are stored inline as raw doubles instead of through the dictionary */
+	public static final int VALUE_DOUBLE = 1;
+	/** offset added to the dictionary index of all other values */
+	public static final int VALUE_DICTIONARY_OFFSET = 2;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+
+	private final double[] times;
+	private final int[] types;
+	private final int[] attributeLengths;
+	private final ByteArrayOutputStream attributes = new ByteArrayOutputStream();
+	private final DataOutputStream attributesOut = new DataOutputStream(this.attributes);
+	private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+	private final DataOutputStream payloadOut = new DataOutputStream(this.payload);
+
+	private int[] blockLinks = new int[16];
+	private int blockLinkCount = 0;
+	/** per dictionary entry, the number of the last block (starting at 1) it was used as link in */
+	private int[] linkBlock = new int[16];
+	private int block = 1;
+	private boolean[] blockHasType = new boolean[16];
+	private int count = 0;
+
+	public EventWriterBinary(final File outfile) {
+		this(createOutputStream(outfile), DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this(stream, DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive, but is " + blockSize);
+		}
+		this.out = new DataOutputStream(stream);
+		this.blockSize = blockSize;
+		this.times = new double[blockSize];
+		this.types = new int[blockSize];
+		this.attributeLengths = new int[blockSize];
+		try {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static OutputStream createOutputStream(File outfile) {
+		try {
+			return IOUtils.getOutputStream(outfile.toURI().toURL(), false);
+		} catch (MalformedURLException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			writeBlock();
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		try {
+			int index = this.count;
+			this.times[index] = event.getTime();
+			int type = lookup(event.getEventType());
+			this.types[index] = type;
+			if (type >= this.blockHasType.length) {
+				this.blockHasType = Arrays.copyOf(this.blockHasType, Math.max(type + 1, this.blockHasType.length * 2));
+			}
+			this.blockHasType[type] = true;
+
+			int start = this.attributes.size();
+			Map<String, String> attr = event.getAttributes();
+			int attrCount = 0;
+			for (Map.Entry<String, String> entry : attr.entrySet()) {
+				if (isStored(entry)) {
+					attrCount++;
+				}
+			}
+			writeVarInt(this.attributesOut, attrCount);
+			for (Map.Entry<String, String> entry : attr.entrySet()) {
+				if (!isStored(entry)) {
+					continue;
+				}
+				String key = entry.getKey();
+				String value = entry.getValue();
+				writeVarInt(this.attributesOut, lookup(key));
+				if (value == null) {
+					writeVarInt(this.attributesOut, VALUE_NULL);
+				} else if (isNumber(value)) {
+					writeVarInt(this.attributesOut, VALUE_DOUBLE);
+					this.attributesOut.writeDouble(Double.parseDouble(value));
+				} else {
+					int valueId = lookup(value);
+					writeVarInt(this.attributesOut, valueId + VALUE_DICTIONARY_OFFSET);
+					if (key.equals(HasLinkId.ATTRIBUTE_LINK)) {
+						addBlockLink(valueId);
+					}
+				}
+			}
+			this.attributeLengths[index] = this.attributes.size() - start;
+
+			this.count++;
+			if (this.count == this.blockSize) {
+				writeBlock();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private int lookup(String s) {
+		Integer id = this.dictionary.get(s);
+		if (id == null) {
+			id = this.dictionary.size();
+			this.dictionary.put(s, id);
+			this.newStrings.add(s);
+		}
+		return id;
+	}
+
+	private void addBlockLink(int linkId) {
+		if (linkId >= this.linkBlock.length) {
+			this.linkBlock = Arrays.copyOf(this.linkBlock, Math.max(linkId + 1, this.linkBlock.length * 2));
+		}
+		if (this.linkBlock[linkId] == this.block) {
+			return;
+		}
+		this.linkBlock[linkId] = this.block;
+		if (this.blockLinkCount == this.blockLinks.length) {
+			this.blockLinks = Arrays.copyOf(this.blockLinks, this.blockLinks.length * 2);
+		}
+		this.blockLinks[this.blockLinkCount++] = linkId;
+	}
+
+	private void writeBlock() throws IOException {
+		if (this.count == 0) {
+			return;
+		}
+		// strings added to the dictionary since the last block
+		writeVarInt(this.out, this.newStrings.size());
+		for (String s : this.newStrings) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(this.out, bytes.length);
+			this.out.write(bytes);
+		}
+		this.newStrings.clear();
+
+		// block index: size, time range, event types, links
+		double minTime = Double.POSITIVE_INFINITY;
+		double maxTime = Double.NEGATIVE_INFINITY;
+		boolean integral = true;
+		for (int i = 0; i < this.count; i++) {
+			double time = this.times[i];
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+			integral &= time == Math.rint(time) && Math.abs(time) < (1L << 52);
+		}
+		writeVarInt(this.out, this.count);
+		this.out.writeDouble(minTime);
+		this.out.writeDouble(maxTime);
+		int typeCount = 0;
+		for (boolean hasType : this.blockHasType) {
+			typeCount += hasType ? 1 : 0;
+		}
+		writeVarInt(this.out, typeCount);
+		for (int type = 0; type < this.blockHasType.length; type++) {
+			if (this.blockHasType[type]) {
+				writeVarInt(this.out, type);
+				this.blockHasType[type] = false;
+			}
+		}
+		Arrays.sort(this.blockLinks, 0, this.blockLinkCount);
+		writeVarInt(this.out, this.blockLinkCount);
+		for (int i = 0; i < this.blockLinkCount; i++) {
+			writeVarInt(this.out, this.blockLinks[i]);
+		}
+		this.blockLinkCount = 0;
+
+		// payload, column by column
+		this.payload.reset();
+		if (integral) {
+			this.payloadOut.writeByte(TIMES_INTEGRAL);
+			long previous = 0;
+			for (int i = 0; i < this.count; i++) {
+				long time = (long) this.times[i];
+				writeVarLong(this.payloadOut, zigZag(time - previous));
+				previous = time;
+			}
+		} else {
+			this.payloadOut.writeByte(TIMES_RAW);
+			for (int i = 0; i < this.count; i++) {
+				this.payloadOut.writeDouble(this.times[i]);
+			}
+		}
+		for (int i = 0; i < this.count; i++) {
+			writeVarInt(this.payloadOut, this.types[i]);
+		}
+		for (int i = 0; i < this.count; i++) {
+			writeVarInt(this.payloadOut, this.attributeLengths[i]);
+		}
+		this.attributes.writeTo(this.payloadOut);
+		this.attributes.reset();
+
+		writeVarInt(this.out, this.payload.size());
+		this.payload.writeTo(this.out);
+		this.count = 0;
+		this.block++;
+	}
+
+	private static boolean isStored(Map.Entry<String, String> entry) {
+		String key = entry.getKey();
+		return !key.equals(Event.ATTRIBUTE_TIME) && !key.equals(Event.ATTRIBUTE_TYPE);
+	}
+
+	/**
+	 * Only values which survive the round trip through a double are stored inline, everything else (including
+	 * numeric Ids like "1") goes through the dictionary.
+	 */
+	private static boolean isNumber(String value) {
+		if (value.isEmpty() || value.indexOf('.') < 0) {
+			return false;
+		}
+		char first = value.charAt(0);
+		if (first != '-' && (first < '0' || first > '9')) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+}
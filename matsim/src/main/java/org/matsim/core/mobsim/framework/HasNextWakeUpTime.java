@@ -0,0 +1,38 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.framework;
+
+/**
+ * Implemented by mobsim engines and mobsim listeners which know in advance when they next have something to do. With
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#isSkipIdleTimeSteps()}, the QSim asks all of them after every
+ * time step and continues with the earliest of the returned times, skipping the time steps in between.
+ */
+public interface HasNextWakeUpTime {
+
+	/**
+	 * Called after the time step <code>now</code> is completed.
+	 *
+	 * @return the earliest time after <code>now</code> at which this needs to be called again. A time not later than the
+	 * next time step (e.g. <code>now</code>) means that the next time step must not be skipped;
+	 * <code>Double.POSITIVE_INFINITY</code> means that nothing is scheduled at all.
+	 */
+	double getNextWakeUpTime(double now);
+
+}
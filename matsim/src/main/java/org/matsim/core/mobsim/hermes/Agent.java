@@ -106,9 +106,15 @@ class Agent {
 
     protected int eventsIndex;
 
+    // Events before this index were passed on to the events manager and are no longer referenced by the agent.
+    protected int releasedEventsIndex;
+
     // Timestamp of when the agent will be ready to exit link.
     protected int linkFinishTime;
 
+    // Position of the agent's wake-up in the processing order of its second, only used with several realms.
+    protected long order;
+
     // Number of passengers that this agent can take (zero for personal vehicles)
     private int capacity;
 
@@ -310,6 +316,7 @@ class Agent {
         events.clear();
         planIndex = 0;
         eventsIndex = 0;
+        releasedEventsIndex = 0;
         linkFinishTime = 0;
         if (this.passengersByStop != null) {
             passengersInside = 0;
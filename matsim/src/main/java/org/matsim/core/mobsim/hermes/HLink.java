@@ -153,6 +153,10 @@ class HLink {
     private int nextFreeFlowSlot;
 	private int lastPush;
 	private final int stuckTimePeriod;
+	// Boundary links are used by several realms, which take turns in the processing order of the items of a second.
+	private boolean boundary;
+	// Position of the link's wake-up in the processing order of its second, only used with several realms.
+	long order;
 
     public HLink(int id, int capacity, int length, int velocity,  float flowCapacityperSecond, int stuckTimePeriod) {
         this.id = id;
@@ -182,6 +186,14 @@ class HLink {
 
 	}
 
+	public void setBoundary(boolean boundary) {
+		this.boundary = boundary;
+	}
+
+	public boolean isBoundary() {
+		return boundary;
+	}
+
 	public boolean push(Agent agent, int timestep, float storageCapacityPCU) {
 		//avoid long vehicles not being able to enter a short link
 		float effectiveStorageCapacity = Math.min(storageCapacityPCU, initialCapacity);
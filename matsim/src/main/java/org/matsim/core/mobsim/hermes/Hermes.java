@@ -27,10 +27,14 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.ParallelEventsManager;
 import org.matsim.core.mobsim.framework.Mobsim;
 
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
 final class Hermes implements Mobsim {
 
 	final private static Logger log = Logger.getLogger(Hermes.class);
-	private Realm realm;
+	private Realm[] realms;
 	private Agent[] agents;
 	private ScenarioImporter si;
 	private final Scenario scenario;
@@ -44,12 +48,16 @@ final class Hermes implements Mobsim {
 	private void importScenario() throws Exception {
 		si = ScenarioImporter.instance(scenario, eventsManager);
 		si.generate();
-		this.realm = si.realm;
+		this.realms = si.realms;
 		this.agents = si.hermes_agents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+		if (realms.length == 1) {
+			eventsManager.processEvents(realms[0].getSortedEvents());
+		} else {
+			eventsManager.processEvents(Realm.mergeSortedEvents(realms));
+		}
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isTransitVehicle()) {
@@ -61,6 +69,58 @@ final class Hermes implements Mobsim {
 		}
 	}
 
+	private void runRealms() throws Exception {
+		if (realms.length == 1) {
+			realms[0].run();
+			return;
+		}
+		// Realms step through the same second in parallel and exchange agents and links in between. The barrier
+		// actions run while all realms wait, so they can safely order what the realms scheduled and merge and pass
+		// on their events.
+		CyclicBarrier stepped = new CyclicBarrier(realms.length, () -> Realm.assignOrders(realms));
+		CyclicBarrier synced = new CyclicBarrier(realms.length, () -> {
+			if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && (realms[0].time() - 1) % si.getEventsFlushInterval() == 0) {
+				eventsManager.processEvents(Realm.mergeSortedEvents(realms));
+				for (Realm realm : realms) {
+					realm.releaseEmittedEvents();
+				}
+			}
+		});
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[realms.length];
+		for (int i = 0; i < realms.length; i++) {
+			Realm realm = realms[i];
+			threads[i] = new Thread(() -> {
+				try {
+					while (realm.time() != HermesConfigGroup.SIM_STEPS) {
+						realm.step();
+						stepped.await();
+						realm.sync();
+						synced.await();
+					}
+				} catch (BrokenBarrierException | InterruptedException e) {
+					// another realm failed, its exception is reported
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+					for (Thread thread : threads) {
+						if (thread != Thread.currentThread()) {
+							thread.interrupt();
+						}
+					}
+				}
+			}, "HermesRealm" + i);
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new RuntimeException("Hermes realm failed", failure.get());
+		}
+	}
+
 	@Override
 	public void run() {
 		long time;
@@ -72,7 +132,7 @@ final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			runRealms();
 			log.info(String.format(
 					"Hermes took %d ms", System.currentTimeMillis() - time));
 
@@ -43,6 +43,12 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     public static final int MAX_EVENTS_AGENT = 65536;
 
     private static final String DETPT = "useDeterministicPt";
+    private static final String FLUSH_INTERVAL = "eventsFlushInterval";
+    private static final String FLUSH_INTERVALDESC = "Interval (in simulated seconds) after which Hermes passes the events of the interval on to the events manager."
+            + " Smaller values let event handlers start earlier and keep fewer events buffered in the mobsim.";
+    private static final String REALMS = "numberOfRealms";
+    private static final String REALMSDESC = "Number of realms the network is partitioned into. Each realm is simulated by its own thread."
+            + " Use 1 to run Hermes single-threaded. Scenarios with transit always run in a single realm.";
 
     // Number of simulation steps
     public static int SIM_STEPS = 30 * 60 * 60;
@@ -74,6 +80,12 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfRealms = 1;
+
+    @Positive
+    private int eventsFlushInterval = 3600;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -120,6 +132,26 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(REALMS)
+    public int getNumberOfRealms() {
+        return numberOfRealms;
+    }
+
+    @StringSetter(REALMS)
+    public void setNumberOfRealms(int numberOfRealms) {
+        this.numberOfRealms = numberOfRealms;
+    }
+
+    @StringGetter(FLUSH_INTERVAL)
+    public int getEventsFlushInterval() {
+        return eventsFlushInterval;
+    }
+
+    @StringSetter(FLUSH_INTERVAL)
+    public void setEventsFlushInterval(int eventsFlushInterval) {
+        this.eventsFlushInterval = eventsFlushInterval;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -156,6 +188,8 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(REALMS, REALMSDESC);
+        comments.put(FLUSH_INTERVAL, FLUSH_INTERVALDESC);
         return comments;
     }
 
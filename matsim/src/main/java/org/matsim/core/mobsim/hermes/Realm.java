@@ -37,14 +37,78 @@ import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 class Realm {
+
+    // Keys give the position of an item (an agent or a link waking up) in the processing order of a second, which is the
+    // same in all realms. Agents are processed before links, so links have the phase bit set on top of their order.
+    private static final long LINK_PHASE = 1L << 62;
+    // Progress of a realm that did not yet start the current second, and of a realm that processed all its items.
+    private static final long STEP_NOT_STARTED = Long.MIN_VALUE;
+    private static final long STEP_DONE = Long.MAX_VALUE;
+    // Busy waiting for another realm turns into yielding after this many spins.
+    private static final int MAX_SPINS = 1000;
+
+	// Single-producer single-consumer hand-over of agents and links scheduled by one realm for another one (or for
+	// itself). The producing realm only writes while stepping, the orders are assigned while all realms wait (see
+	// assignOrders) and the consuming realm only drains while syncing, so no locking is needed.
+	static final class Mailbox {
+		private Object[] items = new Object[16];
+		private int[] wakeups = new int[16];
+		// Key of the item that scheduled the entry, replaced by the order of the entry once it is assigned.
+		private long[] keys = new long[16];
+		private int size;
+		// Next entry to assign an order to, or to drain.
+		private int next;
+
+		void add(Object item, int wakeup, long key) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+				wakeups = Arrays.copyOf(wakeups, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+			items[size] = item;
+			wakeups[size] = wakeup;
+			keys[size] = key;
+			size++;
+		}
+
+		void clear() {
+			Arrays.fill(items, 0, size, null);
+			size = 0;
+			next = 0;
+		}
+	}
+
 	private final ScenarioImporter si;
+    // Index of this realm in the realms array.
+    private final int id;
+    // All realms of the simulation (including this one).
+    private Realm[] realms;
+    // Realm that pushes agents into each link (the realm of the link's from node), null if there is a single realm.
+    private final int[] linkEntryRealm;
+    // Realm that processes each link (the realm of the link's to node), null if there is a single realm.
+    private final int[] linkExitRealm;
+    // Realms that use each boundary link, null for links that are only used by one realm.
+    private final int[][] linkRealms;
+    // Agents and links scheduled in the current step, indexed by the realm that will process them.
+    private Mailbox[] outbox;
+    // Realm of each entry scheduled in the current step, in the order in which the entries were scheduled.
+    private int[] scheduled = new int[16];
+    private int scheduledSize;
+    // Key of the item that is currently processed.
+    private long currentKey;
+    // Key of the item that is currently processed as seen by the other realms; all items before it are done.
+    private volatile long progress = STEP_NOT_STARTED;
+    // Order of the next scheduled item. Only used in the first realm, which assigns the orders for all realms.
+    private long nextOrder;
     // Global array of links.
     // Note: the id of the link is its index in the array.
     private final HLink[] links;
     // Internal realm links on hold until a specific timestamp (in seconds).
     // Internal means that the source and destination realm of are the same.
+    // The queues of a timestamp are only created when needed, see queue().
     private final ArrayList<ArrayDeque<HLink>> delayedLinksByWakeupTime;
     // Agents on hold until a specific timestamp (in seconds).
     private final ArrayList<ArrayDeque<Agent>> delayedAgentsByWakeupTime;
@@ -57,6 +121,10 @@ class Realm {
     private final int[] line_of_route;
     // queue of sorted events by time
     private EventArray sorted_events;
+    // key of the item that emitted each event in sorted_events, null if there is a single realm
+    private long[] sortedEventKeys;
+    // agents with events in sorted_events that they still reference
+    private final ArrayList<Agent> emitters = new ArrayList<>();
     // MATSim event manager.
     private final EventsManager eventsManager;
     // Current timestamp
@@ -64,7 +132,16 @@ class Realm {
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, 0, null, null, null);
+    }
+
+    public Realm(ScenarioImporter scenario, EventsManager eventsManager, int id,
+            int[] linkEntryRealm, int[] linkExitRealm, int[][] linkRealms) throws Exception {
     	this.si = scenario;
+        this.id = id;
+        this.linkEntryRealm = linkEntryRealm;
+        this.linkExitRealm = linkExitRealm;
+        this.linkRealms = linkRealms;
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -73,12 +150,13 @@ class Realm {
         this.route_stops_by_route_no = scenario.route_stops_by_route_no;
         this.line_of_route = scenario.line_of_route;
         this.sorted_events = new EventArray();
+        this.sortedEventKeys = linkEntryRealm == null ? null : new long[1024];
         this.eventsManager = eventsManager;
 
 	// the last position is to store events that will not happen...
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
         }
     }
 
@@ -88,15 +166,104 @@ class Realm {
         }
     }
 
+    void setRealms(Realm[] realms) {
+        this.realms = realms;
+        this.outbox = new Mailbox[realms.length];
+        for (int i = 0; i < realms.length; i++) {
+            outbox[i] = new Mailbox();
+        }
+    }
+
+    private static <T> ArrayDeque<T> queue(ArrayList<ArrayDeque<T>> queuesByWakeupTime, int time) {
+        ArrayDeque<T> queue = queuesByWakeupTime.get(time);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queuesByWakeupTime.set(time, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Puts an agent on hold before the simulation starts. Agents and links of all realms have to be added in the
+     * order in which a single realm would process them.
+     */
+    void addDelayedAgent(Agent agent, int until) {
+        agent.order = realms[0].nextOrder++;
+        queue(delayedAgentsByWakeupTime, until).add(agent);
+    }
+
+    /**
+     * Puts a link on hold before the simulation starts, see {@link #addDelayedAgent(Agent, int)}.
+     */
+    void addDelayedLink(HLink link, int until) {
+        link.order = realms[0].nextOrder++;
+        queue(delayedLinksByWakeupTime, until).add(link);
+    }
+
+    // Realm in which the agent will enter its next link.
+    private int nextRealm(Agent agent) {
+        if (linkEntryRealm == null) {
+            return id;
+        }
+        for (int i = agent.planIndex + 1; i < agent.plan.size(); i++) {
+            long planentry = agent.plan.get(i);
+            if (Agent.getPlanHeader(planentry) == Agent.LinkType) {
+                return linkEntryRealm[Agent.getLinkPlanEntry(planentry)];
+            }
+        }
+        return id;
+    }
+
     private void add_delayed_agent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        if (linkEntryRealm == null) {
+            queue(delayedAgentsByWakeupTime, Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        } else {
+            schedule(agent, nextRealm(agent), Math.min(until, HermesConfigGroup.SIM_STEPS + 1));
+        }
     }
 
     private void add_delayed_link(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        if (linkExitRealm == null) {
+            queue(delayedLinksByWakeupTime, Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        } else {
+            schedule(link, linkExitRealm[link.id()], Math.min(until, HermesConfigGroup.SIM_STEPS + 1));
+        }
+    }
+
+    // Agents and links scheduled by several realms only get their order when the realms sync.
+    private void schedule(Object item, int realm, int wakeup) {
+        outbox[realm].add(item, wakeup, currentKey);
+        if (scheduledSize == scheduled.length) {
+            scheduled = Arrays.copyOf(scheduled, scheduledSize * 2);
+        }
+        scheduled[scheduledSize++] = realm;
+    }
+
+    private void startItem(long key) {
+        currentKey = key;
+        progress = key;
+    }
+
+    // Waits until the other realms using the boundary link processed all items before the current one, so that agents
+    // enter and leave the link in the same order as in a single realm.
+    private void awaitRealms(HLink link) {
+        for (int realm : linkRealms[link.id()]) {
+            if (realm != id) {
+                for (int spins = 0; realms[realm].progress <= currentKey; spins++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IllegalStateException("Interrupted while waiting for realm " + realm);
+                    }
+                    if (spins < MAX_SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+        }
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -121,6 +288,9 @@ class Realm {
         int linkid = Agent.getLinkPlanEntry(planentry);
         int velocity = Agent.getVelocityPlanEntry(planentry);
         HLink next = links[linkid];
+        if (next.isBoundary()) {
+            awaitRealms(next);
+        }
         int prev_finishtime = agent.linkFinishTime;
         // this ensures that if no velocity is provided for the vehicle, we use the link
         velocity = velocity == 0 ? next.velocity() : velocity;
@@ -316,59 +486,217 @@ class Realm {
     }
 
     public void run() throws Exception {
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            step();
+            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % si.getEventsFlushInterval() == 0 && sorted_events.size() > 0) {
+                eventsManager.processEvents(sorted_events);
+                sorted_events = new EventArray();
+                releaseEmittedEvents();
+            }
+            secs += 1;
+        }
+    }
+
+    /**
+     * Processes all agents and links that wake up in the current second.
+     */
+    void step() {
     	int routed = 0;
         Agent agent = null;
         HLink link = null;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
+        if (id == 0 && secs % 3600 == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        ArrayDeque<Agent> agentQueue = delayedAgentsByWakeupTime.get(secs);
+        while (agentQueue != null && (agent = agentQueue.poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing agent %d", agent.id));
             }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing agent %d", agent.id));
-                }
-                routed += processAgentActivities(agent);
+            if (linkEntryRealm != null) {
+                startItem(agent.order);
+            }
+            routed += processAgentActivities(agent);
+
+        }
+        delayedAgentsByWakeupTime.set(secs, null);
+        if (id == 0 && si.isDeterministicPt()) {
+            for (Event e : si.getDeterministicPtEvents().get(secs)) {
+                addSortedEvent(e);
+            }
+            si.getDeterministicPtEvents().get(secs).clear();
+        }
 
+        ArrayDeque<HLink> linkQueue = delayedLinksByWakeupTime.get(secs);
+        while (linkQueue != null && (link = linkQueue.poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing link %d", link.id()));
             }
-            delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sorted_events.add(e);
+            if (linkEntryRealm != null) {
+                startItem(LINK_PHASE | link.order);
+                if (link.isBoundary()) {
+                    awaitRealms(link);
                 }
-                si.getDeterministicPtEvents().get(secs).clear();
             }
+            routed += processLinks(link);
+        }
+        delayedLinksByWakeupTime.set(secs, null);
+        progress = STEP_DONE;
+        if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
+            log(secs, String.format("Processed %d agents", routed));
+        }
+    }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing link %d", link.id()));
+    /**
+     * Assigns the orders of the agents and links that all realms scheduled in the last step. They get the order in
+     * which a single realm would have scheduled them, i.e. sorted by the key of the item whose processing scheduled
+     * them. Must only be called once all realms finished stepping and before they sync.
+     */
+    static void assignOrders(Realm[] realms) {
+        int[] positions = new int[realms.length];
+        long order = realms[0].nextOrder;
+        while (true) {
+            int min = -1;
+            long minKey = STEP_DONE;
+            for (int i = 0; i < realms.length; i++) {
+                Realm realm = realms[i];
+                if (positions[i] < realm.scheduledSize) {
+                    Mailbox mailbox = realm.outbox[realm.scheduled[positions[i]]];
+                    if (mailbox.keys[mailbox.next] < minKey) {
+                        min = i;
+                        minKey = mailbox.keys[mailbox.next];
+                    }
                 }
-                routed += processLinks(link);
             }
-            delayedLinksByWakeupTime.set(secs, null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
-                log(secs, String.format("Processed %d agents", routed));
+            if (min == -1) {
+                break;
             }
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
-                eventsManager.processEvents(sorted_events);
-                sorted_events = new EventArray();
+            Realm realm = realms[min];
+            Mailbox mailbox = realm.outbox[realm.scheduled[positions[min]++]];
+            mailbox.keys[mailbox.next++] = order++;
+        }
+        realms[0].nextOrder = order;
+        for (Realm realm : realms) {
+            realm.scheduledSize = 0;
+            for (Mailbox mailbox : realm.outbox) {
+                mailbox.next = 0;
             }
+        }
+    }
 
-            routed = 0;
-            secs += 1;
+    /**
+     * Receives the agents and links scheduled for this realm during the last step in the order assigned to them, and
+     * advances the clock. Must only be called once the orders were assigned, see {@link #assignOrders(Realm[])}.
+     */
+    void sync() {
+        while (true) {
+            Mailbox min = null;
+            long minOrder = STEP_DONE;
+            for (Realm realm : realms) {
+                Mailbox mailbox = realm.outbox[id];
+                if (mailbox.next < mailbox.size && mailbox.keys[mailbox.next] < minOrder) {
+                    min = mailbox;
+                    minOrder = mailbox.keys[mailbox.next];
+                }
+            }
+            if (min == null) {
+                break;
+            }
+            Object item = min.items[min.next];
+            int wakeup = min.wakeups[min.next];
+            min.next++;
+            if (item instanceof Agent) {
+                ((Agent) item).order = minOrder;
+                queue(delayedAgentsByWakeupTime, wakeup).add((Agent) item);
+            } else {
+                ((HLink) item).order = minOrder;
+                queue(delayedLinksByWakeupTime, wakeup).add((HLink) item);
+            }
         }
+        for (Realm realm : realms) {
+            realm.outbox[id].clear();
+        }
+        progress = STEP_NOT_STARTED;
+        secs += 1;
+    }
+
+    int time() {
+        return secs;
+    }
+
+    /**
+     * Drops the agents' references to events that were passed on to the events manager, so that they can be
+     * collected once the event handlers are done with them. Must only be called at the end of a step.
+     */
+    void releaseEmittedEvents() {
+        for (Agent agent : emitters) {
+            Event[] events = agent.events().array();
+            for (int i = agent.releasedEventsIndex; i < agent.eventsIndex; i++) {
+                events[i] = null;
+            }
+            agent.releasedEventsIndex = agent.eventsIndex;
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Merges the time-ordered events collected by each realm into one time-ordered array and resets the
+     * realms' arrays. Events of the same second are ordered by the key of the item that emitted them, which
+     * gives the same order as in a single realm.
+     */
+    static EventArray mergeSortedEvents(Realm[] realms) {
+        EventArray merged = new EventArray();
+        int[] next = new int[realms.length];
+        while (true) {
+            int min = -1;
+            double minTime = Double.POSITIVE_INFINITY;
+            long minKey = STEP_DONE;
+            for (int i = 0; i < realms.length; i++) {
+                EventArray events = realms[i].sorted_events;
+                if (next[i] < events.size()) {
+                    double time = events.get(next[i]).getTime();
+                    long key = realms[i].sortedEventKeys[next[i]];
+                    if (time < minTime || (time == minTime && key < minKey)) {
+                        min = i;
+                        minTime = time;
+                        minKey = key;
+                    }
+                }
+            }
+            if (min == -1) {
+                break;
+            }
+            merged.add(realms[min].sorted_events.get(next[min]++));
+        }
+        for (Realm realm : realms) {
+            realm.sorted_events = new EventArray();
+        }
+        return merged;
+    }
+
+    private void addSortedEvent(Event event) {
+        if (sortedEventKeys != null) {
+            if (sorted_events.size() == sortedEventKeys.length) {
+                sortedEventKeys = Arrays.copyOf(sortedEventKeys, sortedEventKeys.length * 2);
+            }
+            sortedEventKeys[sorted_events.size()] = currentKey;
+        }
+        sorted_events.add(event);
     }
 
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
-        if (eventid != 0) {
+        if (eventid != 0 && eventid >= agent.releasedEventsIndex) {
         	EventArray agentevents = agent.events();
             Event event = agentevents.get(eventid);
+            if (agent.releasedEventsIndex == agent.eventsIndex && agent.eventsIndex <= eventid) {
+                emitters.add(agent);
+            }
 
             for (; agent.eventsIndex <= eventid; agent.eventsIndex++) {
             	agentevents.get(agent.eventsIndex).setTime(time);
                 if (HermesConfigGroup.DEBUG_REALMS)
                     log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agentevents.get(agent.eventsIndex).toString()));
-                sorted_events.add(agentevents.get(agent.eventsIndex));
+                addSortedEvent(agentevents.get(agent.eventsIndex));
             }
 
             // Fix delay for PT events.
@@ -403,7 +731,5 @@ class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
-    ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
 }
@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.algorithms.NetworkPartitioner;
+
+/**
+ * Splits the network into spatial regions by recursive coordinate bisection of its nodes, see
+ * {@link NetworkPartitioner}. Each region is simulated by one {@link Realm}. A link belongs to the realm of its
+ * to node (where agents leave it) and is entered from the realm of its from node. Links whose nodes are in different realms are boundary links.
+ */
+final class RealmPartitioner {
+
+	private RealmPartitioner() {
+	}
+
+	/**
+	 * @return the realm of each node, indexed by {@link Id#index()} of the node id.
+	 */
+	static int[] partition(Network network, int numberOfRealms) {
+		return NetworkPartitioner.partition(network, numberOfRealms, NetworkPartitioner.Method.coordinateBisection);
+	}
+}
@@ -71,6 +71,7 @@ import org.matsim.vehicles.VehicleUtils;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -114,8 +115,15 @@ class ScenarioImporter {
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermes_agents;
 
-	protected Realm realm;
+	protected Realm[] realms;
+	// Realm that agents enter a link from and realm that agents leave a link in, indexed by link id.
+	// Both are null if the simulation runs in a single realm.
+	private int[] link_entry_realm;
+	private int[] link_exit_realm;
+	// Realms that use a boundary link, indexed by link id; null for links used by a single realm.
+	private int[][] link_realms;
 	private final boolean deterministicPt;
+	private final int eventsFlushInterval;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
 	protected IdMap<TransitStopFacility, IntArrayMap<ArrayDeque<Agent>>> agent_stops;
@@ -130,6 +138,7 @@ class ScenarioImporter {
 	private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		numberOfThreads = Math.min(scenario.getConfig().global().getNumberOfThreads(), Runtime.getRuntime().availableProcessors());
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
+		this.eventsFlushInterval = scenario.getConfig().hermes().getEventsFlushInterval();
 		if (deterministicPt) {
 			deterministicPtEvents = new ArrayList<>(scenario.getConfig().hermes().getEndTime());
 			for (int i = 0; i < scenario.getConfig().hermes().getEndTime(); i++) {
@@ -144,7 +153,74 @@ class ScenarioImporter {
 		generateLinks();
 		generatePT();
 		generateAgents();
+		partitionLinks();
+	}
 
+	private void partitionLinks() {
+		int numberOfRealms = scenario.getConfig().hermes().getNumberOfRealms();
+		if (numberOfRealms > 1 && !scenario.getTransitSchedule().getTransitLines().isEmpty()) {
+			log.warn("Hermes does not support multiple realms with transit, running in a single realm.");
+			numberOfRealms = 1;
+		}
+		if (numberOfRealms == 1) {
+			return;
+		}
+		int[] nodeRealm = RealmPartitioner.partition(scenario.getNetwork(), numberOfRealms);
+		link_entry_realm = new int[hermes_links.length];
+		link_exit_realm = new int[hermes_links.length];
+		int boundaryLinks = 0;
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			int link_id = link.getId().index();
+			link_entry_realm[link_id] = nodeRealm[link.getFromNode().getId().index()];
+			link_exit_realm[link_id] = nodeRealm[link.getToNode().getId().index()];
+			if (link_entry_realm[link_id] != link_exit_realm[link_id]) {
+				boundaryLinks++;
+			}
+		}
+		log.info(String.format("Hermes partitioned the network into %d realms (%d boundary links)", numberOfRealms, boundaryLinks));
+	}
+
+	// A link is used by the realm that agents leave it in and by the realms that push agents into it. These are the
+	// realm that agents enter it from and, where a route is not connected, the realm of the previous link's to node.
+	private void findBoundaryLinks() {
+		link_realms = new int[hermes_links.length][];
+		for (HLink link : hermes_links) {
+			if (link != null) {
+				link.setBoundary(false);
+				if (link_entry_realm[link.id()] != link_exit_realm[link.id()]) {
+					addLinkRealm(link.id(), link_entry_realm[link.id()]);
+				}
+			}
+		}
+		for (Agent agent : hermes_agents) {
+			if (agent == null) {
+				continue;
+			}
+			for (int i = 1; i < agent.plan.size(); i++) {
+				long prev = agent.plan.get(i - 1);
+				long next = agent.plan.get(i);
+				if (Agent.getPlanHeader(prev) == Agent.LinkType && Agent.getPlanHeader(next) == Agent.LinkType) {
+					int next_id = Agent.getLinkPlanEntry(next);
+					int realm = link_exit_realm[Agent.getLinkPlanEntry(prev)];
+					if (realm != link_entry_realm[next_id]) {
+						addLinkRealm(next_id, realm);
+					}
+				}
+			}
+		}
+	}
+
+	private void addLinkRealm(int link_id, int realm) {
+		int[] realms = link_realms[link_id] == null ? new int[] { link_exit_realm[link_id] } : link_realms[link_id];
+		for (int r : realms) {
+			if (r == realm) {
+				return;
+			}
+		}
+		realms = Arrays.copyOf(realms, realms.length + 1);
+		realms[realms.length - 1] = realm;
+		link_realms[link_id] = realms;
+		hermes_links[link_id].setBoundary(true);
 	}
 
 	private void generateVehicleCategories() {
@@ -307,8 +383,27 @@ class ScenarioImporter {
 		}
 	}
 
+	private int entryRealm(int linkid) {
+		return link_entry_realm == null || linkid < 0 ? 0 : link_entry_realm[linkid];
+	}
+
+	private int exitRealm(int linkid) {
+		return link_exit_realm == null ? 0 : link_exit_realm[linkid];
+	}
+
 	private void generateRealms() throws Exception {
-		realm = new Realm(this, eventsManager);
+		if (link_entry_realm == null) {
+			realms = new Realm[] { new Realm(this, eventsManager) };
+		} else {
+			findBoundaryLinks();
+			realms = new Realm[scenario.getConfig().hermes().getNumberOfRealms()];
+			for (int i = 0; i < realms.length; i++) {
+				realms[i] = new Realm(this, eventsManager, i, link_entry_realm, link_exit_realm, link_realms);
+			}
+		}
+		for (Realm realm : realms) {
+			realm.setRealms(realms);
+		}
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermes_agents) {
@@ -330,7 +425,7 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					realms[entryRealm(nextLink(agent))].addDelayedAgent(agent, Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1));
 					break;
 				default:
 					Logger.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -341,12 +436,23 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					realms[exitRealm(link.id())].addDelayedLink(link, nextwakeup);
 				}
 			}
 		}
 	}
 
+	// First link in the agent's plan, -1 if the agent never enters a link.
+	private static int nextLink(Agent agent) {
+		for (int i = 0; i < agent.plan.size(); i++) {
+			long planentry = agent.plan.get(i);
+			if (Agent.getPlanHeader(planentry) == Agent.LinkType) {
+				return Agent.getLinkPlanEntry(planentry);
+			}
+		}
+		return -1;
+	}
+
 	private void processPlanActivity(
 			Id<Person> id,
 			PlanArray flatplan,
@@ -954,4 +1060,8 @@ class ScenarioImporter {
 	public boolean isDeterministicPt() {
 		return deterministicPt;
 	}
+
+	public int getEventsFlushInterval() {
+		return eventsFlushInterval;
+	}
 }
@@ -85,6 +85,21 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * get the arrival time of the first message in the queue without removing it
+	 *
+	 * @return the arrival time, or <code>Double.POSITIVE_INFINITY</code> if the queue is empty
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m;
+		// drop dead messages at the head, as getNextMessage() would
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -31,10 +31,11 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 
-class ActivityEngineDefaultImpl implements ActivityEngine {
+class ActivityEngineDefaultImpl implements ActivityEngine, HasNextWakeUpTime {
 	private static final Logger log = Logger.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private final EventsManager eventsManager;
@@ -112,6 +113,12 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 	}
 
+	@Override
+	public double getNextWakeUpTime(double now) {
+		AgentEntry next = activityEndsList.peek();
+		return next == null ? Double.POSITIVE_INFINITY : next.activityEndTime;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
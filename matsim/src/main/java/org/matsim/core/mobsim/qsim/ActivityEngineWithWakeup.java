@@ -32,10 +32,11 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, HasNextWakeUpTime {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
@@ -68,6 +69,13 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.doSimStep(now);
 	}
 
+	@Override
+	public double getNextWakeUpTime(double now) {
+		AgentEntry next = wakeUpList.peek();
+		double wakeUpTime = next == null ? Double.POSITIVE_INFINITY : next.time;
+		return Math.min(wakeUpTime, ((HasNextWakeUpTime) delegate).getNextWakeUpTime(now));
+	}
+
 	@Override
 	public void afterSim() {
 		delegate.afterSim();
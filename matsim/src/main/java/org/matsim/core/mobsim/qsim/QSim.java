@@ -33,12 +33,16 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
+import org.matsim.core.events.BatchingEventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.mobsim.qsim.changeeventsengine.NetworkChangeEventsEngineI;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -109,6 +113,11 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 
 	private final Collection<MobsimEngine> mobsimEngines = new ArrayList<>();
 
+	private final List<HasNextWakeUpTime> wakeUpTimeListeners = new ArrayList<>();
+	private final List<MobsimListener> stepListenersWithoutWakeUpTime = new ArrayList<>();
+	private boolean skipIdleTimeSteps = false;
+	private long skippedTimeSteps = 0;
+
 	private final MobsimTimer simTimer;
 
 	private TeleportationEngine teleportationEngine;
@@ -286,6 +295,24 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
+
+		this.skipIdleTimeSteps = false;
+		this.skippedTimeSteps = 0;
+		if (this.scenario.getConfig().qsim().isSkipIdleTimeSteps()) {
+			this.skipIdleTimeSteps = true;
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				if (!(mobsimEngine instanceof HasNextWakeUpTime)) {
+					log.warn("mobsim engine " + mobsimEngine.getClass().getName() + " cannot tell its next wake-up time, "
+							+ "thus no time steps will be skipped.");
+					this.skipIdleTimeSteps = false;
+				}
+			}
+			for (MobsimListener listener : this.stepListenersWithoutWakeUpTime) {
+				log.warn("mobsim listener " + listener.getClass().getName() + " is notified in every time step, but cannot tell "
+						+ "its next wake-up time, thus no time steps will be skipped.");
+				this.skipIdleTimeSteps = false;
+			}
+		}
 	}
 
 	private void createAgents() {
@@ -348,6 +375,9 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 
 		if (gotException) throw new RuntimeException( "got exception while cleaning up the QSim. Please check the error messages above for details.");
 		events.finishProcessing();
+		if (this.skipIdleTimeSteps) {
+			log.info("skipped " + this.skippedTimeSteps + " idle time steps.");
+		}
 		if (analyzeRunTimes) {
 			log.info("qsim internal cpu time (nanos): " + qSimInternalTime);
 			for (Entry<MobsimEngine, AtomicLong> entry : this.mobsimEngineRunTimes.entrySet()) {
@@ -375,6 +405,14 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
 		
+		/*
+		 * With events batching, the events of all engines are collected and submitted at once after the engines
+		 * are done. The netsim engine adds the batches of its runner threads to this one.
+		 */
+		if (this.events instanceof BatchingEventsManager) {
+			((BatchingEventsManager) this.events).startBatch();
+		}
+
 		/*
 		 * The WithinDayEngine has to perform its replannings before
 		 * the other engines simulate the sim step.
@@ -398,6 +436,10 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 				this.mobsimEngineRunTimes.get(mobsimEngine).addAndGet(System.nanoTime() - this.startClockTime);
 		}
 
+		if (this.events instanceof BatchingEventsManager) {
+			this.events.processEvents(((BatchingEventsManager) this.events).endBatch());
+		}
+
 		if (analyzeRunTimes) this.startClockTime = System.nanoTime();
 
 		// console printout:
@@ -418,6 +460,9 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (this.skipIdleTimeSteps) {
+				skipIdleTimeSteps(now);
+			}
 		}
 
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -425,6 +470,42 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		return doContinue;
 	}
 
+	/**
+	 * Advances the timer to the first time step not before the earliest wake-up time of the engines and listeners. Never
+	 * goes beyond the time step at which the simulation would stop anyway.
+	 */
+	private void skipIdleTimeSteps(final double now) {
+		double wakeUpTime = Double.POSITIVE_INFINITY;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			wakeUpTime = Math.min(wakeUpTime, ((HasNextWakeUpTime) mobsimEngine).getNextWakeUpTime(now));
+			if (wakeUpTime <= this.simTimer.getTimeOfDay()) {
+				return;
+			}
+		}
+		for (HasNextWakeUpTime listener : this.wakeUpTimeListeners) {
+			wakeUpTime = Math.min(wakeUpTime, listener.getNextWakeUpTime(now));
+			if (wakeUpTime <= this.simTimer.getTimeOfDay()) {
+				return;
+			}
+		}
+
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		double endTime = this.stopTime;
+		if (qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime) {
+			endTime = qsimConfigGroup.getEndTime().seconds();
+		}
+		double targetTime = Math.min(wakeUpTime, endTime);
+		if (targetTime >= Double.MAX_VALUE) {
+			// nothing will ever happen again, but there is no end time to jump to either
+			return;
+		}
+		// step by step, so that the time steps are exactly the same as without skipping
+		while (this.simTimer.getTimeOfDay() < targetTime) {
+			this.simTimer.incrementTime();
+			this.skippedTimeSteps++;
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -534,7 +615,8 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// more than one period may have passed when idle time steps are skipped
+			this.infoTime = Math.max(this.infoTime + INFO_PERIOD, Math.floor(time / INFO_PERIOD) * INFO_PERIOD + INFO_PERIOD);
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
@@ -642,6 +724,12 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	@Override
 	public void addQueueSimulationListeners(MobsimListener listener) {
 		this.listenerManager.addQueueSimulationListener(listener);
+		if (listener instanceof HasNextWakeUpTime) {
+			this.wakeUpTimeListeners.add((HasNextWakeUpTime) listener);
+		} else if (listener instanceof MobsimBeforeSimStepListener || listener instanceof MobsimAfterSimStepListener) {
+			// would silently miss the skipped time steps
+			this.stepListenersWithoutWakeUpTime.add(listener);
+		}
 	}
 
 	@Inject void addQueueSimulationListeners(Set<MobsimListener> listeners) {
@@ -651,7 +739,7 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		// <MobsimListener> multibinder that is constructed in AbstractModule is retrieved here.  kai, sep'20
 		
 		for (MobsimListener listener : listeners) {
-			this.listenerManager.addQueueSimulationListener(listener);
+			addQueueSimulationListeners(listener);
 		}
 	}
 
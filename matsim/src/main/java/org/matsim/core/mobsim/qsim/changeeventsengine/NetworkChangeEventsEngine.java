@@ -24,6 +24,7 @@
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -35,7 +36,7 @@ import org.matsim.core.network.NetworkUtils;
 import javax.inject.Inject;
 import java.util.Queue;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, HasNextWakeUpTime {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
 
 	private final MessageQueue messageQueue;
@@ -122,4 +123,10 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public double getNextWakeUpTime(double now) {
+		// the change events are applied through the message queue, see MessageQueueEngine
+		return Double.POSITIVE_INFINITY;
+	}
 }
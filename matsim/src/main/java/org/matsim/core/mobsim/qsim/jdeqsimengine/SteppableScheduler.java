@@ -65,6 +65,14 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the arrival time of the next message to be handled, or <code>Double.POSITIVE_INFINITY</code> if there is none
+	 */
+	public double getNextMessageArrivalTime() {
+		double next = queue.getNextMessageArrivalTime();
+		return lookahead == null ? next : Math.min(lookahead.getMessageArrivalTime(), next);
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
@@ -35,9 +35,13 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NodeAssignment;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -46,6 +50,7 @@ import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.network.algorithms.NetworkPartitioner;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -59,7 +64,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, HasNextWakeUpTime {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -75,6 +80,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 	private static final Logger log = Logger.getLogger(AbstractQNetsimEngine.class);
 	private static final int INFO_PERIOD = 3600;
+	private static final int MIN_REBALANCING_LOAD = 2;
 
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -88,6 +94,10 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	protected final QNetwork network;
 
 	private double infoTime = 0;
+	private final int rebalancingInterval;
+	private int stepsSinceRebalancing = 0;
+	private int rebalancings = 0;
+	private long rebalancedLoad = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
 	
@@ -130,6 +140,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.rebalancingInterval = sim.getScenario().getConfig().qsim().getRunnerRebalancingInterval();
 	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -163,6 +174,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		 */
 
 		this.engines = initQSimEngineRunners();
+		if (this.qsim.getEventsManager() instanceof BatchingEventsManager) {
+			for (AbstractQNetsimEngineRunner engine : this.engines) {
+				engine.setBatchingEventsManager((BatchingEventsManager) this.qsim.getEventsManager());
+			}
+		}
 		assignNetElementActivators();
 		initMultiThreading();
 	}
@@ -186,6 +202,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		if (this.rebalancings > 0) {
+			log.info("Rebalanced the netsim engine runners " + this.rebalancings + " times, moving "
+					+ this.rebalancedLoad + " active nodes and links in total.");
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -209,6 +230,67 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 */
 	protected abstract void run(double time); 
 
+	/**
+	 * adds the events which the {@link AbstractQNetsimEngineRunner}s collected while running in batching mode to the
+	 * events of the sim step, in the order of the runners. Should be called by {@link #run(double)} after the runners
+	 * moved the nodes and after they moved the links.
+	 */
+	protected final void processEventsBatches() {
+		for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
+			EventArray batch = engine.pollEventsBatch();
+			if (batch != null) {
+				this.qsim.getEventsManager().processEvents(batch);
+			}
+		}
+	}
+
+	/**
+	 * Redistributes the active nodes and links among the {@link AbstractQNetsimEngineRunner}s every
+	 * {@link QSimConfigGroup#getRunnerRebalancingInterval()} time steps. The work of a runner is measured by
+	 * the number of its active nodes and links; nodes (together with their out-links) are moved from the busiest
+	 * to the least busy runner until the difference is small. Should be called by {@link #run(double)}
+	 * before the runners are started.
+	 */
+	protected final void rebalanceRunners() {
+		if (this.rebalancingInterval <= 0 || this.engines.size() < 2 || ++this.stepsSinceRebalancing < this.rebalancingInterval) {
+			return;
+		}
+		this.stepsSinceRebalancing = 0;
+
+		int[] loads = new int[this.engines.size()];
+		int total = 0;
+		for (int i = 0; i < loads.length; i++) {
+			AbstractQNetsimEngineRunner engine = this.engines.get(i);
+			loads[i] = engine.getNumberOfSimulatedNodes() + engine.getNumberOfSimulatedLinks();
+			total += loads[i];
+		}
+		// small differences are not worth moving nodes around
+		int tolerance = Math.max(MIN_REBALANCING_LOAD, total / loads.length / 10);
+		for (int round = 0; round < loads.length; round++) {
+			int max = 0;
+			int min = 0;
+			for (int i = 1; i < loads.length; i++) {
+				if (loads[i] > loads[max]) max = i;
+				if (loads[i] < loads[min]) min = i;
+			}
+			if (loads[max] - loads[min] <= tolerance) {
+				break;
+			}
+			int moved = this.engines.get(max).moveNodesTo(this.engines.get(min), (loads[max] - loads[min]) / 2, this.network);
+			if (moved == 0) {
+				break;
+			}
+			loads[max] -= moved;
+			loads[min] += moved;
+			this.rebalancedLoad += moved;
+			if (round == 0) this.rebalancings++;
+		}
+	}
+
+	/*package*/ final long getRebalancedLoad() {
+		return this.rebalancedLoad;
+	}
+
 	/**
 	 * create all necessary {@link AbstractQNetsimEngineRunner}. Will be called during {@link #onPrepareSim()}.
 	 * 
@@ -228,6 +310,20 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	}
 
 	
+	/**
+	 * Vehicles only move while their links and nodes are active, so the engine has nothing to do as long as the whole
+	 * network is idle.
+	 */
+	@Override
+	public final double getNextWakeUpTime(final double now) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			if (!engine.isIdle()) {
+				return now;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public final void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -389,9 +485,10 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
 
+		int[] nodeEngines = partitionNodes();
 		int roundRobin = 0;
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+			int i = nodeEngines == null ? roundRobin % this.engines.size() : nodeEngines[node.getNode().getId().index()];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -430,6 +527,26 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * @return the engine of each node, indexed by {@link Id#index()} of the node id, or null for round robin assignment
+	 */
+	private int[] partitionNodes() {
+		NodeAssignment nodeAssignment = this.qsim.getScenario().getConfig().qsim().getNodeAssignment();
+		if (this.engines.size() == 1) {
+			return null;
+		}
+		switch (nodeAssignment) {
+			case roundRobin:
+				return null;
+			case coordinateBisection:
+				return NetworkPartitioner.partition(this.network.getNetwork(), this.engines.size(), NetworkPartitioner.Method.coordinateBisection);
+			case hilbertCurve:
+				return NetworkPartitioner.partition(this.network.getNetwork(), this.engines.size(), NetworkPartitioner.Method.hilbertCurve);
+			default:
+				throw new RuntimeException("Unknown node assignment " + nodeAssignment);
+		}
+	}
+
 	private final void arrangeNextAgentState(MobsimAgent pp) {
 		internalInterface.arrangeNextAgentState(pp);
 	}
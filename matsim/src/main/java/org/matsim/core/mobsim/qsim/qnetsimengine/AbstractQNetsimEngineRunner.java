@@ -20,13 +20,23 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.mobsim.qsim.QSim;
 
 /**
@@ -50,6 +60,12 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	private final Queue<QNodeI> nodesQueue = new ConcurrentLinkedQueue<>();
 
+	/*
+	 * The size of the nodesQueue, as size() is O(n) for a ConcurrentLinkedQueue and the
+	 * number of active nodes is needed for rebalancing the runners.
+	 */
+	private final AtomicInteger numberOfSimulatedNodes = new AtomicInteger();
+
 	/*
 	 * Needs not to be thread-safe since links are only activated from nodes which
 	 * are handled (by design) from links handled by the same thread. Therefore,
@@ -70,6 +86,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * If set, the events generated while moving nodes or links are collected per runner
+	 * and added to the events of the sim step by the engine afterwards, in the order of the runners.
+	 */
+	private BatchingEventsManager batchingEvents = null;
+	private EventArray eventsBatch = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -83,6 +106,27 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 
 	public abstract void afterSim() ;
 
+	/*package*/ final void setBatchingEventsManager(final BatchingEventsManager events) {
+		this.batchingEvents = events;
+	}
+
+	protected final void startEventsBatch() {
+		if (this.batchingEvents != null) this.batchingEvents.startBatch();
+	}
+
+	protected final void endEventsBatch() {
+		if (this.batchingEvents != null) this.eventsBatch = this.batchingEvents.endBatch();
+	}
+
+	/**
+	 * @return the events collected in the last batch, or null if there are none
+	 */
+	/*package*/ final EventArray pollEventsBatch() {
+		EventArray batch = this.eventsBatch;
+		this.eventsBatch = null;
+		return batch;
+	}
+
 	protected void moveNodes() {
 		boolean remainsActive;
 		this.lockNodes = true;
@@ -91,7 +135,10 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
-			if (!remainsActive) simNodes.remove();
+			if (!remainsActive) {
+				simNodes.remove();
+				this.numberOfSimulatedNodes.decrementAndGet();
+			}
 		}
 		this.lockNodes = false;
 	}
@@ -134,19 +181,75 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	@Override
 	protected final void registerNodeAsActive(QNodeI node) {
-		if (!this.lockNodes) this.nodesQueue.add(node);
-		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		if (!this.lockNodes) {
+			this.nodesQueue.add(node);
+			this.numberOfSimulatedNodes.incrementAndGet();
+		} else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
 	}
 
-	/*
-	 * Note that the size() method is O(n) for a ConcurrentLinkedQueue as used
-	 * for the nodesQueue. However, this method is only called once every simulated
-	 * hour for the log message. Therefore, it should be okay.
-	 * cdobler, sep'14
+	/**
+	 * Hands nodes over to another runner, each of them together with all its out-links (which have to be
+	 * handled by the same runner as the node, see linksList), until about <code>maxLoad</code> active nodes
+	 * and links have been moved. Only nodes which are active or have active out-links are considered, and
+	 * nodes which are not {@link AbstractQNode}s stay where they are.
+	 * Must only be called between two time steps, i.e. while no runner is moving nodes or links.
+	 *
+	 * @return the number of active nodes and links that were moved
 	 */
+	/*package*/ final int moveNodesTo(final AbstractQNetsimEngineRunner target, final int maxLoad, final QNetwork network) {
+		// the active elements per node, i.e. the node itself and its out-links
+		Map<Id<Node>, Integer> nodeLoads = new LinkedHashMap<>();
+		for (QNodeI node : this.nodesQueue) {
+			nodeLoads.merge(node.getNode().getId(), 1, Integer::sum);
+		}
+		for (QLinkI link : this.linksList) {
+			nodeLoads.merge(link.getLink().getFromNode().getId(), 1, Integer::sum);
+		}
+
+		int load = 0;
+		Set<Id<Node>> movedNodes = new HashSet<>();
+		for (Map.Entry<Id<Node>, Integer> e : nodeLoads.entrySet()) {
+			if (load >= maxLoad) break;
+			if (load + e.getValue() > maxLoad) continue;
+			QNodeI node = network.getNetsimNodes().get(e.getKey());
+			if (!(node instanceof AbstractQNode)) continue;
+
+			((AbstractQNode) node).setNetElementActivationRegistry(target);
+			for (Id<Link> outLinkId : node.getNode().getOutLinks().keySet()) {
+				((AbstractQLink) network.getNetsimLink(outLinkId)).setNetElementActivationRegistry(target);
+			}
+			movedNodes.add(e.getKey());
+			load += e.getValue();
+		}
+
+		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
+		while (simNodes.hasNext()) {
+			QNodeI node = simNodes.next();
+			if (movedNodes.contains(node.getNode().getId())) {
+				simNodes.remove();
+				this.numberOfSimulatedNodes.decrementAndGet();
+				target.nodesQueue.add(node);
+				target.numberOfSimulatedNodes.incrementAndGet();
+			}
+		}
+		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
+		while (simLinks.hasNext()) {
+			QLinkI link = simLinks.next();
+			if (movedNodes.contains(link.getLink().getFromNode().getId())) {
+				simLinks.remove();
+				target.linksList.add(link);
+			}
+		}
+		return load;
+	}
+
+	/*package*/ final boolean isIdle() {
+		return this.nodesQueue.isEmpty() && this.linksList.isEmpty();
+	}
+
 	@Override
 	public final int getNumberOfSimulatedNodes() {
-		return this.nodesQueue.size();
+		return this.numberOfSimulatedNodes.get();
 	}
 
 	protected final void startMeasure() {
@@ -45,10 +45,15 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 			return false;
 		}
 
-		if (this.movingNodes) {
-			moveNodes();
-		} else {
-			moveLinks();
+		startEventsBatch();
+		try {
+			if (this.movingNodes) {
+				moveNodes();
+			} else {
+				moveLinks();
+			}
+		} finally {
+			endEventsBatch();
 		}
 		return true ;
 	}
@@ -19,14 +19,12 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
@@ -52,6 +50,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.flow_efficiency.FlowEfficiencyC
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.PassingVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.RingBufferVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
 import org.matsim.lanes.Lane;
 import org.matsim.vehicles.Vehicle;
@@ -132,7 +131,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>();
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Double.NEGATIVE_INFINITY ;
@@ -151,7 +150,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	 * (1) entry to the buffer (this is where it is computed and then stored) <br>
 	 * (2) update of the remaining flow capacity (where we account for all vehicles that are still in the buffer since previous time steps) - see {@link #subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer()} <br>
 	 */
-	private final Queue<Pair<QVehicle,Double>> buffer = new LinkedList<>() ;
+	private final RingBufferVehicleQ buffer = new RingBufferVehicleQ() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -173,12 +172,14 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Points to the latest vehicle that entered the buffer and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastBufferEntry = null;
+	private QVehicle lastBufferEntryVehicle = null;
+	private double lastBufferEntryTime = Double.NaN;
 
 	/**
 	 * Points to the latest vehicle that entered the queue and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastQueueEntry = null;
+	private QVehicle lastQueueEntryVehicle = null;
+	private double lastQueueEntryTime = Double.NaN;
 
 
 	private final VisData visData = new VisDataImpl() ;
@@ -224,12 +225,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 		double now = context.getSimTimer().getTimeOfDay() ;
 
-		double flowConsumption = (lastBufferEntry == null) ?
-				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntry.getKey(), now - lastBufferEntry.getValue());
+		double flowConsumption = (lastBufferEntryVehicle == null) ?
+				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntryVehicle, now - lastBufferEntryTime);
         this.flowcap_accumulate.addValue(-flowConsumption, now);
 
-		buffer.add(new ImmutablePair<>(veh,flowConsumption));
-		lastBufferEntry = new ImmutablePair<>(veh,now);
+		buffer.offer(veh,flowConsumption);
+		lastBufferEntryVehicle = veh;
+		lastBufferEntryTime = now;
 
 		if (buffer.size() == 1) {
 			bufferLastMovedTime = now;
@@ -353,9 +355,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private double subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer() {
 		double remainingFlowCapThisTimeStep = flowCapacityPerTimeStep;
-		for (Pair<QVehicle,Double> vehEfficiencyPair : buffer) {
+		for (int i = 0; i < buffer.size(); i++) {
 			// Subtract size of vehicles that are already in the buffer (from previous time steps)
-			remainingFlowCapThisTimeStep -= vehEfficiencyPair.getValue();
+			remainingFlowCapThisTimeStep -= buffer.getValue(i);
 		}
 		return remainingFlowCapThisTimeStep;
 	}
@@ -571,15 +573,16 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
                 break;
             case kinematicWaves:
                 this.remainingHolesStorageCapacity -= veh.getSizeInEquivalents();
-				double flowConsumption = (lastQueueEntry == null) ?
-						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntry.getKey(), now - lastQueueEntry.getValue());
+				double flowConsumption = (lastQueueEntryVehicle == null) ?
+						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntryVehicle, now - lastQueueEntryTime);
                 this.accumulatedInflowCap -= flowConsumption;
                 break;
             default:
                 throw new RuntimeException("The traffic dynamics " + context.qsimConfig.getTrafficDynamics() + " is not implemented yet.");
 		}
 
-		lastQueueEntry = new ImmutablePair<>(veh, now);
+		lastQueueEntryVehicle = veh;
+		lastQueueEntryTime = now;
 	}
 
 	private void removeVehicleFromQueue(final QVehicle veh2Remove) {
@@ -710,9 +713,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			if (veh.getId().equals(vehicleId))
 				return veh;
 		}
-		for (Pair<QVehicle,Double> vehEfficiencyPair : this.buffer) {
-			if (vehEfficiencyPair.getKey().getId().equals(vehicleId))
-				return vehEfficiencyPair.getKey();
+		for (int i = 0; i < this.buffer.size(); i++) {
+			if (this.buffer.get(i).getId().equals(vehicleId))
+				return this.buffer.get(i);
 		}
 		return null;
 	}
@@ -723,8 +726,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		 * It will be more complicated for passingQueue. amit feb'16
 		 */
 		Collection<MobsimVehicle> vehicles = new ArrayList<>();
-		for (Pair<QVehicle, Double> pair : buffer) {
-			vehicles.add(pair.getKey());
+		for (int i = 0; i < buffer.size(); i++) {
+			vehicles.add(buffer.get(i));
 		}
 		vehicles.addAll(vehQueue);
 		return vehicles ;
@@ -744,7 +747,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private final QVehicle removeFirstVehicle(){
 		double now = context.getSimTimer().getTimeOfDay() ;
-		QVehicle veh = buffer.poll().getKey();
+		QVehicle veh = buffer.poll();
 		bufferLastMovedTime = now; // just in case there is another vehicle in the buffer that is now the new front-most
 		if( context.qsimConfig.isUsingFastCapacityUpdate() ) {
 			flowcap_accumulate.setTimeStep(now - context.qsimConfig.getTimeStepSize());
@@ -805,8 +808,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 		vehQueue.clear();
 
-		for (Pair<QVehicle,Double> bufferEntry : buffer) {
-			QVehicle veh = bufferEntry.getKey();
+		for (int i = 0; i < buffer.size(); i++) {
+			QVehicle veh = buffer.get(i);
 			context.getEventsManager().processEvent( new VehicleAbortsEvent(now, veh.getId(), veh.getCurrentLink().getId()));
 			context.getEventsManager().processEvent( new PersonStuckEvent(now, veh.getDriver().getId(), veh.getCurrentLink().getId(), veh.getDriver().getMode()));
 
@@ -842,7 +845,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		if (this.buffer.isEmpty()) {
 			return this.vehQueue.peek();
 		}
-		return this.buffer.peek().getKey() ;
+		return this.buffer.peek() ;
 	}
 
 	@Override
@@ -0,0 +1,225 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.AbstractQueue;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+
+/**
+ * First-in-first-out vehicle queue like {@link FIFOVehicleQ}, but backed by a growing ring buffer instead of a linked list,
+ * so that adding and removing vehicles does not allocate anything once the queue has reached its maximal size.
+ * <p>
+ * Can be used with {@link org.matsim.core.mobsim.qsim.qnetsimengine.ConfigurableQNetworkFactory#setVehicleQFactory}:
+ * <pre>
+ * factory.setVehicleQFactory(RingBufferVehicleQ::new);
+ * </pre>
+ * Additionally, a value can be kept with each vehicle, see {@link #offer(QVehicle, double)}. This is used for the flow
+ * capacity consumption of the vehicles in the buffer of a link.
+ */
+public final class RingBufferVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle> {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private QVehicle[] vehicles = new QVehicle[INITIAL_CAPACITY];
+	/** the values of the vehicles at the same indices, <code>null</code> until a vehicle is added with a value */
+	private double[] values = null;
+	/** index of the first vehicle */
+	private int head = 0;
+	private int size = 0;
+	private int modCount = 0;
+
+	@Override
+	public boolean offer(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		ensureCapacity();
+		this.vehicles[index(this.size)] = e;
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	/**
+	 * Adds a vehicle at the end of the queue together with a value, which can be read with {@link #getValue(int)}
+	 * while the vehicle is in the queue. Vehicles added without a value have the value 0.
+	 */
+	public boolean offer(QVehicle e, double value) {
+		offer(e);
+		if (this.values == null) {
+			this.values = new double[this.vehicles.length];
+		}
+		this.values[index(this.size - 1)] = value;
+		return true;
+	}
+
+	@Override
+	public void addFirst(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		ensureCapacity();
+		this.head = (this.head - 1) & (this.vehicles.length - 1);
+		this.vehicles[this.head] = e;
+		if (this.values != null) {
+			this.values[this.head] = 0;
+		}
+		this.size++;
+		this.modCount++;
+	}
+
+	/**
+	 * @return the i-th vehicle of the queue, where 0 is the first one
+	 */
+	public QVehicle get(int i) {
+		checkIndex(i);
+		return this.vehicles[index(i)];
+	}
+
+	/**
+	 * @return the value of the i-th vehicle of the queue, see {@link #offer(QVehicle, double)}
+	 */
+	public double getValue(int i) {
+		checkIndex(i);
+		return this.values == null ? 0 : this.values[index(i)];
+	}
+
+	@Override
+	public QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[this.head];
+	}
+
+	@Override
+	public QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle vehicle = this.vehicles[this.head];
+		this.vehicles[this.head] = null;
+		this.head = (this.head + 1) & (this.vehicles.length - 1);
+		this.size--;
+		this.modCount++;
+		return vehicle;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.vehicles[index(i)] = null;
+		}
+		this.head = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<QVehicle> iterator() {
+		return new Iterator<QVehicle>() {
+			private int next = 0;
+			private int expectedModCount = RingBufferVehicleQ.this.modCount;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return this.next < RingBufferVehicleQ.this.size;
+			}
+
+			@Override
+			public QVehicle next() {
+				checkForComodification();
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				this.canRemove = true;
+				return RingBufferVehicleQ.this.vehicles[index(this.next++)];
+			}
+
+			@Override
+			public void remove() {
+				checkForComodification();
+				if (!this.canRemove) {
+					throw new IllegalStateException();
+				}
+				this.canRemove = false;
+				removeAt(--this.next);
+				this.expectedModCount = RingBufferVehicleQ.this.modCount;
+			}
+
+			private void checkForComodification() {
+				if (this.expectedModCount != RingBufferVehicleQ.this.modCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Removes the i-th vehicle of the queue by moving the following vehicles one position forward.
+	 */
+	private void removeAt(int i) {
+		for (int j = i; j < this.size - 1; j++) {
+			this.vehicles[index(j)] = this.vehicles[index(j + 1)];
+			if (this.values != null) {
+				this.values[index(j)] = this.values[index(j + 1)];
+			}
+		}
+		this.vehicles[index(this.size - 1)] = null;
+		this.size--;
+		this.modCount++;
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+		}
+	}
+
+	private int index(int i) {
+		return (this.head + i) & (this.vehicles.length - 1);
+	}
+
+	private void ensureCapacity() {
+		if (this.size < this.vehicles.length) {
+			return;
+		}
+		// the capacity stays a power of two, so that indices can be wrapped with a bit mask
+		QVehicle[] grown = new QVehicle[this.vehicles.length * 2];
+		double[] grownValues = this.values == null ? null : new double[grown.length];
+		for (int i = 0; i < this.size; i++) {
+			grown[i] = this.vehicles[index(i)];
+			if (grownValues != null) {
+				grownValues[i] = this.values[index(i)];
+			}
+		}
+		this.vehicles = grown;
+		this.values = grownValues;
+		this.head = 0;
+	}
+
+}
@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the nodes of a network into a given number of spatially compact parts, e.g. to assign them to the
+ * threads of a parallel mobsim so that neighbouring nodes are handled by the same thread. Every node is weighted
+ * with one plus the number of its out-links, i.e. the net elements a mobsim typically handles together with the node,
+ * and the parts have about the same weight.
+ * <p>
+ * Both methods only use the node coordinates: {@link Method#coordinateBisection} recursively cuts the node set
+ * orthogonal to the longer side of its bounding box, {@link Method#hilbertCurve} orders the nodes along a Hilbert
+ * curve and cuts the curve into consecutive pieces. Ties are broken by node id, so the result is deterministic.
+ */
+public final class NetworkPartitioner {
+
+	public enum Method { coordinateBisection, hilbertCurve }
+
+	/** number of bits per axis of the grid the Hilbert curve runs through */
+	private static final int HILBERT_ORDER = 16;
+
+	private NetworkPartitioner() {
+	}
+
+	/**
+	 * @return the part (between 0 and <code>numberOfParts</code> - 1) of each node, indexed by {@link Id#index()}
+	 * of the node id.
+	 */
+	public static int[] partition(final Network network, final int numberOfParts, final Method method) {
+		if (numberOfParts < 1) {
+			throw new IllegalArgumentException("numberOfParts must be positive, but is " + numberOfParts);
+		}
+		int[] nodeParts = new int[Id.getNumberOfIds(Node.class)];
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		switch (method) {
+			case coordinateBisection:
+				bisect(nodes, 0, numberOfParts, nodeParts);
+				break;
+			case hilbertCurve:
+				sortAlongHilbertCurve(nodes);
+				split(nodes, 0, numberOfParts, nodeParts);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported partitioning method: " + method);
+		}
+		return nodeParts;
+	}
+
+	private static void bisect(List<Node> nodes, int firstPart, int parts, int[] nodeParts) {
+		if (parts == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				nodeParts[node.getId().index()] = firstPart;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+		}
+		Comparator<Node> byId = Comparator.comparingInt(node -> node.getId().index());
+		if (maxX - minX >= maxY - minY) {
+			nodes.sort(Comparator.comparingDouble((Node node) -> node.getCoord().getX()).thenComparing(byId));
+		} else {
+			nodes.sort(Comparator.comparingDouble((Node node) -> node.getCoord().getY()).thenComparing(byId));
+		}
+		int lowerParts = parts / 2;
+		int cut = cutIndex(nodes, (double) lowerParts / parts);
+		bisect(new ArrayList<>(nodes.subList(0, cut)), firstPart, lowerParts, nodeParts);
+		bisect(new ArrayList<>(nodes.subList(cut, nodes.size())), firstPart + lowerParts, parts - lowerParts, nodeParts);
+	}
+
+	/**
+	 * Assigns consecutive pieces of the sorted nodes to the parts.
+	 */
+	private static void split(List<Node> nodes, int firstPart, int parts, int[] nodeParts) {
+		long totalWeight = 0;
+		for (Node node : nodes) {
+			totalWeight += weight(node);
+		}
+		long weight = 0;
+		for (Node node : nodes) {
+			int part = (int) Math.min(parts - 1, weight * parts / Math.max(1, totalWeight));
+			nodeParts[node.getId().index()] = firstPart + part;
+			weight += weight(node);
+		}
+	}
+
+	/**
+	 * @return the index of the first node of the upper part, such that the nodes before have the given share of the weight
+	 */
+	private static int cutIndex(List<Node> nodes, double share) {
+		long totalWeight = 0;
+		for (Node node : nodes) {
+			totalWeight += weight(node);
+		}
+		long weight = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			if (weight >= share * totalWeight) {
+				return i;
+			}
+			weight += weight(nodes.get(i));
+		}
+		return nodes.size();
+	}
+
+	private static int weight(Node node) {
+		return 1 + node.getOutLinks().size();
+	}
+
+	private static void sortAlongHilbertCurve(List<Node> nodes) {
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+		}
+		// use the same scale on both axes so that the curve is not distorted
+		double extent = Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+		int cells = 1 << HILBERT_ORDER;
+		long[] keys = new long[Id.getNumberOfIds(Node.class)];
+		for (Node node : nodes) {
+			int x = (int) Math.min(cells - 1, (node.getCoord().getX() - minX) / extent * cells);
+			int y = (int) Math.min(cells - 1, (node.getCoord().getY() - minY) / extent * cells);
+			keys[node.getId().index()] = hilbertIndex(x, y, cells);
+		}
+		nodes.sort(Comparator.comparingLong((Node node) -> keys[node.getId().index()]).thenComparingInt(node -> node.getId().index()));
+	}
+
+	/**
+	 * @return the distance of cell (x, y) along the Hilbert curve through a grid of <code>cells</code> x <code>cells</code>
+	 */
+	static long hilbertIndex(int x, int y, int cells) {
+		long d = 0;
+		for (int s = cells / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = cells - 1 - x;
+					y = cells - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
@@ -0,0 +1,421 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Plan} which keeps its plan elements encoded in two primitive arrays instead of activity, leg and route
+ * objects, meant for the non-selected plans of large populations. Activity types and modes are stored as indices into
+ * a {@link Dictionary} shared by the compact plans of a population, link, facility and vehicle ids by their {@link Id#index()}, times as
+ * doubles (<code>NaN</code> if undefined) and network routes as runs of link indices. Attributes of activities and legs,
+ * e.g. the routing mode, are encoded as well as long as all their values are strings.
+ * <p>
+ * Score, type, person and attributes are available without decoding. The first access to the plan elements decodes
+ * them into regular activities and legs, after which the plan behaves like any other plan. Routes which are not link
+ * network routes are kept as objects.
+ *
+ * @see PopulationUtils#compactUnselectedPlans(org.matsim.api.core.v01.population.Population)
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final int ACTIVITY = 0;
+	private static final int LEG = 1;
+
+	private static final int NO_ROUTE = 0;
+	private static final int NETWORK_ROUTE = 1;
+	private static final int OBJECT_ROUTE = 2;
+
+	private static final int NO_ID = -1;
+	private static final String NETWORK_ROUTE_TYPE = RouteUtils.createLinkNetworkRouteImpl(null, null).getRouteType();
+
+	private final Dictionary dictionary;
+	private Double score;
+	private Person person;
+	private String type;
+	private Attributes attributes;
+	private Map<String, Object> customAttributes;
+
+	private int countElements;
+	private int[] ints;
+	private double[] doubles;
+	private Object[] routes;
+	private volatile ArrayList<PlanElement> planElements = null;
+
+	private CompactPlan(Plan plan, Dictionary dictionary) {
+		this.dictionary = dictionary;
+		this.score = plan.getScore();
+		this.person = plan.getPerson();
+		this.type = plan.getType();
+		if (plan.getAttributes().size() > 0) {
+			this.attributes = plan.getAttributes();
+		}
+		if (!plan.getCustomAttributes().isEmpty()) {
+			this.customAttributes = plan.getCustomAttributes();
+		}
+		encode(plan.getPlanElements());
+	}
+
+	/**
+	 * @return a compact copy of the plan, or <code>null</code> if its plan elements cannot be encoded without losing
+	 * information, i.e. if they have non-string attributes or are neither activities nor legs.
+	 */
+	static CompactPlan create(Plan plan, Dictionary dictionary) {
+		return isEncodable(plan.getPlanElements()) ? new CompactPlan(plan, dictionary) : null;
+	}
+
+	/**
+	 * Encodes the plan elements again after they have been decoded.
+	 *
+	 * @return <code>false</code> if the plan elements cannot be encoded and were left untouched.
+	 */
+	synchronized boolean compact() {
+		ArrayList<PlanElement> elements = this.planElements;
+		if (elements == null) {
+			return true;
+		}
+		if (!isEncodable(elements)) {
+			return false;
+		}
+		encode(elements);
+		this.planElements = null;
+		return true;
+	}
+
+	boolean isCompact() {
+		return this.planElements == null;
+	}
+
+	private static boolean isEncodable(List<PlanElement> elements) {
+		for (PlanElement pe : elements) {
+			if (!(pe instanceof Activity || pe instanceof Leg)) {
+				return false;
+			}
+			for (Object value : pe.getAttributes().getAsMap().values()) {
+				if (!(value instanceof String)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void encode(List<PlanElement> elements) {
+		int countInts = 0;
+		int countDoubles = 0;
+		int countRoutes = 0;
+		for (PlanElement pe : elements) {
+			countInts += 1 + 2 * pe.getAttributes().size();
+			if (pe instanceof Activity) {
+				countInts += 4;
+				countDoubles += 6;
+			} else {
+				Route route = ((Leg) pe).getRoute();
+				countInts += 3;
+				countDoubles += 2;
+				if (isNetworkRoute(route)) {
+					countInts += 4 + ((NetworkRoute) route).getLinkIds().size();
+					countDoubles += 3;
+				} else if (route != null) {
+					countInts++;
+					countRoutes++;
+				}
+			}
+		}
+		int[] ints = new int[countInts];
+		double[] doubles = new double[countDoubles];
+		Object[] routes = countRoutes == 0 ? null : new Object[countRoutes];
+		int i = 0;
+		int d = 0;
+		int r = 0;
+		for (PlanElement pe : elements) {
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				ints[i++] = ACTIVITY;
+				ints[i++] = getDictionaryIndex(act.getType());
+				ints[i++] = act.getLinkId() == null ? NO_ID : act.getLinkId().index();
+				ints[i++] = act.getFacilityId() == null ? NO_ID : act.getFacilityId().index();
+				Coord coord = act.getCoord();
+				doubles[d++] = coord == null ? Double.NaN : coord.getX();
+				doubles[d++] = coord == null ? Double.NaN : coord.getY();
+				doubles[d++] = coord == null || !coord.hasZ() ? Double.NaN : coord.getZ();
+				doubles[d++] = encode(act.getStartTime());
+				doubles[d++] = encode(act.getEndTime());
+				doubles[d++] = encode(act.getMaximumDuration());
+			} else {
+				Leg leg = (Leg) pe;
+				Route route = leg.getRoute();
+				ints[i++] = LEG;
+				ints[i++] = getDictionaryIndex(leg.getMode());
+				doubles[d++] = encode(leg.getDepartureTime());
+				doubles[d++] = encode(leg.getTravelTime());
+				if (isNetworkRoute(route)) {
+					NetworkRoute networkRoute = (NetworkRoute) route;
+					ints[i++] = NETWORK_ROUTE;
+					ints[i++] = networkRoute.getStartLinkId() == null ? NO_ID : networkRoute.getStartLinkId().index();
+					ints[i++] = networkRoute.getEndLinkId() == null ? NO_ID : networkRoute.getEndLinkId().index();
+					ints[i++] = networkRoute.getVehicleId() == null ? NO_ID : networkRoute.getVehicleId().index();
+					List<Id<Link>> linkIds = networkRoute.getLinkIds();
+					ints[i++] = linkIds.size();
+					for (Id<Link> linkId : linkIds) {
+						ints[i++] = linkId.index();
+					}
+					doubles[d++] = networkRoute.getDistance();
+					doubles[d++] = encode(networkRoute.getTravelTime());
+					doubles[d++] = networkRoute.getTravelCost();
+				} else if (route != null) {
+					ints[i++] = OBJECT_ROUTE;
+					ints[i++] = r;
+					routes[r++] = route;
+				} else {
+					ints[i++] = NO_ROUTE;
+				}
+			}
+			ints[i++] = pe.getAttributes().size();
+			for (Map.Entry<String, Object> e : pe.getAttributes().getAsMap().entrySet()) {
+				ints[i++] = getDictionaryIndex(e.getKey());
+				ints[i++] = getDictionaryIndex((String) e.getValue());
+			}
+		}
+		this.countElements = elements.size();
+		this.ints = ints;
+		this.doubles = doubles;
+		this.routes = routes;
+	}
+
+	private synchronized ArrayList<PlanElement> decode() {
+		if (this.planElements != null) {
+			return this.planElements;
+		}
+		int[] ints = this.ints;
+		double[] doubles = this.doubles;
+		ArrayList<PlanElement> elements = new ArrayList<>(this.countElements);
+		int i = 0;
+		int d = 0;
+		while (i < ints.length) {
+			PlanElement pe;
+			if (ints[i++] == ACTIVITY) {
+				String actType = getDictionaryValue(ints[i++]);
+				int linkIndex = ints[i++];
+				int facilityIndex = ints[i++];
+				double x = doubles[d++];
+				double y = doubles[d++];
+				double z = doubles[d++];
+				Activity act = PopulationUtils.createActivityFromLinkId(actType, linkIndex == NO_ID ? null : Id.get(linkIndex, Link.class));
+				if (!Double.isNaN(x)) {
+					act.setCoord(Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z));
+				}
+				if (facilityIndex != NO_ID) {
+					act.setFacilityId(Id.get(facilityIndex, ActivityFacility.class));
+				}
+				decode(doubles[d++]).ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+				decode(doubles[d++]).ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+				decode(doubles[d++]).ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+				pe = act;
+			} else {
+				Leg leg = PopulationUtils.createLeg(getDictionaryValue(ints[i++]));
+				decode(doubles[d++]).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+				decode(doubles[d++]).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+				int routeType = ints[i++];
+				if (routeType == NETWORK_ROUTE) {
+					Id<Link> startLinkId = getId(ints[i++], Link.class);
+					Id<Link> endLinkId = getId(ints[i++], Link.class);
+					Id<Vehicle> vehicleId = getId(ints[i++], Vehicle.class);
+					int countLinks = ints[i++];
+					List<Id<Link>> linkIds = new ArrayList<>(countLinks);
+					for (int l = 0; l < countLinks; l++) {
+						linkIds.add(Id.get(ints[i++], Link.class));
+					}
+					NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+					route.setVehicleId(vehicleId);
+					route.setDistance(doubles[d++]);
+					decode(doubles[d++]).ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+					route.setTravelCost(doubles[d++]);
+					leg.setRoute(route);
+				} else if (routeType == OBJECT_ROUTE) {
+					leg.setRoute((Route) this.routes[ints[i++]]);
+				}
+				pe = leg;
+			}
+			int countAttributes = ints[i++];
+			for (int a = 0; a < countAttributes; a++) {
+				String name = getDictionaryValue(ints[i++]);
+				pe.getAttributes().putAttribute(name, getDictionaryValue(ints[i++]));
+			}
+			elements.add(pe);
+		}
+		this.ints = null;
+		this.doubles = null;
+		this.routes = null;
+		this.planElements = elements;
+		return elements;
+	}
+
+	private static boolean isNetworkRoute(Route route) {
+		return route instanceof NetworkRoute && NETWORK_ROUTE_TYPE.equals(route.getRouteType());
+	}
+
+	private static double encode(OptionalTime time) {
+		return time.isDefined() ? time.seconds() : Double.NaN;
+	}
+
+	private static OptionalTime decode(double time) {
+		return Double.isNaN(time) ? OptionalTime.undefined() : OptionalTime.defined(time);
+	}
+
+	private static <T> Id<T> getId(int index, Class<T> type) {
+		return index == NO_ID ? null : Id.get(index, type);
+	}
+
+	private int getDictionaryIndex(String value) {
+		return this.dictionary.getIndex(value);
+	}
+
+	private String getDictionaryValue(int index) {
+		return this.dictionary.getValue(index);
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		ArrayList<PlanElement> elements = this.planElements;
+		return elements == null ? decode() : elements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customAttributes == null) {
+			Customizable customizable = CustomizableUtils.createCustomizable();
+			this.customAttributes = customizable.getCustomAttributes();
+		}
+		return this.customAttributes;
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = this.score == null ? "undefined" : this.score.toString();
+		String personIdString = this.person == null ? "undefined" : this.person.getId().toString();
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + (isCompact() ? this.countElements : this.planElements.size()) + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	/**
+	 * The strings of the compact plans of one population, e.g. activity types, modes and attribute values. Looking up a
+	 * string by its index does not lock: new strings are added under a lock and the array of all strings is published
+	 * through a volatile field afterwards.
+	 */
+	static final class Dictionary {
+
+		private final Map<String, Integer> indices = new HashMap<>();
+		private volatile String[] values = new String[16];
+
+		synchronized int getIndex(String value) {
+			Integer index = this.indices.get(value);
+			if (index == null) {
+				index = this.indices.size();
+				String[] values = this.values;
+				if (index == values.length) {
+					values = Arrays.copyOf(values, 2 * index);
+				}
+				values[index] = value;
+				this.values = values;
+				this.indices.put(value, index);
+			}
+			return index;
+		}
+
+		String getValue(int index) {
+			return this.values[index];
+		}
+
+	}
+}
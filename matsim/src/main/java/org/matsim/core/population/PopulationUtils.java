@@ -55,6 +55,8 @@ import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.io.BinaryPopulationFormat;
+import org.matsim.core.population.io.BinaryPopulationReader;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
@@ -812,6 +814,46 @@ public final class PopulationUtils {
 		return getFactory().createPlan() ;
 	}
 
+	/**
+	 * Replaces the non-selected plans of all persons by compact plans which store their activities, legs and network
+	 * routes in primitive arrays, and re-compacts compact plans whose plan elements were accessed in the meantime.
+	 * The plans are decoded transparently when their plan elements are accessed, so the population can be used as
+	 * before; only the identity of the replaced plan objects changes. Plans with elements that cannot be encoded
+	 * without loss (e.g. non-string attributes) are left untouched. The plans compacted by one call share a dictionary
+	 * of their activity types, modes and attribute values.
+	 *
+	 * @return the number of compact plans in the population
+	 */
+	public static int compactUnselectedPlans(Population population) {
+		return compactUnselectedPlans(population, new CompactPlan.Dictionary());
+	}
+
+	@SuppressWarnings("unchecked")
+	static int compactUnselectedPlans(Population population, CompactPlan.Dictionary dictionary) {
+		int count = 0;
+		for (Person person : population.getPersons().values()) {
+			List<? extends Plan> plans = person.getPlans();
+			for (int i = 0; i < plans.size(); i++) {
+				Plan plan = plans.get(i);
+				if (plan == person.getSelectedPlan()) {
+					continue;
+				}
+				if (plan instanceof CompactPlan) {
+					if (((CompactPlan) plan).compact()) {
+						count++;
+					}
+				} else {
+					CompactPlan compactPlan = CompactPlan.create(plan, dictionary);
+					if (compactPlan != null) {
+						((List<Plan>) plans).set(i, compactPlan);
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
 	public static Activity createActivityFromLinkId(String type, Id<Link> linkId) {
 		return getFactory().createActivityFromLinkId(type, linkId) ;
 	}
@@ -1147,7 +1189,11 @@ public final class PopulationUtils {
 	public static void readPopulation( Population population, String filename ) {
 		MutableScenario scenario = ScenarioUtils.createMutableScenario( ConfigUtils.createConfig() ) ;
 		scenario.setPopulation( population );
-		new PopulationReader( scenario ).readFile( filename );
+		if ( BinaryPopulationFormat.isBinaryPopulationFile( filename ) ) {
+			new BinaryPopulationReader( scenario ).readFile( filename );
+		} else {
+			new PopulationReader( scenario ).readFile( filename );
+		}
 		// (yyyy population reader uses network to retrofit some missing geo information such as route lenth.
 		// In my opinion, that should be done in prepareForSim, not in the parser.  It is commented as such
 		// in the PopulationReader class.  kai, nov'18)
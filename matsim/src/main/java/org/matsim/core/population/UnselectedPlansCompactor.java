@@ -0,0 +1,49 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * UnselectedPlansCompactor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+
+import com.google.inject.Inject;
+
+/**
+ * Compacts the non-selected plans after replanning, see {@link PopulationUtils#compactUnselectedPlans(Population)}.
+ * All compact plans of the population share the dictionary of this listener.
+ */
+/* deliberately package */ class UnselectedPlansCompactor implements BeforeMobsimListener {
+
+	private static final Logger log = Logger.getLogger(UnselectedPlansCompactor.class);
+
+	@Inject
+	private Population population;
+
+	private final CompactPlan.Dictionary dictionary = new CompactPlan.Dictionary();
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		int count = PopulationUtils.compactUnselectedPlans(this.population, this.dictionary);
+		log.info("number of compact non-selected plans: " + count);
+	}
+
+}
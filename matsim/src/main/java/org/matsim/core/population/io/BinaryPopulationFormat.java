@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.matsim.core.utils.misc.OptionalTime;
+
+/**
+ * Constants and low-level encodings of the binary population format, which is written by {@link BinaryPopulationWriter}
+ * and read by {@link BinaryPopulationReader}. The format is meant for snapshots of a population that have to be
+ * loaded quickly, e.g. when a run is restarted; the xml format remains the format for exchanging populations.
+ * <p>
+ * The file starts with a magic number and the version of the format, followed by the population and its persons
+ * with all their plans, scores, routes and attributes. Strings that repeat a lot (activity types, modes, attribute
+ * names) and the ids of links, facilities and vehicles are stored once in a dictionary and afterwards referenced by
+ * their index. Integers and times are stored as variable-length integers, so most of them need one to three bytes.
+ * <p>
+ * Files in this format have names ending with {@value #FILE_SUFFIX}, optionally followed by the suffix of one of
+ * the compressions supported by {@link org.matsim.core.utils.io.IOUtils}, e.g. <code>output_plans.pop.bin.gz</code>.
+ */
+public final class BinaryPopulationFormat {
+
+	public static final String FILE_SUFFIX = ".pop.bin";
+
+	private static final String[] COMPRESSION_SUFFIXES = {".gz", ".lz4", ".bz2", ".zst"};
+
+	/** "MPOP" */
+	static final int MAGIC = 0x4d504f50;
+	static final int VERSION = 1;
+
+	static final byte ACTIVITY = 1;
+	static final byte LEG = 2;
+
+	static final byte NO_ROUTE = 0;
+	static final byte NETWORK_ROUTE = 1;
+	static final byte GENERIC_ROUTE = 2;
+
+	static final byte NO_COORD = 0;
+	static final byte COORD_XY = 1;
+	static final byte COORD_XYZ = 2;
+
+	static final byte ATTRIBUTE_STRING = 0;
+	static final byte ATTRIBUTE_INTEGER = 1;
+	static final byte ATTRIBUTE_DOUBLE = 2;
+	static final byte ATTRIBUTE_BOOLEAN = 3;
+	static final byte ATTRIBUTE_LONG = 4;
+	static final byte ATTRIBUTE_CONVERTED = 5;
+
+	private static final long TIME_UNDEFINED = 0;
+	private static final long TIME_AS_DOUBLE = 1;
+	private static final long TIME_OFFSET = 2;
+	private static final double MAX_INTEGRAL_TIME = 1e15;
+
+	private BinaryPopulationFormat() {
+	}
+
+	/**
+	 * @return <code>true</code> if the file name has the suffix of the binary population format, possibly compressed
+	 */
+	public static boolean isBinaryPopulationFile(final String filename) {
+		String name = filename.toLowerCase(Locale.ROOT);
+		for (String compressionSuffix : COMPRESSION_SUFFIXES) {
+			if (name.endsWith(compressionSuffix)) {
+				name = name.substring(0, name.length() - compressionSuffix.length());
+				break;
+			}
+		}
+		return name.endsWith(FILE_SUFFIX);
+	}
+
+	static void writeVarLong(final DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(final DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length integer.");
+	}
+
+	static void writeVarInt(final DataOutput out, final int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	static int readVarInt(final DataInput in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	/** zig-zag encoding, so small negative values need as few bytes as small positive ones */
+	static void writeSignedVarLong(final DataOutput out, final long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	static long readSignedVarLong(final DataInput in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Times are mostly full seconds and are then stored as variable-length integer, other values as double.
+	 */
+	static void writeTime(final DataOutput out, final OptionalTime time) throws IOException {
+		if (time.isUndefined()) {
+			writeVarLong(out, TIME_UNDEFINED);
+			return;
+		}
+		double seconds = time.seconds();
+		if (seconds >= 0 && seconds < MAX_INTEGRAL_TIME && seconds == Math.rint(seconds)) {
+			writeVarLong(out, (long) seconds + TIME_OFFSET);
+		} else {
+			writeVarLong(out, TIME_AS_DOUBLE);
+			out.writeDouble(seconds);
+		}
+	}
+
+	static OptionalTime readTime(final DataInput in) throws IOException {
+		long value = readVarLong(in);
+		if (value == TIME_UNDEFINED) {
+			return OptionalTime.undefined();
+		}
+		if (value == TIME_AS_DOUBLE) {
+			return OptionalTime.defined(in.readDouble());
+		}
+		return OptionalTime.defined(value - TIME_OFFSET);
+	}
+
+	/**
+	 * Writes a string that may be <code>null</code> as length + 1, followed by its UTF-8 bytes.
+	 */
+	static void writeString(final DataOutput out, final String value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	static String readString(final DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length == 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length - 1];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,375 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import static org.matsim.core.population.io.BinaryPopulationFormat.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a population in the binary population format described in {@link BinaryPopulationFormat} and adds its
+ * persons to the population of the scenario. The coordinate reference systems are handled in the same way as by
+ * {@link PopulationReader}: a CRS stored in the population attributes of the file takes precedence over the given
+ * input CRS.
+ *
+ * @see BinaryPopulationWriter
+ */
+public final class BinaryPopulationReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryPopulationReader.class);
+
+	private final String externalInputCRS;
+	private final String targetCRS;
+	private final Population population;
+	private final PopulationFactory factory;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	private DataInputStream in = null;
+	private Dictionary<String> strings = null;
+	private Dictionary<Id<Link>> linkIds = null;
+	private Dictionary<Id<ActivityFacility>> facilityIds = null;
+	private Dictionary<Id<Vehicle>> vehicleIds = null;
+
+	public BinaryPopulationReader(final Scenario scenario) {
+		this(null, null, scenario);
+	}
+
+	public BinaryPopulationReader(final String inputCRS, final String targetCRS, final Scenario scenario) {
+		this.externalInputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.population = scenario.getPopulation();
+		this.factory = this.population.getFactory();
+		if (targetCRS != null && inputCRS != null) {
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
+		}
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to read binary population from file " + filename + " ...");
+		parse(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename)));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("starting to read binary population from url " + url + " ...");
+		parse(IOUtils.getInputStream(url));
+	}
+
+	/**
+	 * Reads the population from the input stream and closes it.
+	 */
+	public void parse(final InputStream inputStream) {
+		this.strings = new Dictionary<>(String::intern);
+		this.linkIds = new Dictionary<>(id -> Id.create(id, Link.class));
+		this.facilityIds = new Dictionary<>(id -> Id.create(id, ActivityFacility.class));
+		this.vehicleIds = new Dictionary<>(id -> Id.create(id, Vehicle.class));
+		Counter counter = new Counter("[" + this.getClass().getSimpleName() + "] read person # ");
+		try (DataInputStream dataIn = new DataInputStream(inputStream)) {
+			this.in = dataIn;
+			if (dataIn.readInt() != MAGIC) {
+				throw new IOException("The data is not in the binary population format.");
+			}
+			int version = readVarInt(dataIn);
+			if (version != VERSION) {
+				throw new IOException("Unsupported version " + version + " of the binary population format.");
+			}
+			this.population.setName(readString(dataIn));
+			readAttributes(this.population.getAttributes());
+			initCoordinateTransformation();
+
+			int numberOfPersons = readVarInt(dataIn);
+			for (int i = 0; i < numberOfPersons; i++) {
+				this.population.addPerson(readPerson());
+				counter.incCounter();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			counter.printCounter();
+			this.in = null;
+			this.strings = null;
+			this.linkIds = null;
+			this.facilityIds = null;
+			this.vehicleIds = null;
+		}
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.population, this.targetCRS);
+		}
+	}
+
+	/**
+	 * Same as in the population_v6 reader: the CRS stored in the file wins over the one given from outside.
+	 */
+	private void initCoordinateTransformation() {
+		String inputCRS = ProjectionUtils.getCRS(this.population);
+		if (inputCRS != null && this.targetCRS != null) {
+			if (this.externalInputCRS != null) {
+				log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+			}
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, this.targetCRS);
+		}
+	}
+
+	private Person readPerson() throws IOException {
+		Person person = this.factory.createPerson(Id.create(readString(this.in), Person.class));
+		readAttributes(person.getAttributes());
+		int numberOfPlans = readVarInt(this.in);
+		int selectedIndex = readVarInt(this.in) - 1;
+		for (int i = 0; i < numberOfPlans; i++) {
+			Plan plan = readPlan();
+			person.addPlan(plan);
+			if (i == selectedIndex) {
+				person.setSelectedPlan(plan);
+			}
+		}
+		return person;
+	}
+
+	private Plan readPlan() throws IOException {
+		Plan plan = this.factory.createPlan();
+		if (this.in.readBoolean()) {
+			plan.setScore(this.in.readDouble());
+		}
+		String type = this.strings.read(this.in);
+		if (type != null) {
+			plan.setType(type);
+		}
+		readAttributes(plan.getAttributes());
+		int numberOfElements = readVarInt(this.in);
+		for (int i = 0; i < numberOfElements; i++) {
+			byte elementType = this.in.readByte();
+			if (elementType == ACTIVITY) {
+				plan.addActivity(readActivity());
+			} else if (elementType == LEG) {
+				plan.addLeg(readLeg());
+			} else {
+				throw new IOException("Unknown plan element type " + elementType);
+			}
+		}
+		return plan;
+	}
+
+	private Activity readActivity() throws IOException {
+		String type = this.strings.read(this.in);
+		Id<Link> linkId = this.linkIds.read(this.in);
+		Id<ActivityFacility> facilityId = this.facilityIds.read(this.in);
+		Coord coord = readCoord();
+
+		Activity act;
+		if (linkId != null) {
+			act = this.factory.createActivityFromLinkId(type, linkId);
+			if (coord != null) {
+				act.setCoord(coord);
+			}
+		} else if (coord != null) {
+			act = this.factory.createActivityFromCoord(type, coord);
+		} else if (facilityId != null) {
+			act = this.factory.createActivityFromActivityFacilityId(type, facilityId);
+		} else {
+			throw new IllegalArgumentException("Either the coords, the link or the facility must be specified for an activity.");
+		}
+		if (facilityId != null) {
+			act.setFacilityId(facilityId);
+		}
+
+		readTime(this.in).ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+		readTime(this.in).ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+		readTime(this.in).ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+		readAttributes(act.getAttributes());
+		return act;
+	}
+
+	private Coord readCoord() throws IOException {
+		byte coordType = this.in.readByte();
+		if (coordType == NO_COORD) {
+			return null;
+		}
+		double x = this.in.readDouble();
+		double y = this.in.readDouble();
+		if (coordType == COORD_XYZ) {
+			return this.coordinateTransformation.transform(new Coord(x, y, this.in.readDouble()));
+		}
+		return this.coordinateTransformation.transform(new Coord(x, y));
+	}
+
+	private Leg readLeg() throws IOException {
+		Leg leg = this.factory.createLeg(this.strings.read(this.in));
+		readTime(this.in).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+		readTime(this.in).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+		readAttributes(leg.getAttributes());
+
+		byte routeType = this.in.readByte();
+		if (routeType != NO_ROUTE) {
+			leg.setRoute(readRoute(routeType));
+		}
+		return leg;
+	}
+
+	private Route readRoute(final byte routeType) throws IOException {
+		String type = this.strings.read(this.in);
+		Id<Link> startLinkId = this.linkIds.read(this.in);
+		Id<Link> endLinkId = this.linkIds.read(this.in);
+
+		RouteFactories routeFactories = this.factory.getRouteFactories();
+		Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(type), startLinkId, endLinkId);
+		readTime(this.in).ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+		route.setDistance(this.in.readDouble());
+
+		if (routeType == NETWORK_ROUTE) {
+			Id<Vehicle> vehicleId = this.vehicleIds.read(this.in);
+			int numberOfLinks = readVarInt(this.in);
+			List<Id<Link>> routeLinkIds = new ArrayList<>(numberOfLinks);
+			for (int i = 0; i < numberOfLinks; i++) {
+				routeLinkIds.add(this.linkIds.read(this.in));
+			}
+			if (route instanceof NetworkRoute) {
+				((NetworkRoute) route).setLinkIds(startLinkId, routeLinkIds, endLinkId);
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			} else {
+				// the route type is now mapped to another route implementation, fall back to the description used in xml
+				StringBuilder description = new StringBuilder(startLinkId.toString());
+				for (Id<Link> linkId : routeLinkIds) {
+					description.append(' ').append(linkId);
+				}
+				route.setRouteDescription(description.append(' ').append(endLinkId).toString());
+			}
+		} else if (routeType == GENERIC_ROUTE) {
+			String description = readString(this.in);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+		} else {
+			throw new IOException("Unknown route type " + routeType);
+		}
+		return route;
+	}
+
+	private void readAttributes(final Attributes attributes) throws IOException {
+		int numberOfAttributes = readVarInt(this.in);
+		for (int i = 0; i < numberOfAttributes; i++) {
+			String name = this.strings.read(this.in);
+			byte valueType = this.in.readByte();
+			Object value;
+			switch (valueType) {
+				case ATTRIBUTE_STRING:
+					value = readString(this.in);
+					break;
+				case ATTRIBUTE_INTEGER:
+					value = (int) readSignedVarLong(this.in);
+					break;
+				case ATTRIBUTE_DOUBLE:
+					value = this.in.readDouble();
+					break;
+				case ATTRIBUTE_BOOLEAN:
+					value = this.in.readBoolean();
+					break;
+				case ATTRIBUTE_LONG:
+					value = readSignedVarLong(this.in);
+					break;
+				case ATTRIBUTE_CONVERTED:
+					String className = this.strings.read(this.in);
+					value = this.attributesConverter.convert(className, readString(this.in));
+					break;
+				default:
+					throw new IOException("Unknown attribute type " + valueType);
+			}
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	/**
+	 * Counterpart of the dictionary in the writer: an index one larger than the last one marks a new entry, which is
+	 * followed by its string representation.
+	 */
+	private static final class Dictionary<T> {
+		private final List<T> entries = new ArrayList<>();
+		private final Function<String, T> creator;
+
+		Dictionary(final Function<String, T> creator) {
+			this.creator = creator;
+		}
+
+		T read(final DataInputStream in) throws IOException {
+			int code = readVarInt(in);
+			if (code == 0) {
+				return null;
+			}
+			int index = code - 1;
+			if (index < this.entries.size()) {
+				return this.entries.get(index);
+			}
+			if (index > this.entries.size()) {
+				throw new IOException("Invalid dictionary reference " + index + ", only " + this.entries.size() + " entries known.");
+			}
+			T entry = this.creator.apply(readString(in));
+			this.entries.add(entry);
+			return entry;
+		}
+	}
+
+}
@@ -0,0 +1,309 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import static org.matsim.core.population.io.BinaryPopulationFormat.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a population in the binary population format described in {@link BinaryPopulationFormat}. All plans of all
+ * persons are written, including their scores, routes and attributes. Attribute values of other types than String,
+ * Integer, Double, Boolean and Long are stored as strings using the attribute converters, as in the xml format.
+ *
+ * @see BinaryPopulationReader
+ */
+public final class BinaryPopulationWriter implements MatsimWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryPopulationWriter.class);
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Population population;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private DataOutputStream out = null;
+	private Dictionary strings = null;
+	private Dictionary linkIds = null;
+	private Dictionary facilityIds = null;
+	private Dictionary vehicleIds = null;
+
+	public BinaryPopulationWriter(final Population population) {
+		this(new IdentityTransformation(), population);
+	}
+
+	/**
+	 * @param coordinateTransformation transformation applied to the coordinates of all activities before writing them
+	 */
+	public BinaryPopulationWriter(final CoordinateTransformation coordinateTransformation, final Population population) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.population = population;
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	/**
+	 * Writes the population to the file. The file is compressed if its name ends with the suffix of a supported
+	 * compression, e.g. <code>.gz</code>.
+	 */
+	@Override
+	public void write(final String filename) {
+		log.info("writing binary population to " + filename);
+		write(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+		log.info("Population written to: " + filename);
+	}
+
+	/**
+	 * Writes the population to the output stream and closes it.
+	 */
+	public void write(final OutputStream outputStream) {
+		this.strings = new Dictionary();
+		this.linkIds = new Dictionary();
+		this.facilityIds = new Dictionary();
+		this.vehicleIds = new Dictionary();
+		Counter counter = new Counter("[" + this.getClass().getSimpleName() + "] dumped person # ");
+		try (DataOutputStream dataOut = new DataOutputStream(outputStream)) {
+			this.out = dataOut;
+			dataOut.writeInt(MAGIC);
+			writeVarInt(dataOut, VERSION);
+			writeString(dataOut, this.population.getName());
+			writeAttributes(this.population.getAttributes());
+			writeVarInt(dataOut, this.population.getPersons().size());
+			for (Person person : PopulationUtils.getSortedPersons(this.population).values()) {
+				writePerson(person);
+				counter.incCounter();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			counter.printCounter();
+			this.out = null;
+			this.strings = null;
+			this.linkIds = null;
+			this.facilityIds = null;
+			this.vehicleIds = null;
+		}
+	}
+
+	private void writePerson(final Person person) throws IOException {
+		writeString(this.out, person.getId().toString());
+		writeAttributes(person.getAttributes());
+		List<? extends Plan> plans = person.getPlans();
+		Plan selectedPlan = person.getSelectedPlan();
+		int selectedIndex = -1;
+		for (int i = 0; i < plans.size(); i++) {
+			if (plans.get(i) == selectedPlan) {
+				selectedIndex = i;
+			}
+		}
+		writeVarInt(this.out, plans.size());
+		writeVarInt(this.out, selectedIndex + 1);
+		for (Plan plan : plans) {
+			writePlan(plan);
+		}
+	}
+
+	private void writePlan(final Plan plan) throws IOException {
+		Double score = plan.getScore();
+		this.out.writeBoolean(score != null);
+		if (score != null) {
+			this.out.writeDouble(score);
+		}
+		this.strings.write(this.out, plan.getType());
+		writeAttributes(plan.getAttributes());
+		writeVarInt(this.out, plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				writeActivity((Activity) pe);
+			} else if (pe instanceof Leg) {
+				writeLeg((Leg) pe);
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element " + pe.getClass().getName());
+			}
+		}
+	}
+
+	private void writeActivity(final Activity act) throws IOException {
+		this.out.writeByte(ACTIVITY);
+		this.strings.write(this.out, act.getType());
+		this.linkIds.write(this.out, act.getLinkId());
+		this.facilityIds.write(this.out, act.getFacilityId());
+		if (act.getCoord() == null) {
+			this.out.writeByte(NO_COORD);
+		} else {
+			Coord coord = this.coordinateTransformation.transform(act.getCoord());
+			this.out.writeByte(act.getCoord().hasZ() ? COORD_XYZ : COORD_XY);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+			if (act.getCoord().hasZ()) {
+				this.out.writeDouble(coord.getZ());
+			}
+		}
+		writeTime(this.out, act.getStartTime());
+		writeTime(this.out, act.getMaximumDuration());
+		writeTime(this.out, act.getEndTime());
+		writeAttributes(act.getAttributes());
+	}
+
+	private void writeLeg(final Leg leg) throws IOException {
+		this.out.writeByte(LEG);
+		this.strings.write(this.out, leg.getMode());
+		writeTime(this.out, leg.getDepartureTime());
+		writeTime(this.out, leg.getTravelTime());
+		writeAttributes(leg.getAttributes());
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			this.out.writeByte(NO_ROUTE);
+			return;
+		}
+		this.out.writeByte(route instanceof NetworkRoute ? NETWORK_ROUTE : GENERIC_ROUTE);
+		this.strings.write(this.out, route.getRouteType());
+		this.linkIds.write(this.out, route.getStartLinkId());
+		this.linkIds.write(this.out, route.getEndLinkId());
+		writeTime(this.out, route.getTravelTime());
+		this.out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			this.vehicleIds.write(this.out, networkRoute.getVehicleId());
+			List<Id<Link>> routeLinkIds = networkRoute.getLinkIds();
+			writeVarInt(this.out, routeLinkIds.size());
+			for (Id<Link> linkId : routeLinkIds) {
+				this.linkIds.write(this.out, linkId);
+			}
+		} else {
+			writeString(this.out, route.getRouteDescription());
+		}
+	}
+
+	private void writeAttributes(final Attributes attributes) throws IOException {
+		if (attributes.isEmpty()) {
+			writeVarInt(this.out, 0);
+			return;
+		}
+		// the values that cannot be converted are skipped, so they have to be converted before the size is known
+		List<Map.Entry<String, Object>> entries = new ArrayList<>(attributes.size());
+		List<String> convertedValues = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			Object value = entry.getValue();
+			String converted = null;
+			if (!isPrimitiveAttribute(value)) {
+				converted = this.attributesConverter.convertToString(value);
+				if (converted == null) {
+					continue;
+				}
+			}
+			entries.add(entry);
+			convertedValues.add(converted);
+		}
+
+		writeVarInt(this.out, entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			Map.Entry<String, Object> entry = entries.get(i);
+			Object value = entry.getValue();
+			this.strings.write(this.out, entry.getKey());
+			if (value instanceof String) {
+				this.out.writeByte(ATTRIBUTE_STRING);
+				writeString(this.out, (String) value);
+			} else if (value instanceof Integer) {
+				this.out.writeByte(ATTRIBUTE_INTEGER);
+				writeSignedVarLong(this.out, (Integer) value);
+			} else if (value instanceof Double) {
+				this.out.writeByte(ATTRIBUTE_DOUBLE);
+				this.out.writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				this.out.writeByte(ATTRIBUTE_BOOLEAN);
+				this.out.writeBoolean((Boolean) value);
+			} else if (value instanceof Long) {
+				this.out.writeByte(ATTRIBUTE_LONG);
+				writeSignedVarLong(this.out, (Long) value);
+			} else {
+				this.out.writeByte(ATTRIBUTE_CONVERTED);
+				this.strings.write(this.out, value.getClass().getName());
+				writeString(this.out, convertedValues.get(i));
+			}
+		}
+	}
+
+	private static boolean isPrimitiveAttribute(final Object value) {
+		return value instanceof String || value instanceof Integer || value instanceof Double
+				|| value instanceof Boolean || value instanceof Long;
+	}
+
+	/**
+	 * Assigns consecutive indices to values in the order of their first occurrence. The first occurrence is written
+	 * with its string representation, all later ones only with the index.
+	 */
+	private static final class Dictionary {
+		private final Map<Object, Integer> indices = new HashMap<>();
+
+		void write(final DataOutputStream out, final Object value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, 0);
+				return;
+			}
+			Integer index = this.indices.get(value);
+			if (index != null) {
+				writeVarInt(out, index + 1);
+				return;
+			}
+			index = this.indices.size();
+			this.indices.put(value, index);
+			writeVarInt(out, index + 1);
+			writeString(out, value.toString());
+		}
+	}
+
+}
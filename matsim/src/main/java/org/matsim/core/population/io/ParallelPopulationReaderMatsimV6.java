@@ -0,0 +1,273 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6, analogous to {@link ParallelPopulationReaderMatsimV4}.
+ * The main thread only parses the file, reads the population-level data and creates empty person objects which are
+ * added to the population to ensure that their order is not changed. The xml data of each person is handed over to
+ * worker threads which create the plans, activities, legs, routes and attributes of the person.
+ * <p>
+ * Note that this approach is not compatible with population streaming. When this feature is activated, the
+ * non-parallel reader is used.
+ *
+ * @author mrieser
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final String POPULATION = "population";
+	private static final String PERSON = "person";
+	private static final String ATTRIBUTES = "attributes";
+	private static final String ATTR_PERSON_ID = "id";
+
+	/** limits the number of persons waiting for a worker, so the xml data of a large file is not held in memory */
+	private static final int QUEUE_CAPACITY_PER_THREAD = 1000;
+
+	private final Scenario scenario;
+	private final Population population;
+	private final boolean isPopulationStreaming;
+	private final int numThreads;
+	private final BlockingQueue<List<Tag>> queue;
+	private final AtomicReference<Throwable> workerException = new AtomicReference<>();
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private Thread[] threads = null;
+	private List<Tag> currentPersonXmlData = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.population = scenario.getPopulation();
+
+		if (scenario.getPopulation() instanceof StreamingPopulationReader.StreamingPopulation) {
+			log.warn("Population streaming is activated - cannot use " + ParallelPopulationReaderMatsimV6.class.getName() + "!");
+
+			this.isPopulationStreaming = true;
+			this.numThreads = 1;
+			this.queue = null;
+		} else {
+			this.isPopulationStreaming = false;
+			this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+			this.queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * this.numThreads);
+		}
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			// the workers use the coordinate transformation as defined by the population attributes, which precede all persons
+			ParallelPopulationReaderMatsimV6Runner runner =
+					new ParallelPopulationReaderMatsimV6Runner(
+							this.coordinateTransformation,
+							this.scenario,
+							this.queue,
+							this.workerException);
+			runner.putAttributeConverters(this.attributeConverters);
+
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6Runner.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+
+		// if population streaming is activated, use non-parallel reader
+		if (this.isPopulationStreaming) {
+			super.startTag(name, atts, context);
+			return;
+		}
+
+		if (PERSON.equals(name)) {
+			if (this.threads == null) {
+				log.info("Start parallel population reading...");
+				initThreads();
+			}
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(atts.getValue(ATTR_PERSON_ID), Person.class));
+			this.population.addPerson(person);
+			this.currentPersonXmlData = new ArrayList<>();
+			this.currentPersonXmlData.add(new PersonTag(person));
+		} else if (this.currentPersonXmlData == null) {
+			// population-level data is read directly
+			super.startTag(name, atts, context);
+		} else {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentPersonXmlData.add(new StartTag(name, new AttributesImpl(atts), copyContextIfRequired(name, context)));
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+
+		// if population streaming is activated, use non-parallel reader
+		if (this.isPopulationStreaming) {
+			super.endTag(name, content, context);
+			return;
+		}
+
+		if (PERSON.equals(name)) {
+			put(this.currentPersonXmlData);
+			this.currentPersonXmlData = null;
+		} else if (this.currentPersonXmlData != null) {
+			this.currentPersonXmlData.add(new EndTag(name, content, copyContextIfRequired(name, context)));
+		} else {
+			if (POPULATION.equals(name) && this.threads != null) {
+				finishThreads();
+				log.info("Finished parallel population reading...");
+			}
+			super.endTag(name, content, context);
+		}
+	}
+
+	/**
+	 * The reader only looks at the context of attributes tags, where it needs to know the parent element. The stack is
+	 * modified by the parser, so those tags get a copy of it.
+	 */
+	private static Stack<String> copyContextIfRequired(String name, Stack<String> context) {
+		if (ATTRIBUTES.equals(name)) {
+			Stack<String> copy = new Stack<>();
+			copy.addAll(context);
+			return copy;
+		}
+		return null;
+	}
+
+	private void finishThreads() {
+		// signal the threads that they should end parsing
+		for (int i = 0; i < this.numThreads; i++) {
+			List<Tag> list = new ArrayList<>();
+			list.add(new EndProcessingTag());
+			put(list);
+		}
+
+		// wait for the threads to finish
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+
+		// rethrow an exception of a worker in the parser thread, as if it had been thrown there
+		Throwable t = this.workerException.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else if (t != null) {
+			throw new RuntimeException("Exception while reading the population in parallel.", t);
+		}
+	}
+
+	private void put(List<Tag> tags) {
+		try {
+			this.queue.put(tags);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	abstract static class Tag {
+		final String name;
+		final Stack<String> context;
+
+		Tag(String name, Stack<String> context) {
+			this.name = name;
+			this.context = context;
+		}
+	}
+
+	static final class StartTag extends Tag {
+		final Attributes atts;
+
+		StartTag(String name, Attributes atts, Stack<String> context) {
+			super(name, context);
+			this.atts = atts;
+		}
+	}
+
+	static final class PersonTag extends Tag {
+		final Person person;
+
+		PersonTag(Person person) {
+			super(PERSON, null);
+			this.person = person;
+		}
+	}
+
+	static final class EndTag extends Tag {
+		final String content;
+
+		EndTag(String name, String content, Stack<String> context) {
+			super(name, context);
+			this.content = content;
+		}
+	}
+
+	/*
+	 * Marker Tag to inform the threads that no further data has to be parsed.
+	 */
+	static final class EndProcessingTag extends Tag {
+		EndProcessingTag() {
+			super(null, null);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Runner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.EndProcessingTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.EndTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.PersonTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.StartTag;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.Tag;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runnable used by ParallelPopulationReaderMatsimV6. Fills the persons created by the main thread with
+ * the data of their xml elements.
+ *
+ * @author mrieser
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+	private final BlockingQueue<List<Tag>> queue;
+	private final AtomicReference<Throwable> exception;
+
+	ParallelPopulationReaderMatsimV6Runner(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario,
+			final BlockingQueue<List<Tag>> queue,
+			final AtomicReference<Throwable> exception) {
+		// the CRS of the population has already been handled by the main reader
+		super(null, null, scenario);
+		this.coordinateTransformation = coordinateTransformation;
+		this.queue = queue;
+		this.exception = exception;
+	}
+
+	@Override
+	public void run() {
+		/*
+		 * The thread will go on with the parsing until an EndProcessingTag is found,
+		 * which calls "return". After an exception, the remaining data is only consumed
+		 * so that the main thread is not blocked by a full queue.
+		 */
+		try {
+			while (true) {
+				List<Tag> tags = this.queue.take();
+				if (tags.get(0) instanceof EndProcessingTag) {
+					return;
+				}
+				if (this.exception.get() != null) {
+					continue;
+				}
+				try {
+					for (Tag tag : tags) {
+						if (tag instanceof PersonTag) {
+							this.currperson = ((PersonTag) tag).person;
+						} else if (tag instanceof StartTag) {
+							this.startTag(tag.name, ((StartTag) tag).atts, tag.context);
+						} else if (tag instanceof EndTag) {
+							this.endTag(tag.name, ((EndTag) tag).content, tag.context);
+						}
+					}
+					// the person has already been added to the population by the main thread
+					this.currperson = null;
+				} catch (Throwable t) {
+					this.exception.compareAndSet(null, t);
+				}
+			}
+		} catch (Throwable t) {
+			// e.g. an InterruptedException, after which this thread does not consume data anymore
+			this.exception.compareAndSet(null, t);
+		}
+	}
+}
@@ -114,8 +114,9 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
+				// persons are filled by parallel threads, as for plans_v4
 				this.delegate =
-						new PopulationReaderMatsimV6(
+						new ParallelPopulationReaderMatsimV6(
 						        inputCRS,
 						        targetCRS,
 								this.scenario);
@@ -106,7 +106,7 @@ import com.google.inject.Inject;
 	private final Population plans;
 	private final String externalInputCRS;
 
-	private Person currperson = null;
+	/*package*/ Person currperson = null;
 	private Plan currplan = null;
 	private Activity curract = null;
 	private Leg currleg = null;
@@ -115,7 +115,7 @@ import com.google.inject.Inject;
 	private org.matsim.utils.objectattributes.attributable.Attributes currAttributes = null;
 
 	private final String targetCRS;
-	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	/*package*/ CoordinateTransformation coordinateTransformation = new IdentityTransformation();
 
 	private Activity prevAct = null;
 
@@ -20,10 +20,26 @@
 
 package org.matsim.core.population.io;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
@@ -35,6 +51,7 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.io.AbstractMatsimWriter;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.utils.objectattributes.AttributeConverter;
@@ -52,6 +69,9 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	private final static Logger log = Logger.getLogger(PopulationWriter.class);
 	private Map<Class<?>,AttributeConverter<?>> converters = new HashMap<>();
 
+	private static final int PERSONS_PER_CHUNK = 1000;
+	private int numberOfThreads = 1;
+
 
 	public PopulationWriter(final Population population) {
 		this(population, null, 1.0);
@@ -129,10 +149,34 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	}
 
 	/**
-	 * Writes all plans to the file.
+	 * Sets the number of threads used to write population_v6 files. With more than one thread, the persons are
+	 * serialized in chunks in parallel, and the chunks are written in the order of the persons. For gzip-compressed
+	 * files, the chunks are also compressed in parallel: each chunk becomes a member of a multi-member gzip file, which
+	 * decompresses to the same content as a single-member file and can be read by the usual readers. Files with other
+	 * suffixes are written through the (possibly compressing) output stream from {@link IOUtils#getOutputStream}.
+	 * Other formats and custom writer handlers are always written by one thread.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Writes all plans to the file. If the file name has the suffix of the {@link BinaryPopulationFormat} and no other
+	 * format than the current xml format was requested, the population is written in the binary format.
 	 */
 	@Override
 	public final void write(final String filename) {
+		if (BinaryPopulationFormat.isBinaryPopulationFile(filename) && this.handler.getClass() == PopulationWriterHandlerImplV6.class) {
+			BinaryPopulationWriter binaryWriter = new BinaryPopulationWriter(this.coordinateTransformation, this.population);
+			binaryWriter.putAttributeConverters(this.converters);
+			binaryWriter.write(filename);
+			return;
+		}
+		if (this.numberOfThreads > 1 && this.useCompression == null
+				&& this.handler.getClass() == PopulationWriterHandlerImplV6.class) {
+			writeParallel(filename);
+			return;
+		}
 		try {
 			this.handler.putAttributeConverters(converters);
 			this.openFile(filename);
@@ -174,6 +218,92 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	}
 
 
+	private void writeParallel(final String filename) {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "PopulationWriter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// gzip members can be compressed independently and concatenated, other compressions are done by the stream
+		final boolean gzipChunks = filename.endsWith(".gz");
+		try (OutputStream out = gzipChunks ? new BufferedOutputStream(new FileOutputStream(filename))
+				: IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)) {
+			this.handler.putAttributeConverters(this.converters);
+			out.write(serialize(gzipChunks, writer -> {
+				this.handler.writeHeaderAndStartElement(writer);
+				this.handler.startPlans(this.population, writer);
+				this.handler.writeSeparator(writer);
+			}));
+
+			// keep a limited number of chunks in memory, and write them in the order of the persons
+			Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+			List<Person> chunk = new ArrayList<>(PERSONS_PER_CHUNK);
+			for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+				if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+					continue;
+				}
+				chunk.add(p);
+				if (chunk.size() == PERSONS_PER_CHUNK) {
+					pendingChunks.add(executor.submit(createChunkTask(chunk, gzipChunks)));
+					chunk = new ArrayList<>(PERSONS_PER_CHUNK);
+					if (pendingChunks.size() >= 2 * this.numberOfThreads) {
+						out.write(pendingChunks.poll().get());
+					}
+				}
+			}
+			if (!chunk.isEmpty()) {
+				pendingChunks.add(executor.submit(createChunkTask(chunk, gzipChunks)));
+			}
+			while (!pendingChunks.isEmpty()) {
+				out.write(pendingChunks.poll().get());
+			}
+
+			out.write(serialize(gzipChunks, this.handler::endPlans));
+			log.info("Population written to: " + filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+			counter.printCounter();
+			counter.reset();
+		}
+	}
+
+	private Callable<byte[]> createChunkTask(final List<Person> persons, final boolean gzip) {
+		return () -> {
+			// the handler is not thread-safe, so every chunk uses its own one
+			PopulationWriterHandler chunkHandler = new PopulationWriterHandlerImplV6(this.coordinateTransformation);
+			chunkHandler.putAttributeConverters(this.converters);
+			byte[] data = serialize(gzip, writer -> {
+				for (Person person : persons) {
+					chunkHandler.writePerson(person, writer);
+				}
+			});
+			for (int i = 0; i < persons.size(); i++) {
+				this.counter.incCounter();
+			}
+			return data;
+		};
+	}
+
+	/**
+	 * @return the data written by <code>content</code>, encoded as UTF-8, and as a complete gzip member if requested
+	 */
+	private static byte[] serialize(final boolean gzip, final ChunkContent content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		OutputStream out = gzip ? new GZIPOutputStream(bytes, 1 << 16) : bytes;
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+			content.write(writer);
+		}
+		return bytes.toByteArray();
+	}
+
+	private interface ChunkContent {
+		void write(BufferedWriter writer) throws IOException;
+	}
+
 	private  final void writePersons() {
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
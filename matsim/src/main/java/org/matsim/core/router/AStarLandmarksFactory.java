@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
@@ -43,8 +44,14 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
+	private String cacheDirectory = null;
 	
 	@Inject
+	public AStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(globalConfigGroup);
+		this.cacheDirectory = controlerConfigGroup.getLandmarksCacheDirectory();
+	}
+
 	public AStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
 		this(globalConfigGroup.getNumberOfThreads());
 	}
@@ -53,12 +60,20 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 		this.nThreads = numberOfThreads;
 	}
 
+	/**
+	 * Sets the directory in which the landmark distances are stored, see {@link PreProcessLandmarks#setCacheDirectory(String)}.
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
 		if (preProcessLandmarks == null) {
 			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 			preProcessLandmarks.setNumberOfThreads(nThreads);
+			preProcessLandmarks.setCacheDirectory(cacheDirectory);
 			preProcessLandmarks.run(network);
 			this.preProcessData.put(network, preProcessLandmarks);
 		}
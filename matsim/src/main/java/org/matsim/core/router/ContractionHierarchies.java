@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator on a customizable contraction hierarchy, see {@link ContractionHierarchiesFactory}.
+ * <p>
+ * A query searches upward from both the start and the target node. Since all nodes reachable upward from a node are
+ * its ancestors in the elimination tree, both searches simply scan the path to the root of the elimination tree,
+ * without any priority queue. The cheapest meeting node on both paths determines the route, whose shortcuts are then
+ * unpacked to the original links.
+ * <p>
+ * The route is optimal for the weights of the time slice containing the start time. Travel time and cost of the
+ * returned path are calculated link by link with the actual departure times, the person and the vehicle, just as the
+ * other routers do.
+ * <p>
+ * Not thread-safe, use one instance per thread.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchiesGraph graph;
+	private final ContractionHierarchiesFactory.Customizations customizations;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+
+	ContractionHierarchies(final ContractionHierarchiesGraph graph, final ContractionHierarchiesFactory.Customizations customizations,
+			final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.graph = graph;
+		this.customizations = customizations;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		int n = graph.getNodeCount();
+		this.forwardCost = new double[n];
+		this.backwardCost = new double[n];
+		this.forwardArc = new int[n];
+		this.backwardArc = new int[n];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = checkNode(fromNode);
+		int to = checkNode(toNode);
+		if (from == to) {
+			return new Path(Collections.singletonList(fromNode), Collections.emptyList(), 0.0, 0.0);
+		}
+		ContractionHierarchiesMetric metric = this.customizations.getMetric(starttime);
+		int[] parent = this.graph.parent;
+
+		this.forwardCost[from] = 0;
+		for (int v = from; v >= 0; v = parent[v]) {
+			relax(v, this.forwardCost, this.forwardArc, metric.upWeight);
+		}
+		this.backwardCost[to] = 0;
+		for (int v = to; v >= 0; v = parent[v]) {
+			relax(v, this.backwardCost, this.backwardArc, metric.downWeight);
+		}
+
+		int meetingNode = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int v = from; v >= 0; v = parent[v]) {
+			double cost = this.forwardCost[v] + this.backwardCost[v];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meetingNode = v;
+			}
+		}
+
+		List<Link> links = null;
+		if (meetingNode >= 0) {
+			links = new ArrayList<>();
+			List<Integer> upwardArcs = new ArrayList<>();
+			for (int v = meetingNode; v != from; v = this.graph.arcTail[this.forwardArc[v]]) {
+				upwardArcs.add(this.forwardArc[v]);
+			}
+			for (int i = upwardArcs.size() - 1; i >= 0; i--) {
+				unpack(upwardArcs.get(i), true, metric, links);
+			}
+			for (int v = meetingNode; v != to; v = this.graph.arcTail[this.backwardArc[v]]) {
+				unpack(this.backwardArc[v], false, metric, links);
+			}
+		}
+
+		for (int v = from; v >= 0; v = parent[v]) {
+			this.forwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+		for (int v = to; v >= 0; v = parent[v]) {
+			this.backwardCost[v] = Double.POSITIVE_INFINITY;
+		}
+
+		if (links == null) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private void relax(final int v, final double[] costs, final int[] arcs, final double[] weights) {
+		double cost = costs[v];
+		if (cost == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		int[] arcHead = this.graph.arcHead;
+		for (int arc = this.graph.firstArc[v], end = this.graph.firstArc[v + 1]; arc < end; arc++) {
+			double headCost = cost + weights[arc];
+			int head = arcHead[arc];
+			if (headCost < costs[head]) {
+				costs[head] = headCost;
+				arcs[head] = arc;
+			}
+		}
+	}
+
+	/**
+	 * Appends the links of the arc to the list, in the direction from tail to head if <code>upward</code>.
+	 */
+	private void unpack(final int arc, final boolean upward, final ContractionHierarchiesMetric metric, final List<Link> links) {
+		int via = upward ? metric.upVia[arc] : metric.downVia[arc];
+		if (via < 0) {
+			links.add(this.graph.links[~via]);
+			return;
+		}
+		int tail = this.graph.arcTail[arc];
+		int head = this.graph.arcHead[arc];
+		int toTail = this.graph.findArc(via, tail);
+		int toHead = this.graph.findArc(via, head);
+		if (upward) {
+			// tail -> via -> head
+			unpack(toTail, false, metric, links);
+			unpack(toHead, true, metric, links);
+		} else {
+			// head -> via -> tail
+			unpack(toHead, false, metric, links);
+			unpack(toTail, true, metric, links);
+		}
+	}
+
+	private int checkNode(final Node node) {
+		int rank = this.graph.getRank(node);
+		if (rank < 0 || this.graph.nodes[rank] != node) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return rank;
+	}
+}
@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.collections.Tuple;
+
+/**
+ * Creates {@link ContractionHierarchies} routers, based on customizable contraction hierarchies.
+ * <p>
+ * The expensive, metric independent preprocessing (node order and shortcuts, see {@link ContractionHierarchiesGraph})
+ * is done once per network. The weights are customized from the travel disutility for time slices of
+ * {@link #DEFAULT_TIME_SLICE_SIZE} seconds, each time slice when it is first needed. This takes about as long as a
+ * handful of Dijkstra queries, so the customizations are simply discarded at the start of every iteration, after the
+ * travel times of the last iteration have been collected. Outside of the controler, create a new factory or call
+ * {@link #resetCustomizations()} whenever the travel times change.
+ * <p>
+ * The customizations are shared by all routers created for the same network and travel time. They use the travel
+ * disutility of the first router created for them, evaluated without person and vehicle.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	public static final double DEFAULT_TIME_SLICE_SIZE = 3600.0;
+
+	private final double timeSliceSize;
+	private final Map<Network, ContractionHierarchiesGraph> graphs = new HashMap<>();
+	private final Map<Tuple<Network, TravelTime>, Customizations> customizations = new HashMap<>();
+
+	public ContractionHierarchiesFactory() {
+		this(DEFAULT_TIME_SLICE_SIZE);
+	}
+
+	public ContractionHierarchiesFactory(final double timeSliceSize) {
+		if (timeSliceSize <= 0) {
+			throw new IllegalArgumentException("timeSliceSize must be positive, but is " + timeSliceSize);
+		}
+		this.timeSliceSize = timeSliceSize;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		ContractionHierarchiesGraph graph = this.graphs.computeIfAbsent(network, ContractionHierarchiesGraph::new);
+		Customizations customizations = this.customizations.computeIfAbsent(new Tuple<>(network, travelTimes),
+				key -> new Customizations(graph, travelCosts, this.timeSliceSize));
+		return new ContractionHierarchies(graph, customizations, travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		resetCustomizations();
+	}
+
+	/**
+	 * Discards all customized weights. Routers created afterwards use the current travel disutilities.
+	 */
+	public synchronized void resetCustomizations() {
+		this.customizations.clear();
+	}
+
+	/**
+	 * The weights of one network and travel disutility, per time slice.
+	 */
+	static final class Customizations {
+		private final ContractionHierarchiesGraph graph;
+		private final TravelDisutility travelDisutility;
+		private final double timeSliceSize;
+		private final Map<Integer, ContractionHierarchiesMetric> metrics = new ConcurrentHashMap<>();
+
+		Customizations(final ContractionHierarchiesGraph graph, final TravelDisutility travelDisutility, final double timeSliceSize) {
+			this.graph = graph;
+			this.travelDisutility = travelDisutility;
+			this.timeSliceSize = timeSliceSize;
+		}
+
+		/**
+		 * @return the weights for the time slice containing <code>time</code>, evaluated in the middle of the slice
+		 */
+		ContractionHierarchiesMetric getMetric(final double time) {
+			int slice = (int) Math.floor(Math.max(0, time) / this.timeSliceSize);
+			return this.metrics.computeIfAbsent(slice,
+					s -> new ContractionHierarchiesMetric(this.graph, this.travelDisutility, (s + 0.5) * this.timeSliceSize));
+		}
+	}
+}
@@ -0,0 +1,352 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric independent part of a customizable contraction hierarchy: the contraction order of the nodes and the
+ * resulting (upward) arcs including all shortcuts.
+ * <p>
+ * The nodes are ordered by nested dissection, using recursive coordinate bisection with the boundary nodes of the
+ * smaller side as separator. Contracting the nodes in this order inserts shortcuts between all higher ranked
+ * neighbours of a node, so every arc is either an original link (in one or both directions) or a shortcut over a lower
+ * ranked node. All higher ranked nodes reachable through upward arcs are ancestors in the elimination tree, which
+ * allows queries without priority queue, see {@link ContractionHierarchies}.
+ * <p>
+ * Internally, nodes are identified by their rank. The arcs of each node are stored in ascending order of their head's
+ * rank.
+ */
+final class ContractionHierarchiesGraph {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchiesGraph.class);
+
+	private static final int LEAF_SIZE = 8;
+
+	private final Network network;
+	/** node by rank */
+	final Node[] nodes;
+	/** rank by node id index, -1 for nodes not in the network */
+	private final int[] ranks;
+	/** parent in the elimination tree, -1 for roots */
+	final int[] parent;
+	/** arcs of node r are firstArc[r] until firstArc[r + 1] - 1 */
+	final int[] firstArc;
+	final int[] arcTail;
+	final int[] arcHead;
+	final Link[] links;
+	final int[] linkArc;
+	/** true if the link leads from the lower to the higher ranked node of its arc */
+	final boolean[] linkUpward;
+
+	ContractionHierarchiesGraph(final Network network) {
+		this.network = network;
+		int n = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[n]);
+		int maxIdIndex = 0;
+		for (Node node : nodesByIndex) {
+			maxIdIndex = Math.max(maxIdIndex, node.getId().index());
+		}
+		int[] indexByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(indexByIdIndex, -1);
+		for (int i = 0; i < n; i++) {
+			indexByIdIndex[nodesByIndex[i].getId().index()] = i;
+		}
+
+		// undirected adjacency without self loops and duplicates
+		int[][] neighbours = new int[n][];
+		int[] degree = new int[n];
+		for (int i = 0; i < n; i++) {
+			Node node = nodesByIndex[i];
+			int[] adjacent = new int[node.getOutLinks().size() + node.getInLinks().size()];
+			int count = 0;
+			for (Link link : node.getOutLinks().values()) {
+				adjacent[count++] = indexByIdIndex[link.getToNode().getId().index()];
+			}
+			for (Link link : node.getInLinks().values()) {
+				adjacent[count++] = indexByIdIndex[link.getFromNode().getId().index()];
+			}
+			Arrays.sort(adjacent, 0, count);
+			int unique = 0;
+			for (int k = 0; k < count; k++) {
+				if (adjacent[k] != i && adjacent[k] >= 0 && (unique == 0 || adjacent[unique - 1] != adjacent[k])) {
+					adjacent[unique++] = adjacent[k];
+				}
+			}
+			neighbours[i] = Arrays.copyOf(adjacent, unique);
+			degree[i] = unique;
+		}
+
+		// contraction order
+		int[] order = new NestedDissection(nodesByIndex, neighbours).computeOrder();
+		this.nodes = new Node[n];
+		int[] rankByIndex = new int[n];
+		for (int r = 0; r < n; r++) {
+			this.nodes[r] = nodesByIndex[order[r]];
+			rankByIndex[order[r]] = r;
+		}
+		this.ranks = new int[maxIdIndex + 1];
+		Arrays.fill(this.ranks, -1);
+		for (int r = 0; r < n; r++) {
+			this.ranks[this.nodes[r].getId().index()] = r;
+		}
+
+		// contraction: the upward neighbours of a node, without its parent, become upward neighbours of the parent
+		int[][] up = new int[n][];
+		int[] upSize = new int[n];
+		for (int i = 0; i < n; i++) {
+			int r = rankByIndex[i];
+			int[] higher = new int[degree[i]];
+			int count = 0;
+			for (int neighbour : neighbours[i]) {
+				int neighbourRank = rankByIndex[neighbour];
+				if (neighbourRank > r) {
+					higher[count++] = neighbourRank;
+				}
+			}
+			up[r] = higher;
+			upSize[r] = count;
+		}
+		this.parent = new int[n];
+		int arcCount = 0;
+		for (int r = 0; r < n; r++) {
+			int[] higher = up[r];
+			int size = upSize[r];
+			Arrays.sort(higher, 0, size);
+			int unique = 0;
+			for (int k = 0; k < size; k++) {
+				if (unique == 0 || higher[unique - 1] != higher[k]) {
+					higher[unique++] = higher[k];
+				}
+			}
+			up[r] = Arrays.copyOf(higher, unique);
+			upSize[r] = unique;
+			arcCount += unique;
+			if (unique == 0) {
+				this.parent[r] = -1;
+				continue;
+			}
+			int p = higher[0];
+			this.parent[r] = p;
+			int[] parentUp = up[p];
+			if (upSize[p] + unique - 1 > parentUp.length) {
+				parentUp = Arrays.copyOf(parentUp, Math.max(upSize[p] + unique - 1, parentUp.length * 2));
+				up[p] = parentUp;
+			}
+			System.arraycopy(higher, 1, parentUp, upSize[p], unique - 1);
+			upSize[p] += unique - 1;
+		}
+
+		this.firstArc = new int[n + 1];
+		this.arcTail = new int[arcCount];
+		this.arcHead = new int[arcCount];
+		int arc = 0;
+		for (int r = 0; r < n; r++) {
+			this.firstArc[r] = arc;
+			for (int head : up[r]) {
+				this.arcTail[arc] = r;
+				this.arcHead[arc] = head;
+				arc++;
+			}
+			up[r] = null;
+		}
+		this.firstArc[n] = arc;
+
+		int linkCount = network.getLinks().size();
+		this.links = new Link[linkCount];
+		this.linkArc = new int[linkCount];
+		this.linkUpward = new boolean[linkCount];
+		int l = 0;
+		for (Link link : network.getLinks().values()) {
+			int from = getRank(link.getFromNode());
+			int to = getRank(link.getToNode());
+			if (from < 0 || to < 0 || from == to) {
+				continue;
+			}
+			this.links[l] = link;
+			this.linkUpward[l] = from < to;
+			this.linkArc[l] = from < to ? findArc(from, to) : findArc(to, from);
+			l++;
+		}
+		int usedLinks = l;
+		log.info("contraction hierarchy with " + n + " nodes, " + usedLinks + " links and " + (arcCount - countLinkArcs(usedLinks))
+				+ " shortcuts created.");
+	}
+
+	private int countLinkArcs(int usedLinks) {
+		boolean[] isLinkArc = new boolean[this.arcHead.length];
+		int count = 0;
+		for (int l = 0; l < usedLinks; l++) {
+			if (!isLinkArc[this.linkArc[l]]) {
+				isLinkArc[this.linkArc[l]] = true;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	Network getNetwork() {
+		return this.network;
+	}
+
+	int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	int getArcCount() {
+		return this.arcHead.length;
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if it is not part of the network
+	 */
+	int getRank(final Node node) {
+		int index = node.getId().index();
+		return index < this.ranks.length ? this.ranks[index] : -1;
+	}
+
+	/**
+	 * @return the arc between <code>lower</code> and <code>higher</code>, or -1 if there is none
+	 */
+	int findArc(final int lower, final int higher) {
+		int index = Arrays.binarySearch(this.arcHead, this.firstArc[lower], this.firstArc[lower + 1], higher);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * Nested dissection by recursive coordinate bisection.
+	 */
+	private static final class NestedDissection {
+		private final Node[] nodes;
+		private final int[][] neighbours;
+		/** side of each node in the current bisection: 0 outside, 1 first half, 2 second half */
+		private final byte[] side;
+		private final int[] order;
+		private int nextRank = 0;
+
+		NestedDissection(final Node[] nodes, final int[][] neighbours) {
+			this.nodes = nodes;
+			this.neighbours = neighbours;
+			this.side = new byte[nodes.length];
+			this.order = new int[nodes.length];
+		}
+
+		int[] computeOrder() {
+			Integer[] all = new Integer[this.nodes.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			dissect(all, 0, all.length);
+			return this.order;
+		}
+
+		/**
+		 * Orders the nodes in <code>part[from, to)</code>: first both halves, then the separator between them.
+		 */
+		private void dissect(final Integer[] part, final int from, final int to) {
+			int size = to - from;
+			if (size <= LEAF_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.nextRank++] = part[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				Node node = this.nodes[part[i]];
+				minX = Math.min(minX, node.getCoord().getX());
+				maxX = Math.max(maxX, node.getCoord().getX());
+				minY = Math.min(minY, node.getCoord().getY());
+				maxY = Math.max(maxY, node.getCoord().getY());
+			}
+			final boolean byX = maxX - minX >= maxY - minY;
+			Arrays.sort(part, from, to, (a, b) -> {
+				double ca = byX ? this.nodes[a].getCoord().getX() : this.nodes[a].getCoord().getY();
+				double cb = byX ? this.nodes[b].getCoord().getX() : this.nodes[b].getCoord().getY();
+				int cmp = Double.compare(ca, cb);
+				return cmp != 0 ? cmp : Integer.compare(a, b);
+			});
+			int middle = from + size / 2;
+			for (int i = from; i < to; i++) {
+				this.side[part[i]] = (byte) (i < middle ? 1 : 2);
+			}
+			int firstBoundary = 0;
+			int secondBoundary = 0;
+			for (int i = from; i < to; i++) {
+				if (isBoundary(part[i])) {
+					if (i < middle) {
+						firstBoundary++;
+					} else {
+						secondBoundary++;
+					}
+				}
+			}
+			// the separator consists of the boundary nodes of the side with fewer of them
+			byte separatorSide = (byte) (firstBoundary <= secondBoundary ? 1 : 2);
+			Integer[] separator = new Integer[Math.min(firstBoundary, secondBoundary)];
+			int separatorSize = 0;
+			// compact both halves without the separator, keeping their order
+			Integer[] first = new Integer[middle - from];
+			Integer[] second = new Integer[to - middle];
+			int firstSize = 0;
+			int secondSize = 0;
+			for (int i = from; i < to; i++) {
+				int node = part[i];
+				if (this.side[node] == separatorSide && isBoundary(node)) {
+					separator[separatorSize++] = node;
+				} else if (i < middle) {
+					first[firstSize++] = node;
+				} else {
+					second[secondSize++] = node;
+				}
+			}
+			for (int i = from; i < to; i++) {
+				this.side[part[i]] = 0;
+			}
+			System.arraycopy(first, 0, part, from, firstSize);
+			System.arraycopy(second, 0, part, from + firstSize, secondSize);
+			dissect(part, from, from + firstSize);
+			dissect(part, from + firstSize, from + firstSize + secondSize);
+			for (int i = 0; i < separatorSize; i++) {
+				this.order[this.nextRank++] = separator[i];
+			}
+		}
+
+		private boolean isBoundary(final int node) {
+			byte own = this.side[node];
+			for (int neighbour : this.neighbours[node]) {
+				byte other = this.side[neighbour];
+				if (other != 0 && other != own) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
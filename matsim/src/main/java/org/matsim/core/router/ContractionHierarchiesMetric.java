@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The arc weights of a {@link ContractionHierarchiesGraph} for one travel disutility at one point in time.
+ * <p>
+ * Customization first assigns the disutility of the original links to their arcs and then relaxes all lower
+ * triangles bottom up: the shortcut between <code>v</code> and <code>u</code> is replaced by the detour over a common
+ * lower ranked neighbour <code>x</code> if that is cheaper. As all weights of lower arcs are final when a node is
+ * processed, one pass over the nodes is sufficient.
+ */
+final class ContractionHierarchiesMetric {
+
+	private final ContractionHierarchiesGraph graph;
+	private final double time;
+	/** weight from tail to head */
+	final double[] upWeight;
+	/** weight from head to tail */
+	final double[] downWeight;
+	/** lower node the shortcut leads over, or <code>~link</code> for original links */
+	final int[] upVia;
+	final int[] downVia;
+
+	ContractionHierarchiesMetric(final ContractionHierarchiesGraph graph, final TravelDisutility travelDisutility, final double time) {
+		this.graph = graph;
+		this.time = time;
+		int arcCount = graph.getArcCount();
+		this.upWeight = new double[arcCount];
+		this.downWeight = new double[arcCount];
+		this.upVia = new int[arcCount];
+		this.downVia = new int[arcCount];
+		Arrays.fill(this.upWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.downWeight, Double.POSITIVE_INFINITY);
+
+		for (int l = 0; l < graph.links.length; l++) {
+			Link link = graph.links[l];
+			if (link == null) {
+				break;
+			}
+			double cost = travelDisutility.getLinkTravelDisutility(link, time, null, null);
+			int arc = graph.linkArc[l];
+			if (graph.linkUpward[l]) {
+				if (cost < this.upWeight[arc]) {
+					this.upWeight[arc] = cost;
+					this.upVia[arc] = ~l;
+				}
+			} else if (cost < this.downWeight[arc]) {
+				this.downWeight[arc] = cost;
+				this.downVia[arc] = ~l;
+			}
+		}
+
+		int[] firstArc = graph.firstArc;
+		int[] arcHead = graph.arcHead;
+		for (int x = 0; x < graph.getNodeCount(); x++) {
+			int end = firstArc[x + 1];
+			for (int i = firstArc[x]; i < end; i++) {
+				int v = arcHead[i];
+				double vToX = this.downWeight[i];
+				double xToV = this.upWeight[i];
+				if (vToX == Double.POSITIVE_INFINITY && xToV == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				// the upward neighbours of x are upward neighbours of v as well, and both lists are sorted
+				int k = firstArc[v];
+				for (int j = i + 1; j < end; j++) {
+					int u = arcHead[j];
+					while (arcHead[k] != u) {
+						k++;
+					}
+					double viaUp = vToX + this.upWeight[j];
+					if (viaUp < this.upWeight[k]) {
+						this.upWeight[k] = viaUp;
+						this.upVia[k] = x;
+					}
+					double viaDown = this.downWeight[j] + xToV;
+					if (viaDown < this.downWeight[k]) {
+						this.downWeight[k] = viaDown;
+						this.downVia[k] = x;
+					}
+				}
+			}
+		}
+	}
+
+	double getTime() {
+		return this.time;
+	}
+
+	ContractionHierarchiesGraph getGraph() {
+		return this.graph;
+	}
+}
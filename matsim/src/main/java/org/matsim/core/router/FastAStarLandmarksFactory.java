@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
@@ -49,8 +50,14 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
+	private String cacheDirectory = null;
 
 	@Inject
+	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(globalConfigGroup);
+		this.cacheDirectory = controlerConfigGroup.getLandmarksCacheDirectory();
+	}
+
 	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
 		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads());
 	}
@@ -75,6 +82,13 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		this.nThreads = numberOfThreads;
 	}
 
+	/**
+	 * Sets the directory in which the landmark distances are stored, see {@link PreProcessLandmarks#setCacheDirectory(String)}.
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
 			final TravelDisutility travelCosts, final TravelTime travelTimes) {
@@ -86,6 +100,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 
 			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 			preProcessLandmarks.setNumberOfThreads(nThreads);
+			preProcessLandmarks.setCacheDirectory(cacheDirectory);
 			preProcessLandmarks.run(network);
 			this.preProcessData.put(network, preProcessLandmarks);
 
@@ -44,6 +44,18 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies)) {
+            bind(LeastCostPathCalculatorFactory.class).to(ContractionHierarchiesFactory.class);
+            // the customized weights need to be discarded when the travel times change
+            addControlerListenerBinding().to(ContractionHierarchiesFactory.class);
+        }
+        // batched one-to-many routing, independent of the chosen algorithm
+        bind(OneToManyPathCalculatorFactory.class);
+
+        if (config.plansCalcRoute().getRouteCacheSize() > 0) {
+            bind(RouteCache.class);
+            // discards outdated routes and reports the hit rates
+            addControlerListenerBinding().to(RouteCache.class);
         }
     }
 
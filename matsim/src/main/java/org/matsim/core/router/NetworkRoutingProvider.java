@@ -32,6 +32,7 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import com.google.inject.name.Named;
@@ -55,6 +56,7 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject PopulationFactory populationFactory;
 	@Inject LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 	@Inject Scenario scenario ;
+	@com.google.inject.Inject(optional = true) RouteCache routeCache;
 	@Inject
 	@Named(TransportMode.walk)
 	private RoutingModule walkRouter;
@@ -116,11 +118,15 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
 		LeastCostPathCalculator routeAlgo =
 				leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
+						travelDisutility,
 						travelTime);
+		if (routeCache != null) {
+			routeAlgo = routeCache.wrap(mode.equals(routingMode) ? mode : mode + "," + routingMode, routeAlgo, travelDisutility, travelTime);
+		}
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( !plansCalcRouteConfigGroup.getAccessEgressType().equals(PlansCalcRouteConfigGroup.AccessEgressType.none) ) {
@@ -0,0 +1,272 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates least-cost paths from one origin to many destinations with a single (time-dependent) Dijkstra tree
+ * expansion, instead of one {@link org.matsim.core.router.util.LeastCostPathCalculator#calcLeastCostPath} call per
+ * destination. Many-to-many queries expand one tree per origin.
+ * <p>
+ * Usage:
+ * <pre>
+ * calculator.calcLeastCostPathTree(fromNode, toNodes, startTime, person, vehicle);
+ * double cost = calculator.getCost(toNode);
+ * Path path = calculator.getPath(toNode);
+ * </pre>
+ * The results of the last tree expansion stay available until the next one is started. Instances are not thread-safe,
+ * create one per thread with a {@link OneToManyPathCalculatorFactory}.
+ */
+public final class OneToManyPathCalculator {
+
+	private final ArrayRoutingNetwork routingNetwork;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final BinaryMinHeap<ArrayRoutingNetworkNode> pendingNodes;
+	private final double[] costs;
+	private final double[] times;
+	private final RoutingNetworkLink[] comingFrom;
+	/** nodes whose entries are equal to {@link #iteration} belong to the current tree */
+	private final int[] visited;
+	/** nodes whose entries are equal to {@link #iteration} are settled, i.e. their least cost is known */
+	private final int[] settled;
+	/** nodes whose entries are equal to {@link #iteration} are destinations of the current tree */
+	private final int[] destinations;
+	private int iteration = 0;
+
+	private double startTime;
+
+	OneToManyPathCalculator(final ArrayRoutingNetwork routingNetwork, final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.routingNetwork = routingNetwork;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+
+		int nodeCount = routingNetwork.getNodes().size();
+		this.pendingNodes = new BinaryMinHeap<>(nodeCount);
+		this.costs = new double[nodeCount];
+		this.times = new double[nodeCount];
+		this.comingFrom = new RoutingNetworkLink[nodeCount];
+		this.visited = new int[nodeCount];
+		this.settled = new int[nodeCount];
+		this.destinations = new int[nodeCount];
+	}
+
+	/**
+	 * Expands the least-cost path tree from the given node over the whole network.
+	 */
+	public void calcLeastCostPathTree(final Node fromNode, final double startTime, final Person person, final Vehicle vehicle) {
+		calcLeastCostPathTree(fromNode, Collections.emptyList(), startTime, person, vehicle);
+	}
+
+	/**
+	 * Expands the least-cost path tree from the given node until the least-cost paths to all given nodes are known.
+	 * If no nodes are given, the tree is expanded over the whole network.
+	 */
+	public void calcLeastCostPathTree(final Node fromNode, final Collection<? extends Node> toNodes, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		startTree(startTime);
+
+		int remainingDestinations = 0;
+		for (Node toNode : toNodes) {
+			int index = getRoutingNode(toNode).getArrayIndex();
+			if (this.destinations[index] != this.iteration) {
+				this.destinations[index] = this.iteration;
+				remainingDestinations++;
+			}
+		}
+		boolean stopEarly = remainingDestinations > 0;
+
+		ArrayRoutingNetworkNode startNode = getRoutingNode(fromNode);
+		visit(startNode, 0.0, startTime, null);
+
+		while (!this.pendingNodes.isEmpty()) {
+			ArrayRoutingNetworkNode node = this.pendingNodes.poll();
+			int index = node.getArrayIndex();
+			this.settled[index] = this.iteration;
+			if (stopEarly && this.destinations[index] == this.iteration && --remainingDestinations == 0) {
+				break;
+			}
+
+			double currentCost = this.costs[index];
+			double currentTime = this.times[index];
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				ArrayRoutingNetworkNode toNode = (ArrayRoutingNetworkNode) link.getToNode();
+				if (isSettled(toNode.getArrayIndex())) {
+					continue;
+				}
+				Link originalLink = link.getLink();
+				double linkTime = this.travelTime.getLinkTravelTime(originalLink, currentTime, person, vehicle);
+				double linkCost = this.travelDisutility.getLinkTravelDisutility(originalLink, currentTime, person, vehicle);
+				visit(toNode, currentCost + linkCost, currentTime + linkTime, link);
+			}
+		}
+	}
+
+	/**
+	 * Calculates the least-cost paths from one node to many nodes with a single tree expansion.
+	 *
+	 * @return the paths in the order of the given nodes, <code>null</code> for nodes that cannot be reached.
+	 */
+	public Path[] calcLeastCostPaths(final Node fromNode, final List<? extends Node> toNodes, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		calcLeastCostPathTree(fromNode, toNodes, startTime, person, vehicle);
+		Path[] paths = new Path[toNodes.size()];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = getPath(toNodes.get(i));
+		}
+		return paths;
+	}
+
+	/**
+	 * Calculates the least-cost paths from many nodes to many nodes with one tree expansion per origin.
+	 *
+	 * @return the paths indexed by origin and destination, <code>null</code> for destinations that cannot be reached.
+	 */
+	public Path[][] calcLeastCostPaths(final List<? extends Node> fromNodes, final List<? extends Node> toNodes,
+			final double startTime, final Person person, final Vehicle vehicle) {
+		Path[][] paths = new Path[fromNodes.size()][];
+		for (int i = 0; i < paths.length; i++) {
+			paths[i] = calcLeastCostPaths(fromNodes.get(i), toNodes, startTime, person, vehicle);
+		}
+		return paths;
+	}
+
+	/**
+	 * Calculates the least travel costs from many nodes to many nodes with one tree expansion per origin, without
+	 * building the paths.
+	 *
+	 * @return the costs indexed by origin and destination, {@link Double#POSITIVE_INFINITY} for destinations that
+	 * cannot be reached.
+	 */
+	public double[][] calcLeastCosts(final List<? extends Node> fromNodes, final List<? extends Node> toNodes,
+			final double startTime, final Person person, final Vehicle vehicle) {
+		double[][] costs = new double[fromNodes.size()][toNodes.size()];
+		for (int i = 0; i < costs.length; i++) {
+			calcLeastCostPathTree(fromNodes.get(i), toNodes, startTime, person, vehicle);
+			for (int j = 0; j < costs[i].length; j++) {
+				costs[i][j] = getCost(toNodes.get(j));
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * @return the least cost to the given node in the last expanded tree, {@link Double#POSITIVE_INFINITY} if the
+	 * node was not reached.
+	 */
+	public double getCost(final Node toNode) {
+		int index = getRoutingNode(toNode).getArrayIndex();
+		return isSettled(index) ? this.costs[index] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the arrival time at the given node in the last expanded tree, {@link Double#POSITIVE_INFINITY} if the
+	 * node was not reached.
+	 */
+	public double getArrivalTime(final Node toNode) {
+		int index = getRoutingNode(toNode).getArrayIndex();
+		return isSettled(index) ? this.times[index] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the least-cost path to the given node in the last expanded tree, <code>null</code> if the node was not
+	 * reached.
+	 */
+	public Path getPath(final Node toNode) {
+		ArrayRoutingNetworkNode node = getRoutingNode(toNode);
+		int index = node.getArrayIndex();
+		if (!isSettled(index)) {
+			return null;
+		}
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(node.getNode());
+		RoutingNetworkLink link = this.comingFrom[index];
+		while (link != null) {
+			links.add(link.getLink());
+			nodes.add(link.getFromNode().getNode());
+			link = this.comingFrom[((ArrayRoutingNetworkNode) link.getFromNode()).getArrayIndex()];
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.times[index] - this.startTime, this.costs[index]);
+	}
+
+	private void startTree(final double startTime) {
+		this.iteration++;
+		if (this.iteration == Integer.MAX_VALUE) {
+			// the markers would overflow, so start over
+			Arrays.fill(this.visited, 0);
+			Arrays.fill(this.settled, 0);
+			Arrays.fill(this.destinations, 0);
+			this.iteration = 1;
+		}
+		this.pendingNodes.reset();
+		this.startTime = startTime;
+	}
+
+	private void visit(final ArrayRoutingNetworkNode node, final double cost, final double time, final RoutingNetworkLink link) {
+		int index = node.getArrayIndex();
+		if (this.visited[index] == this.iteration) {
+			if (cost >= this.costs[index]) {
+				return;
+			}
+			this.pendingNodes.decreaseKey(node, cost);
+		} else {
+			this.visited[index] = this.iteration;
+			this.pendingNodes.add(node, cost);
+		}
+		this.costs[index] = cost;
+		this.times[index] = time;
+		this.comingFrom[index] = link;
+	}
+
+	private boolean isSettled(final int index) {
+		return this.settled[index] == this.iteration;
+	}
+
+	private ArrayRoutingNetworkNode getRoutingNode(final Node node) {
+		RoutingNetworkNode routingNode = this.routingNetwork.getNodes().get(node.getId());
+		if (routingNode == null) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the routed network.");
+		}
+		return (ArrayRoutingNetworkNode) routingNode;
+	}
+
+}
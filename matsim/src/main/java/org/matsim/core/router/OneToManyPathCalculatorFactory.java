@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link OneToManyPathCalculator}s. The routing network of each network is only built once and shared by
+ * all calculators created for it.
+ * <p>
+ * Bound in the controler, so it can be injected wherever many paths with shared origins are needed, e.g. for skims
+ * or accessibility computations.
+ */
+@Singleton
+public class OneToManyPathCalculatorFactory {
+
+	private final ArrayRoutingNetworkFactory routingNetworkFactory = new ArrayRoutingNetworkFactory();
+	private final Map<Network, ArrayRoutingNetwork> routingNetworks = new HashMap<>();
+
+	public OneToManyPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		return new OneToManyPathCalculator(getRoutingNetwork(network), travelCosts, travelTimes);
+	}
+
+	private synchronized ArrayRoutingNetwork getRoutingNetwork(final Network network) {
+		return this.routingNetworks.computeIfAbsent(network, this.routingNetworkFactory::createRoutingNetwork);
+	}
+
+}
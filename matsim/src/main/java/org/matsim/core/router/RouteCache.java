@@ -0,0 +1,271 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Caches network routes across persons and iterations, keyed by start node, end node, mode and departure time bin.
+ * <p>
+ * When a route is cached, the travel times of its links are remembered. At the beginning of each iteration, i.e. after
+ * the travel times have been updated from the last mobsim, routes are discarded if the travel time of one of their
+ * links has changed by more than the configured threshold. The number of cached routes is bounded; the least recently
+ * used ones are evicted first. Hit rates are logged at the end of each iteration.
+ * <p>
+ * On a hit, travel time and cost of the route are re-evaluated for the actual departure time and person, but the links
+ * are the ones found for the person who caused the route to be cached. The node and link lists of such paths are
+ * shared by all hits and thus cannot be modified.
+ *
+ * @see PlansCalcRouteConfigGroup#getRouteCacheSize()
+ */
+@Singleton
+public final class RouteCache implements IterationStartsListener, IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(RouteCache.class);
+
+	private final int maxSize;
+	private final double timeBinSize;
+	private final double invalidationThreshold;
+
+	private final Map<Key, CachedPath> paths;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	@Inject
+	RouteCache(final PlansCalcRouteConfigGroup config) {
+		this(config.getRouteCacheSize(), config.getRouteCacheTimeBinSize(), config.getRouteCacheInvalidationThreshold());
+		if (isEnabled() && config.getRoutingRandomness() != 0) {
+			log.warn("The route cache ignores the routing randomness of " + config.getRoutingRandomness()
+					+ ", all persons get the same routes for the same origin, destination and time bin.");
+		}
+	}
+
+	public RouteCache(final int maxSize, final double timeBinSize, final double invalidationThreshold) {
+		this.maxSize = maxSize;
+		this.timeBinSize = timeBinSize;
+		this.invalidationThreshold = invalidationThreshold;
+		this.paths = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+				return size() > RouteCache.this.maxSize;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return this.maxSize > 0;
+	}
+
+	/**
+	 * @param mode used to distinguish the routes of different modes, which may share nodes
+	 * @return a calculator which returns cached routes where possible and asks the given calculator otherwise.
+	 */
+	public LeastCostPathCalculator wrap(final String mode, final LeastCostPathCalculator delegate,
+			final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		return new CachingPathCalculator(mode, delegate, travelDisutility, travelTime);
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	public synchronized int size() {
+		return this.paths.size();
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		int invalidated = invalidateChangedPaths();
+		if (isEnabled()) {
+			log.info("route cache: " + invalidated + " routes discarded because of changed travel times, " + size() + " remaining.");
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		if (isEnabled()) {
+			long hits = this.hits.sumThenReset();
+			long misses = this.misses.sumThenReset();
+			double hitRate = hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses);
+			log.info("route cache in iteration " + event.getIteration() + ": " + hits + " hits, " + misses + " misses, hit rate "
+					+ String.format("%.1f", hitRate) + "%.");
+		}
+	}
+
+	/**
+	 * Discards all routes where the travel time of a link changed by more than the threshold since the route was cached.
+	 *
+	 * @return the number of discarded routes
+	 */
+	synchronized int invalidateChangedPaths() {
+		int invalidated = 0;
+		Iterator<CachedPath> iterator = this.paths.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().hasChanged(this.invalidationThreshold)) {
+				iterator.remove();
+				invalidated++;
+			}
+		}
+		return invalidated;
+	}
+
+	private synchronized CachedPath get(final Key key) {
+		return this.paths.get(key);
+	}
+
+	private synchronized void put(final Key key, final CachedPath path) {
+		this.paths.put(key, path);
+	}
+
+	private final class CachingPathCalculator implements LeastCostPathCalculator {
+
+		private final String mode;
+		private final LeastCostPathCalculator delegate;
+		private final TravelDisutility travelDisutility;
+		private final TravelTime travelTime;
+
+		CachingPathCalculator(final String mode, final LeastCostPathCalculator delegate, final TravelDisutility travelDisutility,
+				final TravelTime travelTime) {
+			this.mode = mode;
+			this.delegate = delegate;
+			this.travelDisutility = travelDisutility;
+			this.travelTime = travelTime;
+		}
+
+		@Override
+		public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+			Key key = new Key(fromNode.getId(), toNode.getId(), this.mode, (int) Math.floor(starttime / RouteCache.this.timeBinSize));
+			CachedPath cached = get(key);
+			if (cached != null) {
+				RouteCache.this.hits.increment();
+				return evaluate(cached, starttime, person, vehicle);
+			}
+			RouteCache.this.misses.increment();
+			Path path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			if (path != null) {
+				put(key, new CachedPath(path.nodes, path.links, starttime, this.travelTime));
+			}
+			return path;
+		}
+
+		private Path evaluate(final CachedPath cached, final double starttime, final Person person, final Vehicle vehicle) {
+			double time = starttime;
+			double cost = 0;
+			for (Link link : cached.links) {
+				cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+				time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+			return new Path(cached.nodes, cached.links, time - starttime, cost);
+		}
+	}
+
+	private static final class CachedPath {
+		private final List<Node> nodes;
+		private final List<Link> links;
+		private final TravelTime travelTime;
+		private final double[] enterTimes;
+		private final double[] linkTravelTimes;
+
+		CachedPath(final List<Node> nodes, final List<Link> links, final double starttime, final TravelTime travelTime) {
+			// copies, as the lists of the original path belong to whoever asked for it
+			this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+			this.links = Collections.unmodifiableList(new ArrayList<>(links));
+			this.travelTime = travelTime;
+			this.enterTimes = new double[links.size()];
+			this.linkTravelTimes = new double[links.size()];
+			double time = starttime;
+			for (int i = 0; i < this.enterTimes.length; i++) {
+				this.enterTimes[i] = time;
+				this.linkTravelTimes[i] = travelTime.getLinkTravelTime(links.get(i), time, null, null);
+				time += this.linkTravelTimes[i];
+			}
+		}
+
+		boolean hasChanged(final double threshold) {
+			for (int i = 0; i < this.enterTimes.length; i++) {
+				double linkTravelTime = this.travelTime.getLinkTravelTime(this.links.get(i), this.enterTimes[i], null, null);
+				if (Math.abs(linkTravelTime - this.linkTravelTimes[i]) > threshold * this.linkTravelTimes[i]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class Key {
+		private final Id<Node> fromNodeId;
+		private final Id<Node> toNodeId;
+		private final String mode;
+		private final int timeBin;
+
+		Key(final Id<Node> fromNodeId, final Id<Node> toNodeId, final String mode, final int timeBin) {
+			this.fromNodeId = fromNodeId;
+			this.toNodeId = toNodeId;
+			this.mode = mode;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return this.timeBin == other.timeBin && this.fromNodeId.equals(other.fromNodeId) && this.toNodeId.equals(other.toNodeId)
+					&& this.mode.equals(other.mode);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.fromNodeId, this.toNodeId, this.mode, this.timeBin);
+		}
+	}
+
+}
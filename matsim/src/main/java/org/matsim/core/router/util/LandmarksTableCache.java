@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import static org.matsim.core.utils.io.CacheFileUtils.mix;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.PreProcessLandmarks.LandmarksData;
+import org.matsim.core.utils.io.CacheFileUtils;
+
+/**
+ * Persists the landmark cost tables computed by {@link PreProcessLandmarks} to a binary file, so that they do not need
+ * to be re-computed when the same network is routed with the same travel disutility again, e.g. when a run is
+ * restarted or several runs of an ensemble share a network.
+ * <p>
+ * The file name is derived from a hash of the network topology and a fingerprint of the minimal travel disutility
+ * of all links, which are the only inputs of the landmark Dijkstras. The file itself stores the landmarks and, for
+ * each node in the iteration order of the network, the minimal and maximal cost to/from each landmark.
+ */
+final class LandmarksTableCache {
+
+	private static final Logger log = Logger.getLogger(LandmarksTableCache.class);
+
+	private static final int MAGIC = 0x4c4d4b54; // "LMKT"
+	private static final int VERSION = 1;
+
+	private final File file;
+	private final long networkHash;
+	private final long disutilityFingerprint;
+
+	LandmarksTableCache(final String directory, final Network network, final TravelDisutility costFunction, final int landmarkCount) {
+		this.networkHash = computeNetworkHash(network);
+		this.disutilityFingerprint = computeDisutilityFingerprint(network, costFunction);
+		this.file = new File(directory, "landmarks_" + Long.toHexString(this.networkHash) + "_"
+				+ Long.toHexString(this.disutilityFingerprint) + "_" + landmarkCount + ".bin");
+	}
+
+	File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Fills the landmark data of all nodes from the cache file.
+	 *
+	 * @return <code>false</code> if there is no matching cache file, in which case the landmark data must be computed.
+	 */
+	boolean read(final Network network, final Node[] landmarks, final PreProcessLandmarks preProcessData) {
+		if (!this.file.exists()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file.toPath())))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| in.readLong() != this.networkHash || in.readLong() != this.disutilityFingerprint
+					|| in.readInt() != network.getNodes().size() || in.readInt() != landmarks.length) {
+				log.warn("Landmarks file " + this.file + " does not match the network, ignoring it.");
+				return false;
+			}
+			for (Node landmark : landmarks) {
+				if (!landmark.getId().toString().equals(in.readUTF())) {
+					log.warn("Landmarks file " + this.file + " was written for other landmarks, ignoring it.");
+					return false;
+				}
+			}
+			for (Node node : network.getNodes().values()) {
+				LandmarksData data = preProcessData.getNodeData(node);
+				for (int i = 0; i < landmarks.length; i++) {
+					data.setFromLandmarkTravelTime(i, in.readDouble());
+					data.setToLandmarkTravelTime(i, in.readDouble());
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			log.warn("Could not read landmarks file " + this.file + ", landmarks will be re-computed.", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the landmark data of all nodes to the cache file, see {@link CacheFileUtils#writeAtomically}.
+	 */
+	void write(final Network network, final Node[] landmarks, final PreProcessLandmarks preProcessData) {
+		try {
+			CacheFileUtils.writeAtomically(this.file, out -> {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(this.networkHash);
+				out.writeLong(this.disutilityFingerprint);
+				out.writeInt(network.getNodes().size());
+				out.writeInt(landmarks.length);
+				for (Node landmark : landmarks) {
+					out.writeUTF(landmark.getId().toString());
+				}
+				for (Node node : network.getNodes().values()) {
+					LandmarksData data = preProcessData.getNodeData(node);
+					for (int i = 0; i < landmarks.length; i++) {
+						out.writeDouble(data.getMinLandmarkTravelTime(i));
+						out.writeDouble(data.getMaxLandmarkTravelTime(i));
+					}
+				}
+			});
+			log.info("Landmarks written to " + this.file);
+		} catch (IOException e) {
+			log.warn("Could not write landmarks file " + this.file, e);
+		}
+	}
+
+	static long computeNetworkHash(final Network network) {
+		long hash = CacheFileUtils.HASH_SEED;
+		hash = mix(hash, network.getNodes().size());
+		for (Node node : network.getNodes().values()) {
+			hash = mix(hash, node.getId().toString().hashCode());
+		}
+		hash = mix(hash, network.getLinks().size());
+		for (Link link : network.getLinks().values()) {
+			hash = mix(hash, link.getId().toString().hashCode());
+			hash = mix(hash, link.getFromNode().getId().toString().hashCode());
+			hash = mix(hash, link.getToNode().getId().toString().hashCode());
+		}
+		return hash;
+	}
+
+	static long computeDisutilityFingerprint(final Network network, final TravelDisutility costFunction) {
+		long hash = CacheFileUtils.HASH_SEED;
+		for (Link link : network.getLinks().values()) {
+			hash = mix(hash, Double.doubleToLongBits(costFunction.getLinkMinimumTravelDisutility(link)));
+		}
+		return hash;
+	}
+
+}
@@ -53,6 +53,8 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -83,6 +85,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.numberOfThreads = numberOfThreads;
 	}
 	
+	/**
+	 * Sets a directory in which the computed distances to/from the landmarks are stored, keyed by a hash of the network
+	 * and a fingerprint of the travel disutility. If a matching file already exists, the distances are read from it
+	 * instead of being computed. Default is <code>null</code>, i.e. the distances are always computed.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	/**
 	 * @param costFunction
 	 * @param travelZone The area within which the landmarks should lie. Narrowing the zone where the landmarks should
@@ -115,21 +128,23 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
-		}
-		
-		int nOfThreads = this.numberOfThreads;
-		if (nOfThreads > this.landmarks.length) {
-			nOfThreads = this.landmarks.length;
-		}
-		if (nOfThreads < 2) {
-			nOfThreads = 2; // always use at least two threads
+		initializeLandmarksData(network);
+
+		LandmarksTableCache cache = null;
+		if (this.cacheDirectory != null) {
+			cache = new LandmarksTableCache(this.cacheDirectory, network, this.costFunction, this.landmarkCount);
+			if (cache.read(network, this.landmarks, this)) {
+				log.info("Distances to the landmarks read from " + cache.getFile());
+				return;
+			}
+			// the file may have been read partially
+			initializeLandmarksData(network);
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
+
+		int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, this.landmarks.length));
+		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
 		now = System.currentTimeMillis();
 
-		
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
 			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
@@ -161,6 +176,16 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		if (cache != null) {
+			cache.write(network, this.landmarks, this);
+		}
+	}
+
+	private void initializeLandmarksData(final Network network) {
+		for (Node node : network.getNodes().values()) {
+			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		}
 	}
 
 	private static class Calculator implements Runnable {
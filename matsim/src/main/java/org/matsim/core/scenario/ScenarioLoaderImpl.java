@@ -33,6 +33,8 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.BinaryPopulationFormat;
+import org.matsim.core.population.io.BinaryPopulationReader;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
@@ -197,9 +199,15 @@ class ScenarioLoaderImpl {
             final String targetCRS = config.global().getCoordinateSystem();
 			final String internalCRS = config.global().getCoordinateSystem();
 
-            final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse( populationFileName );
+            if ( BinaryPopulationFormat.isBinaryPopulationFile( populationFileName.getPath() ) ) {
+                final BinaryPopulationReader reader = new BinaryPopulationReader(targetCRS, internalCRS, this.scenario);
+                reader.putAttributeConverters( attributeConverters );
+                reader.readURL( populationFileName );
+            } else {
+                final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
+                reader.putAttributeConverters( attributeConverters );
+                reader.parse( populationFileName );
+            }
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
@@ -115,7 +115,9 @@ public final class EventsToScore {
 
 	/**
 	 * Finishes the calculation of the plans' scores and assigns the new scores
-	 * to the plans if desired.
+	 * to the plans if desired. If more than one scoring thread is configured
+	 * ({@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}),
+	 * the scoring functions are finished in parallel.
 	 */
 	public void finish() {
 		if (iteration == -1) {
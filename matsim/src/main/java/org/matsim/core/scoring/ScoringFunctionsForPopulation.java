@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.Config;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -54,8 +55,13 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -64,6 +70,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * With more than one scoring thread, the population is partitioned by person. The events, legs and activities are
+ * still received on the events handling thread, but are then handed over in batches to the thread of the person's
+ * partition, which keeps their order per person. The scoring functions are also finished in parallel. This requires
+ * that the scoring functions of different persons do not share any mutable state.
  * 
  * @author michaz
  *
@@ -92,9 +103,29 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	private static final int PARTITION_BATCH_SIZE = 1000;
+	private static final int PARTITION_QUEUE_CAPACITY = 16;
+	private static final long PARTITION_QUEUE_TIMEOUT_MS = 100;
+	private static final List<Runnable> END_OF_PARTITION = Collections.emptyList();
+
+	private final int numberOfThreads;
+	private ScoringPartition[] partitions = null;
+
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, Config config) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				config.planCalcScore().getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -108,13 +139,34 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		eventsToLegs.addLegHandler(this);
 	}
 
-	private void init() {
+	private synchronized void init() {
+		// threads left over from an iteration that was not finished
+		stopPartitions();
+		this.exception.set(null);
+
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+
+		if (this.numberOfThreads > 1) {
+			this.partitions = new ScoringPartition[this.numberOfThreads];
+			for (int i = 0; i < this.numberOfThreads; i++) {
+				this.partitions[i] = new ScoringPartition(i);
+			}
+			for (Person person : this.population.getPersons().values()) {
+				getPartition(person.getId()).personIds.add(person.getId());
+			}
+			for (ScoringPartition partition : this.partitions) {
+				partition.thread.start();
+			}
+		}
+	}
+
+	private ScoringPartition getPartition(Id<Person> personId) {
+		return this.partitions[Math.floorMod(personId.index(), this.partitions.length)];
 	}
 
 	@Override
@@ -125,21 +177,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
 			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} else if (o instanceof PersonScoreEvent) {
-					scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+				if (this.partitions == null) {
+					handlePersonEvent(scoringFunction, o);
+				} else {
+					getPartition(personId).add(() -> handlePersonEvent(scoringFunction, o));
 				}
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
 			}
 		}
 
@@ -164,13 +209,41 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
+				if (this.partitions == null) {
+					scoringFunction.handleEvent(o);
+				} else {
+					getPartition(driverId).add(() -> scoringFunction.handleEvent(o));
+				}
 			}
 		}
 	}
 
+	private void handlePersonEvent(ScoringFunction scoringFunction, Event o) {
+		if (o instanceof PersonStuckEvent) {
+			scoringFunction.agentStuck(o.getTime());
+		} else if (o instanceof PersonMoneyEvent) {
+			scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+			// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+			// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+		} else if (o instanceof PersonScoreEvent) {
+			scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+		}
+//		else {
+			scoringFunction.handleEvent(o);
+			// passing this on in any case, see comment above.  kai, mar'17
+//		}
+	}
+
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		if (this.partitions == null) {
+			scoreLeg(o);
+		} else if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+			getPartition(o.getAgentId()).add(() -> scoreLeg(o));
+		}
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -187,6 +260,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		if (this.partitions == null) {
+			scoreActivity(o);
+		} else if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+			getPartition(o.getAgentId()).add(() -> scoreActivity(o));
+		}
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -242,7 +323,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		return this.agentScorers.get(agentId);
 	}
 
-	public void finishScoringFunctions() {
+	public synchronized void finishScoringFunctions() {
+		if (this.partitions != null) {
+			// the remaining events are scored before the scoring functions of the partition are finished
+			for (ScoringPartition partition : this.partitions) {
+				partition.add(partition::finishScoringFunctions);
+			}
+			stopPartitions();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -252,6 +340,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfThreads > 1) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -260,6 +351,24 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
+	private void stopPartitions() {
+		if (this.partitions == null) {
+			return;
+		}
+		for (ScoringPartition partition : this.partitions) {
+			partition.flush();
+			partition.put(END_OF_PARTITION);
+		}
+		try {
+			for (ScoringPartition partition : this.partitions) {
+				partition.thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.partitions = null;
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -281,4 +390,92 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	/**
+	 * The persons of one partition, and the thread scoring them. The tasks are collected in batches, so that the
+	 * queue is not accessed for every single event.
+	 */
+	private final class ScoringPartition implements Runnable {
+
+		private final List<Id<Person>> personIds = new ArrayList<>();
+		private final BlockingQueue<List<Runnable>> queue = new ArrayBlockingQueue<>(PARTITION_QUEUE_CAPACITY);
+		private final Thread thread;
+		private List<Runnable> batch = new ArrayList<>(PARTITION_BATCH_SIZE);
+
+		ScoringPartition(int index) {
+			this.thread = new Thread(this, ScoringFunctionsForPopulation.class.getSimpleName() + index);
+			this.thread.setDaemon(true);
+		}
+
+		void add(Runnable task) {
+			this.batch.add(task);
+			if (this.batch.size() >= PARTITION_BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (exception.get() != null) {
+				// the partition threads skip all tasks after an exception
+				this.batch.clear();
+			} else if (!this.batch.isEmpty()) {
+				put(this.batch);
+				this.batch = new ArrayList<>(PARTITION_BATCH_SIZE);
+			}
+		}
+
+		/**
+		 * Waits until there is room for the tasks in the queue. If the thread of the partition is not alive
+		 * anymore, nobody would ever make room, so the tasks are dropped.
+		 */
+		void put(List<Runnable> tasks) {
+			try {
+				while (!this.queue.offer(tasks, PARTITION_QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+					if (!this.thread.isAlive()) {
+						exception.compareAndSet(null, new IllegalStateException("Thread " + this.thread.getName() + " stopped unexpectedly."));
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		void finishScoringFunctions() {
+			for (Id<Person> personId : this.personIds) {
+				ScoringFunction sf = getScoringFunctionForAgent(personId);
+				sf.finish();
+				partialScores.get(personId).add(sf.getScore());
+			}
+		}
+
+		@Override
+		public void run() {
+			/*
+			 * After an exception, the remaining tasks are only consumed so that the
+			 * events handling thread is not blocked by a full queue.
+			 */
+			try {
+				while (true) {
+					List<Runnable> tasks = this.queue.take();
+					if (tasks == END_OF_PARTITION) {
+						return;
+					}
+					if (exception.get() != null) {
+						continue;
+					}
+					try {
+						for (Runnable task : tasks) {
+							task.run();
+						}
+					} catch (Throwable t) {
+						exception.compareAndSet(null, t);
+					}
+				}
+			} catch (Throwable t) {
+				// e.g. an InterruptedException, after which this thread does not consume tasks anymore
+				exception.compareAndSet(null, t);
+			}
+		}
+	}
+
 }
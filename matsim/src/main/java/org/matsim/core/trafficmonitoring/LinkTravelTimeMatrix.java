@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkTravelTimeMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.HasIndex;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * A {@link TravelTime} for routers working on an {@link org.matsim.core.router.util.ArrayRoutingNetwork}. The travel
+ * times of all links and time slots are copied into one dense array when the matrix is created, so that a query is
+ * answered by the link's array index and one or two array reads, without map lookups and without allocation.
+ * <p>
+ * The matrix is a snapshot: it does not see travel times that are added to the {@link TravelTimeCalculator} after its
+ * creation. Empty time slots contain the free speed travel time at the start of the time slot, which differs from the
+ * calculator only for time-variant links. Queries for links without an array index, or whose array index belongs to
+ * another link in the routing network of the matrix, are forwarded to the calculator.
+ *
+ * @see TravelTimeCalculator#createLinkTravelTimeMatrix(org.matsim.core.router.util.ArrayRoutingNetwork)
+ */
+public final class LinkTravelTimeMatrix implements TravelTime {
+
+	private final Id<Link>[] linkIds;
+	private final double[] travelTimes;
+	private final int numSlots;
+	private final int travelTimeBinSize;
+	private final double halfBinSize;
+	private final boolean interpolate;
+	private final TravelTime fallback;
+
+	LinkTravelTimeMatrix(Id<Link>[] linkIds, double[] travelTimes, int numSlots, int travelTimeBinSize, boolean interpolate, TravelTime fallback) {
+		this.linkIds = linkIds;
+		this.travelTimes = travelTimes;
+		this.numSlots = numSlots;
+		this.travelTimeBinSize = travelTimeBinSize;
+		this.halfBinSize = ((double) travelTimeBinSize) / 2;
+		this.interpolate = interpolate;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+		if (!(link instanceof HasIndex)) {
+			return this.fallback.getLinkTravelTime(link, time, person, vehicle);
+		}
+		int index = ((HasIndex) link).getArrayIndex();
+		// ids are unique objects, so this detects links of another routing network
+		if (index < 0 || index >= this.linkIds.length || this.linkIds[index] != link.getId()) {
+			return this.fallback.getLinkTravelTime(link, time, person, vehicle);
+		}
+		int offset = index * this.numSlots;
+		double travelTime = this.interpolate ? getInterpolatedTravelTime(offset, time) : this.travelTimes[offset + getTimeSlotIndex(time)];
+
+		// same as TravelTimeCalculator.getLinkTravelTimes(): never faster than the vehicle can go
+		if (vehicle != null) {
+			VehicleType vehicleType = vehicle.getType();
+			if (vehicleType != null) {
+				return Math.max(link.getLength() / vehicleType.getMaximumVelocity(), travelTime);
+			}
+		}
+		return travelTime;
+	}
+
+	/**
+	 * Same as {@link LinearInterpolatingTravelTimeGetter}, but working on the slots of the link starting at <code>offset</code>.
+	 */
+	private double getInterpolatedTravelTime(int offset, double time) {
+		final int timeSlot = getTimeSlotIndex(time);
+		if (time <= this.halfBinSize || time >= this.numSlots * this.travelTimeBinSize - this.halfBinSize) {
+			return this.travelTimes[offset + timeSlot];
+		}
+		int firstSlot = (timeSlot * this.travelTimeBinSize + this.halfBinSize > time) ? timeSlot - 1 : timeSlot;
+		double firstTravelTime = this.travelTimes[offset + firstSlot];
+		double secondTravelTime = this.travelTimes[offset + firstSlot + 1];
+		double dx = time - (firstSlot * this.travelTimeBinSize + this.halfBinSize);
+		return firstTravelTime + (secondTravelTime - firstTravelTime) * dx / this.travelTimeBinSize;
+	}
+
+	private int getTimeSlotIndex(double time) {
+		return TimeBinUtils.getTimeBinIndex(time, this.travelTimeBinSize, this.numSlots);
+	}
+
+}
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * One contiguous storage for the travel time slots of many links. Each slot is a single <code>long</code> which packs
+ * the sum of the observed travel times as <code>float</code> into the upper 32 bits and the number of observations into
+ * the lower 32 bits, so that observations can be added with a single compare-and-set, without locking.
+ * <p>
+ * The slots are either kept in a <code>long[]</code> on the heap, or in direct (off-heap) buffers, which are limited by
+ * <code>-XX:MaxDirectMemorySize</code> instead of the heap size.
+ */
+final class PackedTravelTimeSlots {
+
+	private static final VarHandle ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final VarHandle BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	/** a direct buffer can hold at most 2^31 bytes, so off-heap slots are split into chunks of 2^26 slots */
+	private static final int CHUNK_BITS = 26;
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+	private final long[] array;
+	private final ByteBuffer[] buffers;
+
+	PackedTravelTimeSlots(final long size, final boolean offHeap) {
+		if (offHeap) {
+			this.array = null;
+			int chunks = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+			this.buffers = new ByteBuffer[chunks];
+			for (int i = 0; i < chunks; i++) {
+				long chunkSize = Math.min(1L << CHUNK_BITS, size - ((long) i << CHUNK_BITS));
+				// compare-and-set requires 8-byte aligned slots
+				this.buffers[i] = ByteBuffer.allocateDirect((int) chunkSize * Long.BYTES + Long.BYTES).alignedSlice(Long.BYTES)
+						.order(ByteOrder.nativeOrder());
+			}
+		} else {
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException(size + " travel time slots do not fit into an array, use off-heap storage instead.");
+			}
+			this.array = new long[(int) size];
+			this.buffers = null;
+		}
+	}
+
+	void add(final long slot, final double travelTime) {
+		add(slot, travelTime, 1);
+	}
+
+	void add(final long slot, final double travelTimeSum, final int count) {
+		long current;
+		long next;
+		do {
+			current = get(slot);
+			next = pack(getSum(current) + (float) travelTimeSum, getCount(current) + count);
+		} while (!compareAndSet(slot, current, next));
+	}
+
+	void set(final long slot, final double travelTime) {
+		setVolatile(slot, pack((float) travelTime, 1));
+	}
+
+	/**
+	 * @return the average of the observed travel times, or a negative value if there were no observations.
+	 */
+	double getAverage(final long slot) {
+		long value = get(slot);
+		int count = getCount(value);
+		return count == 0 ? -1.0 : (double) getSum(value) / count;
+	}
+
+	void reset(final long fromSlot, final long toSlot) {
+		for (long slot = fromSlot; slot < toSlot; slot++) {
+			setVolatile(slot, 0L);
+		}
+	}
+
+	private long get(final long slot) {
+		if (this.array != null) {
+			return (long) ARRAY.getVolatile(this.array, (int) slot);
+		}
+		return (long) BUFFER.getVolatile(this.buffers[(int) (slot >>> CHUNK_BITS)], (int) (slot & CHUNK_MASK) * Long.BYTES);
+	}
+
+	private void setVolatile(final long slot, final long value) {
+		if (this.array != null) {
+			ARRAY.setVolatile(this.array, (int) slot, value);
+		} else {
+			BUFFER.setVolatile(this.buffers[(int) (slot >>> CHUNK_BITS)], (int) (slot & CHUNK_MASK) * Long.BYTES, value);
+		}
+	}
+
+	private boolean compareAndSet(final long slot, final long expected, final long value) {
+		if (this.array != null) {
+			return ARRAY.compareAndSet(this.array, (int) slot, expected, value);
+		}
+		return BUFFER.compareAndSet(this.buffers[(int) (slot >>> CHUNK_BITS)], (int) (slot & CHUNK_MASK) * Long.BYTES, expected, value);
+	}
+
+	private static long pack(final float sum, final int count) {
+		return ((long) Float.floatToRawIntBits(sum) << 32) | (count & 0xffffffffL);
+	}
+
+	private static float getSum(final long value) {
+		return Float.intBitsToFloat((int) (value >>> 32));
+	}
+
+	private static int getCount(final long value) {
+		return (int) value;
+	}
+
+}
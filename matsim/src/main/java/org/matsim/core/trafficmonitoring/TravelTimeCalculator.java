@@ -38,17 +38,26 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.router.priorityqueue.HasIndex;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,7 +72,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. For very large networks, {@link TravelTimeDataPacked} keeps the travel times
+ * of all links in one contiguous storage, optionally off-heap, which also allows to aggregate travel times
+ * from several threads.
+ * <br>
+ * With more than one shard, the events are not handled by the calculator itself, but by {@link Shard}s, each of which
+ * handles the events of a part of the vehicles and aggregates their travel times in its own accumulators. A parallel
+ * events manager can run the shards in different threads; their accumulators are merged into the travel time data
+ * when travel times are requested the next time. Use {@link #addEventHandlers(EventsManager)} to register the calculator.
  *
  * @author dgrether
  * @author mrieser
@@ -100,6 +116,12 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	/** if <code>null</code>, {@link #ttDataFactory} is also used for the link-to-link travel times */
+	private TravelTimeDataFactory linkToLinkTtDataFactory = null;
+
+	/** <code>null</code> if the calculator handles the events itself */
+	private final Shard[] shards;
+
 	@Inject private QSimConfigGroup qsimConfig ;
 	TravelTimeGetter travelTimeGetter ;
 
@@ -122,6 +144,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorPackedArray:
+			case TravelTimeCalculatorPackedOffHeap:
+				boolean offHeap = config.getTravelTimeCalculatorType() == TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorPackedOffHeap;
+				calculator.ttDataFactory = new TravelTimeDataPackedFactory(network, calculator.numSlots, offHeap);
+				// the packed storage only has room for the links, turns are stored separately
+				calculator.linkToLinkTtDataFactory = new TravelTimeDataArrayFactory(network, calculator.numSlots);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -142,11 +171,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Deprecated // user builder instead.  kai, feb'19
 	@Inject // yyyy why is this needed?  In general, this class is NOT injected, but explicitly constructed in TravelTimeCalculatorModule.  kai, feb'19
-	TravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, EventsManager eventsManager, Network network) {
+	TravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, ParallelEventHandlingConfigGroup parallelConfigGroup, EventsManager eventsManager,
+				   Network network) {
 		// this injected constructor is not used when getSeparateModes is true
 		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(),
-			  ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ) );
-		eventsManager.addHandler(this);
+			  ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ),
+			  getNumberOfShards(ttconfigGroup, parallelConfigGroup) );
+		this.addEventHandlers(eventsManager);
 		configure(this, ttconfigGroup, network);
 	}
 
@@ -160,7 +191,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	@Deprecated // user builder instead.  kai, feb'19
 	public TravelTimeCalculator(final Network network, final int timeslice, final int maxTime, TravelTimeCalculatorConfigGroup ttconfigGroup) {
 		this(network, timeslice, maxTime, ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(),
-			  CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ) );
+			  CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ), 1 );
 	}
 
 	public final static class Builder {
@@ -173,6 +204,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		private boolean calculateLinkToLinkTravelTimes = false ;
 		private boolean filterModes = false ;
 		private Set<String> analyzedModes = null ;
+		private int numberOfShards = 1 ;
 		private TravelTimeCalculatorConfigGroup ttcConfig;
 		private boolean toBeConfigured = false ;
 
@@ -204,6 +236,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			this.analyzedModes = analyzedModes;
 		}
 
+		/**
+		 * Splits the aggregation of the travel times by vehicle over the given number of event handlers, see
+		 * {@link TravelTimeCalculator#addEventHandlers(EventsManager)}.
+		 */
+		public void setNumberOfShards( int numberOfShards ){
+			this.numberOfShards = numberOfShards;
+		}
+
 		public void configure ( TravelTimeCalculatorConfigGroup ttcConfig ) {
 			// yyyyyy this is a fix to get the outward API sorted out somewhat better.  kai, feb'19
 			// yyyyyy presumably would like to replace this with setters for {@link TravelTimeDataFactory} and {@link TravelTimeGetter}.  But it ain't that easy because
@@ -215,7 +255,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 		public TravelTimeCalculator build() {
 			TravelTimeCalculator abc = new TravelTimeCalculator( network, timeslice, maxTime, calculateLinkTravelTimes, calculateLinkToLinkTravelTimes, filterModes,
-				  analyzedModes );
+				  analyzedModes, numberOfShards );
 			if( toBeConfigured ){
 				TravelTimeCalculator.configure( abc, this.ttcConfig, this.network );
 			}
@@ -225,7 +265,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	}
 
 	private TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
-				   boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+				   boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes,
+				   int numberOfShards) {
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -259,8 +300,17 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		// (concurrent, since events may be handled by several threads)
+		this.vehiclesToIgnore = ConcurrentHashMap.newKeySet();
 
+		if (numberOfShards > 1) {
+			this.shards = new Shard[numberOfShards];
+			for (int i = 0; i < numberOfShards; i++) {
+				this.shards[i] = new Shard(i);
+			}
+		} else {
+			this.shards = null;
+		}
 
 		this.reset(0);
 
@@ -338,23 +388,28 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
 			// this functionality is no longer there.
 
-			if (this.calculateLinkToLinkTravelTimes
-					&& event.getTime() < qsimConfig.getEndTime().seconds()
-				// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17)
-			){
-				log.error(ERROR_STUCK_AND_LINKTOLINK);
-				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
-			}
+			checkAbortWithLinkToLink(event);
 		}
 
 		// try to remove vehicle from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
+	private void checkAbortWithLinkToLink(VehicleAbortsEvent event) {
+		if (this.calculateLinkToLinkTravelTimes
+				&& event.getTime() < qsimConfig.getEndTime().seconds()
+			// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17)
+		){
+			log.error(ERROR_STUCK_AND_LINKTOLINK);
+			throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+		}
+	}
+
 	private TravelTimeData getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
 		TravelTimeData data = this.linkToLinkData.get(fromLinkToLink);
 		if ( null == data ) {
-			data = this.ttDataFactory.createTravelTimeData(fromLinkToLink.getFirst()) ;
+			TravelTimeDataFactory factory = this.linkToLinkTtDataFactory != null ? this.linkToLinkTtDataFactory : this.ttDataFactory;
+			data = factory.createTravelTimeData(fromLinkToLink.getFirst()) ;
 			this.linkToLinkData.put(fromLinkToLink, data);
 		}
 		return data;
@@ -368,6 +423,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	 */
 	private double getLinkTravelTime(final Link link, final double time) {
 		if (this.calculateLinkTravelTimes) {
+			mergeShards();
 
 			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(link, true);
 			if ( data.isNeedingConsolidation() ) {
@@ -412,6 +468,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
+		mergeShards();
 		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
@@ -419,6 +476,58 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		return this.travelTimeGetter.getTravelTime( data, time );
 	}
 
+	/**
+	 * Adds the event handlers of this calculator to the events manager. This is the calculator itself, or its shards if the
+	 * aggregation is split over several shards. In the latter case, the calculator itself must not be added as well.
+	 */
+	public void addEventHandlers(EventsManager eventsManager) {
+		if (this.shards == null) {
+			eventsManager.addHandler(this);
+		} else {
+			for (Shard shard : this.shards) {
+				eventsManager.addHandler(shard);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of shards configured in <code>ttConfig</code>, where 0 stands for the number of threads of the parallel
+	 * events handling.
+	 */
+	static int getNumberOfShards(TravelTimeCalculatorConfigGroup ttConfig, ParallelEventHandlingConfigGroup parallelConfig) {
+		if (ttConfig.getNumberOfShards() > 0) {
+			return ttConfig.getNumberOfShards();
+		}
+		Integer numberOfThreads = parallelConfig.getNumberOfThreads();
+		return numberOfThreads == null ? 1 : Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * Merges the travel times aggregated by the shards into the travel time data. The shards are only read here, so this
+	 * must not run while events are handled, which is the case as long as travel times are not requested during the mobsim.
+	 */
+	private void mergeShards() {
+		if (this.shards == null) {
+			return;
+		}
+		for (Shard shard : this.shards) {
+			if (shard.hasData) {
+				mergeShardsSynchronized();
+				return;
+			}
+		}
+	}
+
+	private synchronized void mergeShardsSynchronized() {
+		for (Shard shard : this.shards) {
+			shard.merge();
+		}
+		// only now, so that concurrent requests still see data to merge and wait for the lock until the merge is completed
+		for (Shard shard : this.shards) {
+			shard.hasData = false;
+		}
+	}
+
 	@Override
 	public void reset(int iteration) {
 		if (this.calculateLinkTravelTimes) {
@@ -548,9 +657,232 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		};
 	}
 
+	/**
+	 * Copies the current link travel times into a {@link LinkTravelTimeMatrix} indexed by the array indices of the links of
+	 * <code>routingNetwork</code>. Routers working on that network can then look up travel times without map lookups.
+	 * The matrix does not reflect travel times observed after its creation, so it should be created anew once per iteration.
+	 */
+	public LinkTravelTimeMatrix createLinkTravelTimeMatrix(ArrayRoutingNetwork routingNetwork) {
+		if (!this.calculateLinkTravelTimes) {
+			throw new IllegalStateException("No link travel time is available " +
+									    "if calculation is switched off by config option!");
+		}
+		mergeShards();
+		int numLinks = 0;
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				numLinks = Math.max(numLinks, ((HasIndex) link).getArrayIndex() + 1);
+			}
+		}
+		@SuppressWarnings("unchecked")
+		Id<Link>[] linkIds = new Id[numLinks];
+		double[] travelTimes = new double[numLinks * this.numSlots];
+		for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				linkIds[((HasIndex) link).getArrayIndex()] = link.getId();
+				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(link, true);
+				if ( data.isNeedingConsolidation() ) {
+					consolidateData(data);
+				}
+				int offset = ((HasIndex) link).getArrayIndex() * this.numSlots;
+				for (int slot = 0; slot < this.numSlots; slot++) {
+					travelTimes[offset + slot] = data.getTravelTime(slot, (double) slot * this.timeSlice);
+				}
+			}
+		}
+		boolean interpolate = this.travelTimeGetter instanceof LinearInterpolatingTravelTimeGetter;
+		return new LinkTravelTimeMatrix(linkIds, travelTimes, this.numSlots, this.timeSlice, interpolate, getLinkTravelTimes());
+	}
+
 	@Deprecated // use builder.configure(config) instead.  kai, feb'19
 	public void setTtDataFactory( TravelTimeDataFactory ttDataFactory ){
 		// yyyyyy this is currently here for a test, but should be removed.  kai, feb'19
 		this.ttDataFactory = ttDataFactory;
 	}
+
+	/**
+	 * Handles the events of the vehicles whose id index modulo the number of shards equals the index of the shard, and
+	 * aggregates their travel times in accumulators of its own. As all events of a vehicle end up in the same shard,
+	 * the shards do not share any state while handling events and can be run in parallel.
+	 */
+	private final class Shard implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private final int index;
+
+		private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents = new HashMap<>();
+		private final Set<Id<Vehicle>> vehiclesToIgnore = new HashSet<>();
+
+		/** indexed by the index of the link id */
+		private TravelTimeSums[] linkSums = new TravelTimeSums[Id.getNumberOfIds(Link.class)];
+		private final Map<Tuple<Id<Link>, Id<Link>>, TravelTimeSums> linkToLinkSums = new HashMap<>();
+		/** links which were entered by a vehicle which then aborted, these need a consolidation as well */
+		private final List<Id<Link>> abortedLinks = new ArrayList<>();
+
+		/**
+		 * set by the events handling thread and cleared by the merge. It is volatile as requests for travel times read it
+		 * without holding the lock of the merge.
+		 */
+		private volatile boolean hasData = false;
+
+		Shard(int index) {
+			this.index = index;
+		}
+
+		// writing a volatile field is not free, so only do it when the value changes
+		private void markHasData() {
+			if (!this.hasData) {
+				this.hasData = true;
+			}
+		}
+
+		private boolean isResponsible(Id<Vehicle> vehicleId) {
+			return Math.floorMod(vehicleId.index(), shards.length) == this.index;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent e) {
+			if (!isResponsible(e.getVehicleId())) return;
+			if (filterAnalyzedModes && this.vehiclesToIgnore.contains(e.getVehicleId())) return;
+
+			LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
+			if ((oldEvent != null) && calculateLinkToLinkTravelTimes) {
+				Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+				TravelTimeSums sums = this.linkToLinkSums.computeIfAbsent(fromToLink, k -> new TravelTimeSums(numSlots));
+				sums.add(aggregator.getTimeSlotIndex(oldEvent.getTime()), e.getTime() - oldEvent.getTime());
+				markHasData();
+			}
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent e) {
+			if (!calculateLinkTravelTimes || !isResponsible(e.getVehicleId())) return;
+
+			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
+			if (oldEvent != null) {
+				int linkIndex = e.getLinkId().index();
+				if (linkIndex >= this.linkSums.length) {
+					this.linkSums = Arrays.copyOf(this.linkSums, Id.getNumberOfIds(Link.class));
+				}
+				TravelTimeSums sums = this.linkSums[linkIndex];
+				if (sums == null) {
+					sums = new TravelTimeSums(numSlots);
+					this.linkSums[linkIndex] = sums;
+				}
+				sums.add(aggregator.getTimeSlotIndex(oldEvent.getTime()), e.getTime() - oldEvent.getTime());
+				markHasData();
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+			if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) {
+				this.vehiclesToIgnore.add(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+			this.linkEnterEvents.remove(event.getVehicleId());
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+			this.linkEnterEvents.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+			LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
+			if (e != null) {
+				if (calculateLinkTravelTimes) {
+					this.abortedLinks.add(e.getLinkId());
+					markHasData();
+				}
+				checkAbortWithLinkToLink(event);
+			}
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void reset(int iteration) {
+			// the calculator is not added to the events manager itself, so one of the shards resets it
+			if (this.index == 0) {
+				TravelTimeCalculator.this.reset(iteration);
+			}
+			for (TravelTimeSums sums : this.linkSums) {
+				if (sums != null) sums.clear();
+			}
+			this.linkToLinkSums.clear();
+			this.abortedLinks.clear();
+			this.linkEnterEvents.clear();
+			this.vehiclesToIgnore.clear();
+			this.hasData = false;
+		}
+
+		private void merge() {
+			if (!this.hasData) return;
+
+			for (int i = 0; i < this.linkSums.length; i++) {
+				TravelTimeSums sums = this.linkSums[i];
+				if (sums != null && sums.hasData) {
+					sums.mergeInto(dataContainerProvider.getTravelTimeData(Id.get(i, Link.class), true));
+				}
+			}
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, TravelTimeSums> entry : this.linkToLinkSums.entrySet()) {
+				entry.getValue().mergeInto(getLinkToLinkTravelTimeData(entry.getKey()));
+			}
+			this.linkToLinkSums.clear();
+			for (Id<Link> linkId : this.abortedLinks) {
+				dataContainerProvider.getTravelTimeData(linkId, true).setNeedsConsolidation(true);
+			}
+			this.abortedLinks.clear();
+		}
+
+	}
+
+	/**
+	 * Sums and numbers of the travel times per time slot, which can be merged into {@link TravelTimeData}.
+	 */
+	private static final class TravelTimeSums {
+
+		private final double[] sums;
+		private final int[] counts;
+		private boolean hasData = false;
+
+		TravelTimeSums(int numSlots) {
+			this.sums = new double[numSlots];
+			this.counts = new int[numSlots];
+		}
+
+		void add(int timeSlot, double travelTime) {
+			this.sums[timeSlot] += travelTime;
+			this.counts[timeSlot]++;
+			this.hasData = true;
+		}
+
+		void mergeInto(TravelTimeData data) {
+			for (int i = 0; i < this.counts.length; i++) {
+				if (this.counts[i] > 0) {
+					data.addTravelTimes(i, this.sums[i], this.counts[i]);
+				}
+			}
+			data.setNeedsConsolidation(true);
+			clear();
+		}
+
+		void clear() {
+			if (this.hasData) {
+				Arrays.fill(this.sums, 0.0);
+				Arrays.fill(this.counts, 0);
+				this.hasData = false;
+			}
+		}
+
+	}
 }
@@ -29,6 +29,7 @@ import com.google.inject.name.Names;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
@@ -103,6 +104,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 	private static class SingleModeTravelTimeCalculatorProvider implements Provider<TravelTimeCalculator> {
 
 		@Inject TravelTimeCalculatorConfigGroup config;
+		@Inject ParallelEventHandlingConfigGroup parallelConfig;
 		@Inject EventsManager eventsManager;
 		@Inject Network network;
 
@@ -125,9 +127,10 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			builder.setCalculateLinkToLinkTravelTimes( config.isCalculateLinkToLinkTravelTimes() );
 			builder.setFilterModes( true ); // no point asking the config since we are in "separateModes" anyways.
 			builder.setAnalyzedModes( CollectionUtils.stringToSet( mode ) );
+			builder.setNumberOfShards( TravelTimeCalculator.getNumberOfShards( config, parallelConfig ) );
 			builder.configure( config );
 			TravelTimeCalculator calculator = builder.build();
-			eventsManager.addHandler( calculator );
+			calculator.addEventHandlers( eventsManager );
 			return calculator ;
 		}
 	}
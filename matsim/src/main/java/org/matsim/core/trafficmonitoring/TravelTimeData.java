@@ -34,6 +34,18 @@ abstract class TravelTimeData {
 //	public abstract void resetTravelTime( final int timeSlot ) ;
 
 	abstract void addTravelTime(final int timeSlot, final double traveltime);
+
+	/**
+	 * Adds <code>count</code> travel times with the sum <code>traveltimeSum</code> at once, e.g. when merging travel times
+	 * that were aggregated somewhere else.
+	 */
+	void addTravelTimes(final int timeSlot, final double traveltimeSum, final int count) {
+		// adding the average count times results in the same average
+		double traveltime = traveltimeSum / count;
+		for (int i = 0; i < count; i++) {
+			addTravelTime(timeSlot, traveltime);
+		}
+	}
 	
 	/**
 	 * A method to set the travel time directly, to handle some special cases.
@@ -68,6 +68,16 @@ class TravelTimeDataArray extends TravelTimeData {
 		this.timeCnt[timeSlot] = cnt;
 	}
 
+	@Override
+	void addTravelTimes(final int timeSlot, final double traveltimeSum, final int count) {
+		short cnt = this.timeCnt[timeSlot];
+		double sum = this.travelTimes[timeSlot] * cnt + traveltimeSum;
+		cnt += count;
+
+		this.travelTimes[timeSlot] = sum / cnt;
+		this.timeCnt[timeSlot] = cnt;
+	}
+
 	@Override
 	public double getTravelTime(final int timeSlot, final double now) {
 		double ttime = this.travelTimes[timeSlot];
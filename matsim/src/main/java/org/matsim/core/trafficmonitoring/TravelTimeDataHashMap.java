@@ -74,6 +74,17 @@ class TravelTimeDataHashMap extends TravelTimeData {
 		}
 	}
 
+	@Override
+	void addTravelTimes(final int timeSlice, final double traveltimeSum, final int count) {
+		TimeStruct curr = this.travelTimes.get(IntegerCache.getInteger(timeSlice));
+		if (curr != null) {
+			curr.cnt += count;
+			curr.timeSum += traveltimeSum;
+		} else {
+			this.travelTimes.put(IntegerCache.getInteger(timeSlice), new TimeStruct(traveltimeSum, count));
+		}
+	}
+
 	@Override
 	public double getTravelTime(final int timeSlice, final double now) {
 
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Implementation of {@link TravelTimeData} that does not hold any travel times itself, but refers to the slots of one
+ * link in a {@link PackedTravelTimeSlots} storage which is shared by all links of the network. Adding travel times is
+ * thread-safe.
+ */
+class TravelTimeDataPacked extends TravelTimeData {
+
+	private final PackedTravelTimeSlots slots;
+	private final long firstSlot;
+	private final int numSlots;
+	private final Link link;
+
+	TravelTimeDataPacked(final Link link, final PackedTravelTimeSlots slots, final long firstSlot, final int numSlots) {
+		this.link = link;
+		this.slots = slots;
+		this.firstSlot = firstSlot;
+		this.numSlots = numSlots;
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		this.slots.reset(this.firstSlot, this.firstSlot + this.numSlots);
+	}
+
+	@Override
+	void addTravelTime(final int timeSlot, final double traveltime) {
+		this.slots.add(this.firstSlot + timeSlot, traveltime);
+	}
+
+	@Override
+	void addTravelTimes(final int timeSlot, final double traveltimeSum, final int count) {
+		this.slots.add(this.firstSlot + timeSlot, traveltimeSum, count);
+	}
+
+	@Override
+	void setTravelTime(final int timeSlot, final double traveltime) {
+		this.slots.set(this.firstSlot + timeSlot, traveltime);
+	}
+
+	@Override
+	double getTravelTime(final int timeSlot, final double now) {
+		double ttime = this.slots.getAverage(this.firstSlot + timeSlot);
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		return this.link.getLength() / this.link.getFreespeed(now);
+	}
+
+}
@@ -0,0 +1,61 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Creates {@link TravelTimeDataPacked} objects, which all share one {@link PackedTravelTimeSlots} storage with room
+ * for all time slots of all links of the network.
+ */
+class TravelTimeDataPackedFactory implements TravelTimeDataFactory {
+
+	private final Network network;
+	private final int numSlots;
+	private final PackedTravelTimeSlots slots;
+	/** position of each link in the storage, indexed by {@link Id#index()} */
+	private final int[] linkIndices;
+
+	TravelTimeDataPackedFactory(final Network network, final int numSlots, final boolean offHeap) {
+		this.network = network;
+		this.numSlots = numSlots;
+		this.slots = new PackedTravelTimeSlots((long) network.getLinks().size() * numSlots, offHeap);
+		this.linkIndices = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndices, -1);
+		int index = 0;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			this.linkIndices[linkId.index()] = index++;
+		}
+	}
+
+	@Override
+	public TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		int index = linkId.index() < this.linkIndices.length ? this.linkIndices[linkId.index()] : -1;
+		if (index < 0) {
+			throw new IllegalArgumentException("Link " + linkId + " was not part of the network when the travel time storage was created.");
+		}
+		return new TravelTimeDataPacked(this.network.getLinks().get(linkId), this.slots, (long) index * this.numSlots, this.numSlots);
+	}
+
+}
@@ -0,0 +1,83 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CacheFileUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers for files that cache the results of expensive pre-processing between runs, e.g. landmark tables or transit
+ * transfers. Such files are named after a hash of the inputs they were computed from and are shared by concurrent runs.
+ */
+public final class CacheFileUtils {
+
+	/** The initial value of a hash built with {@link #mix(long, long)}. */
+	public static final long HASH_SEED = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	public interface DataWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private CacheFileUtils() {
+	}
+
+	/**
+	 * Combines a hash with one more value, in the manner of 64-bit FNV-1a but with whole longs instead of bytes.
+	 */
+	public static long mix(final long hash, final long value) {
+		// spread the high bits of the value, which are otherwise multiplied out of the hash
+		long v = value * 0x9e3779b97f4a7c15L;
+		return (hash ^ v ^ (v >>> 32)) * FNV_PRIME;
+	}
+
+	/**
+	 * Writes a file through the writer. The data is first written to a temporary file in the same directory, which
+	 * then replaces the file, so that concurrent runs never see partially written files. The temporary file is deleted
+	 * if writing fails.
+	 */
+	public static void writeAtomically(final File file, final DataWriter writer) throws IOException {
+		Path target = file.toPath().toAbsolutePath();
+		Files.createDirectories(target.getParent());
+		Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				writer.write(out);
+			}
+			try {
+				Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.log4j.Logger;
+import org.matsim.core.population.io.BinaryPopulationFormat;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -98,6 +99,8 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 			this.fileType = FileType.OTFVis;
 		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
 			this.fileType = FileType.TransimsVehicle;
+		} else if (BinaryPopulationFormat.isBinaryPopulationFile(name)) {
+			this.fileType = FileType.Population;
 		}
 	}
 
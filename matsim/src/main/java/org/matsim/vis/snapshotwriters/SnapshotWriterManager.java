@@ -22,6 +22,7 @@ package org.matsim.vis.snapshotwriters;
 
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ExternalMobimConfigGroup;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
 import org.matsim.core.mobsim.framework.ObservableMobsim;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
@@ -35,7 +36,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class SnapshotWriterManager implements MobsimBeforeCleanupListener, MobsimAfterSimStepListener, MobsimInitializedListener {
+public class SnapshotWriterManager implements MobsimBeforeCleanupListener, MobsimAfterSimStepListener, MobsimInitializedListener, HasNextWakeUpTime {
 	
 	private final List<SnapshotWriter> snapshotWriters = new ArrayList<SnapshotWriter>();
 	
@@ -90,6 +91,11 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 		}
 	}
 	
+	@Override
+	public double getNextWakeUpTime(double now) {
+		return this.snapshotWriters.isEmpty() ? Double.POSITIVE_INFINITY : this.snapshotTime;
+	}
+
 	private void doSnapshot(final double time, VisMobsim visMobsim) {
 		if (!this.snapshotWriters.isEmpty()) {
 			Collection<AgentSnapshotInfo> positions = new ArrayList<AgentSnapshotInfo>();
@@ -5,15 +5,23 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -82,4 +90,69 @@ public class SwissRailRaptorDataTest {
         Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testUpdate_sameTransfersAsCreate() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        // remove a line
+        f.schedule.removeTransitLine(f.greenLine);
+        SwissRailRaptorData updated = SwissRailRaptorData.update(data, f.schedule, null, f.network);
+        SwissRailRaptorData created = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertEquals(created.routeStops.length, updated.routeStops.length);
+        Assert.assertEquals(getTransfers(created), getTransfers(updated));
+
+        // and add it again
+        f.schedule.addTransitLine(f.greenLine);
+        SwissRailRaptorData updated2 = SwissRailRaptorData.update(updated, f.schedule, null, f.network);
+        Assert.assertEquals(data.routeStops.length, updated2.routeStops.length);
+        Assert.assertEquals(getTransfers(data), getTransfers(updated2));
+    }
+
+    @Test
+    public void testTransferCache() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        raptorConfig.setTransferCacheDirectory(this.utils.getOutputDirectory());
+        SwissRailRaptorTransferCache cache = new SwissRailRaptorTransferCache(this.utils.getOutputDirectory(), f.schedule, data.routeStops, data.departures, raptorConfig);
+        Assert.assertFalse(cache.getFile().exists());
+
+        SwissRailRaptorData written = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertTrue(cache.getFile().exists());
+        Assert.assertEquals(getTransfers(data), getTransfers(written));
+
+        SwissRailRaptorData read = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertEquals(getTransfers(data), getTransfers(read));
+
+        // a different walk distance must not use the cached transfers
+        raptorConfig.setBeelineWalkConnectionDistance(raptorConfig.getBeelineWalkConnectionDistance() + 100);
+        SwissRailRaptorTransferCache otherCache = new SwissRailRaptorTransferCache(this.utils.getOutputDirectory(), f.schedule, data.routeStops, data.departures, raptorConfig);
+        Assert.assertNotEquals(cache.getFile(), otherCache.getFile());
+        Assert.assertNull(otherCache.read(data.routeStops));
+    }
+
+    private static Set<String> getTransfers(SwissRailRaptorData data) {
+        Set<String> transfers = new HashSet<>();
+        for (SwissRailRaptorData.RRouteStop routeStop : data.routeStops) {
+            for (int i = 0; i < routeStop.countTransfers; i++) {
+                SwissRailRaptorData.RTransfer t = data.transfers[routeStop.indexFirstTransfer + i];
+                Assert.assertEquals(routeStop.index, t.fromRouteStop);
+                transfers.add(toString(data.routeStops[t.fromRouteStop]) + " > " + toString(data.routeStops[t.toRouteStop]) + " " + t.transferTime + " " + t.transferDistance);
+            }
+        }
+        Assert.assertEquals("duplicate transfers", data.transfers.length, transfers.size());
+        return transfers;
+    }
+
+    private static String toString(SwissRailRaptorData.RRouteStop routeStop) {
+        return routeStop.line.getId() + "/" + routeStop.route.getId() + "/" + routeStop.route.getStops().indexOf(routeStop.routeStop);
+    }
+
+}
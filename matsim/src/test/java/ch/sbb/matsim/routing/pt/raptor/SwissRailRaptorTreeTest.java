@@ -13,8 +13,11 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Tests for the tree-calculating functionality of SwissRailRaptor
@@ -385,6 +388,46 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testCalcTrees_parallel() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        Map<Id<TransitStopFacility>, List<TransitStopFacility>> fromStopsPerOrigin = new HashMap<>();
+        for (TransitStopFacility stop : f.schedule.getFacilities().values()) {
+            fromStopsPerOrigin.put(stop.getId(), Collections.singletonList(stop));
+        }
+        double[] depTimes = {7*3600 + 40*60, 7*3600 + 50*60, 8*3600};
+
+        Map<Id<TransitStopFacility>, List<Map<Id<TransitStopFacility>, TravelInfo>>> treesPerOrigin = new ConcurrentHashMap<>();
+        raptor.calcTrees(fromStopsPerOrigin, depTimes, raptorParams, null, 3, treesPerOrigin::put);
+
+        Assert.assertEquals(fromStopsPerOrigin.size(), treesPerOrigin.size());
+        for (TransitStopFacility fromStop : f.schedule.getFacilities().values()) {
+            List<Map<Id<TransitStopFacility>, TravelInfo>> trees = treesPerOrigin.get(fromStop.getId());
+            Assert.assertEquals(depTimes.length, trees.size());
+            for (int i = 0; i < depTimes.length; i++) {
+                Map<Id<TransitStopFacility>, TravelInfo> expected = raptor.calcTree(fromStop, depTimes[i], raptorParams, null);
+                Map<Id<TransitStopFacility>, TravelInfo> actual = trees.get(i);
+                Assert.assertEquals(expected.keySet(), actual.keySet());
+                for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : expected.entrySet()) {
+                    TravelInfo info = actual.get(e.getKey());
+                    Assert.assertEquals(e.getValue().departureStop, info.departureStop);
+                    Assert.assertEquals(e.getValue().transferCount, info.transferCount);
+                    Assert.assertEquals(e.getValue().ptArrivalTime, info.ptArrivalTime, 0.0);
+                    Assert.assertEquals(e.getValue().travelCost, info.travelCost, 0.0);
+                }
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
@@ -0,0 +1,146 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BatchingEventsManagerTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testOnlyBatchingThreadIsBuffered() throws InterruptedException {
+		BatchingEventsManager events = new BatchingEventsManager(EventsUtils.createEventsManager());
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+
+		events.startBatch();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		Assert.assertTrue(events.isBatching());
+		Assert.assertEquals(0, collector.getEvents().size());
+
+		AtomicReference<EventArray> otherBatch = new AtomicReference<>();
+		Thread other = new Thread(() -> {
+			events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(1), Id.createLinkId(1)));
+			events.startBatch();
+			events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(1), Id.createLinkId(2)));
+			otherBatch.set(events.endBatch());
+		});
+		other.start();
+		other.join();
+		Assert.assertEquals(1, collector.getEvents().size());
+		Assert.assertEquals(1, otherBatch.get().size());
+
+		// adding a batch while batching appends it to the own batch
+		events.processEvents(otherBatch.get());
+		Assert.assertEquals(1, collector.getEvents().size());
+
+		EventArray batch = events.endBatch();
+		Assert.assertFalse(events.isBatching());
+		Assert.assertEquals(2, batch.size());
+		events.processEvents(batch);
+		events.finishProcessing();
+
+		List<Event> handled = collector.getEvents();
+		Assert.assertEquals(3, handled.size());
+		Assert.assertEquals(Id.createLinkId(1), ((LinkLeaveEvent) handled.get(0)).getLinkId());
+		Assert.assertEquals(Id.createLinkId(0), ((LinkEnterEvent) handled.get(1)).getLinkId());
+		Assert.assertEquals(Id.createLinkId(2), ((LinkEnterEvent) handled.get(2)).getLinkId());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEndBatchWithoutStart() {
+		new BatchingEventsManager(EventsUtils.createEventsManager()).endBatch();
+	}
+
+	@Test
+	public void testModuleBinding() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUseEventsBatching(true);
+		Assert.assertTrue(EventsUtils.createEventsManager(config) instanceof BatchingEventsManager);
+	}
+
+	/**
+	 * With a single qsim thread, batching must not change the order of the events at all.
+	 */
+	@Test
+	public void testQSimSingleThread() {
+		List<Event> expected = runQSim(1, false);
+		List<Event> actual = runQSim(1, true);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * With several qsim threads, the order within a time step depends on the runners, but the events must be the same.
+	 */
+	@Test
+	public void testQSimMultipleThreads() {
+		List<String> expected = toSortedStrings(runQSim(1, false));
+		List<String> actual = toSortedStrings(runQSim(4, true));
+		Assert.assertEquals(expected, actual);
+	}
+
+	private List<Event> runQSim(int threads, boolean batching) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.qsim().setNumberOfThreads(threads);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager events = EventsUtils.createEventsManager();
+		if (batching) {
+			events = new BatchingEventsManager(events);
+		}
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		return collector.getEvents();
+	}
+
+	private static List<String> toSortedStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		Collections.sort(strings);
+		return strings;
+	}
+}
@@ -0,0 +1,213 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+public class TypeRoutingParallelEventsManagerTest {
+
+	@Test
+	public void testEventsOnlyRoutedToSubscribedThreads() {
+		TypeRoutingParallelEventsManager events = new TypeRoutingParallelEventsManager(3, false, 16);
+		EnterCounter enters = new EnterCounter();
+		LeaveCounter leaves = new LeaveCounter();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(enters);
+		events.addHandler(leaves);
+		events.addHandler(collector);
+		events.resetHandlers(0);
+		events.initProcessing();
+		for (int i = 0; i < 1000; i++) {
+			events.processEvent(new LinkEnterEvent(i, Id.createVehicleId(i), Id.createLinkId(i)));
+			if (i % 4 == 0) {
+				events.processEvent(new LinkLeaveEvent(i, Id.createVehicleId(i), Id.createLinkId(i)));
+			}
+		}
+		events.finishProcessing();
+
+		Assert.assertEquals(1000, enters.count);
+		Assert.assertEquals(250, leaves.count);
+		Assert.assertEquals(1250, collector.getEvents().size());
+		double time = 0;
+		for (Event event : collector.getEvents()) {
+			Assert.assertTrue(event.getTime() >= time);
+			time = event.getTime();
+		}
+
+		List<TypeRoutingParallelEventsManager.ThreadStatistics> statistics = events.getThreadStatistics();
+		Assert.assertEquals(3, statistics.size());
+		Assert.assertEquals(1000, statistics.get(0).getProcessedEvents());
+		Assert.assertEquals(250, statistics.get(1).getProcessedEvents());
+		Assert.assertEquals(1250, statistics.get(2).getProcessedEvents());
+		Assert.assertEquals(1250, statistics.get(0).getProcessedEvents() + statistics.get(0).getSkippedEvents());
+	}
+
+	@Test
+	public void testMoreThan64Threads() {
+		TypeRoutingParallelEventsManager events = new TypeRoutingParallelEventsManager(70, true, 8);
+		List<EnterCounter> enters = new ArrayList<>();
+		for (int i = 0; i < 69; i++) {
+			EnterCounter counter = new EnterCounter();
+			enters.add(counter);
+			events.addHandler(counter);
+		}
+		LeaveCounter leaves = new LeaveCounter();
+		events.addHandler(leaves);
+		events.initProcessing();
+		for (int i = 0; i < 100; i++) {
+			events.processEvent(new LinkEnterEvent(i, Id.createVehicleId(i), Id.createLinkId(i)));
+			events.processEvent(new LinkLeaveEvent(i, Id.createVehicleId(i), Id.createLinkId(i)));
+			events.afterSimStep(i);
+		}
+		events.finishProcessing();
+
+		for (EnterCounter counter : enters) {
+			Assert.assertEquals(100, counter.count);
+		}
+		Assert.assertEquals(100, leaves.count);
+		List<TypeRoutingParallelEventsManager.ThreadStatistics> statistics = events.getThreadStatistics();
+		Assert.assertEquals(70, statistics.size());
+		Assert.assertEquals(100, statistics.get(69).getProcessedEvents());
+		Assert.assertEquals(100, statistics.get(69).getSkippedEvents());
+	}
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final TypeRoutingParallelEventsManager events = new TypeRoutingParallelEventsManager(8, true, 4);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		Assert.assertEquals(3, collector.getEvents().size());
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testExceptionInHandler() {
+		TypeRoutingParallelEventsManager events = new TypeRoutingParallelEventsManager(2, true, 16);
+		events.addHandler((LinkEnterEventHandler) event -> {
+			throw new IllegalStateException("test");
+		});
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		try {
+			events.afterSimStep(0.0);
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testModuleBinding() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setRouteEventsByType(true);
+		config.parallelEventHandling().setNumberOfThreads(2);
+		EventsManager events = EventsUtils.createEventsManager(config);
+		Assert.assertTrue(events instanceof TypeRoutingParallelEventsManager);
+
+		List<Event> handled = new ArrayList<>();
+		events.addHandler((LinkLeaveEventHandler) handled::add);
+		events.initProcessing();
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.finishProcessing();
+		Assert.assertEquals(1, handled.size());
+	}
+
+	private static class EnterCounter implements LinkEnterEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.count = 0;
+		}
+	}
+
+	private static class LeaveCounter implements LinkLeaveEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.count = 0;
+		}
+	}
+}
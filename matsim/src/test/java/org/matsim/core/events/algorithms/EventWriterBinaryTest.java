@@ -0,0 +1,249 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class EventWriterBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRoundTrip() {
+		List<Event> written = new ArrayList<>();
+		written.add(new LinkLeaveEvent(3600.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		written.add(new LinkEnterEvent(3601.0, Id.create("vehicle>3", Vehicle.class), Id.create("1", Link.class)));
+		written.add(new ActivityStartEvent(3602.5, Id.create("1", Person.class), Id.create("1", Link.class), null, "work", new Coord(1234.5, -7.25)));
+		written.add(new PersonMoneyEvent(3500.0, Id.create("1", Person.class), -3.5, "toll", "city"));
+		GenericEvent generic = new GenericEvent("TEST", 3700.0);
+		generic.getAttributes().put("dummy", null);
+		generic.getAttributes().put("number", "17");
+		written.add(generic);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 2);
+		written.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readStream(new ByteArrayInputStream(baos.toByteArray()), ControlerConfigGroup.EventsFileFormat.binary);
+		events.finishProcessing();
+
+		assertEventsEqual(written, collector.getEvents());
+		GenericEvent readGeneric = (GenericEvent) collector.getEvents().get(4);
+		Assert.assertTrue(readGeneric.getAttributes().containsKey("dummy"));
+		Assert.assertNull(readGeneric.getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testFilters() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 16);
+		for (int i = 0; i < 1000; i++) {
+			Id<Vehicle> vehicleId = Id.create(i % 7, Vehicle.class);
+			writer.handleEvent(new LinkEnterEvent(i * 10, vehicleId, Id.create(i % 50, Link.class)));
+			writer.handleEvent(new LinkLeaveEvent(i * 10 + 5, vehicleId, Id.create(i % 50, Link.class)));
+		}
+		writer.closeFile();
+		byte[] data = baos.toByteArray();
+
+		List<Event> window = read(data, reader -> reader.setTimeWindow(2000, 3000));
+		Assert.assertEquals(200, window.size());
+		for (Event event : window) {
+			Assert.assertTrue(event.getTime() >= 2000 && event.getTime() < 3000);
+		}
+
+		List<Event> enters = read(data, reader -> reader.setEventTypes(Collections.singleton(LinkEnterEvent.EVENT_TYPE)));
+		Assert.assertEquals(1000, enters.size());
+		for (Event event : enters) {
+			Assert.assertTrue(event instanceof LinkEnterEvent);
+		}
+
+		List<Event> link = read(data, reader -> {
+			reader.setLinkIds(Collections.singleton(Id.create(3, Link.class)));
+			reader.setEventTypes(Collections.singleton(LinkLeaveEvent.EVENT_TYPE));
+			reader.setTimeWindow(0, 5000);
+		});
+		Assert.assertEquals(10, link.size());
+		for (Event event : link) {
+			Assert.assertEquals("3", ((LinkLeaveEvent) event).getLinkId().toString());
+		}
+	}
+
+	/**
+	 * Uncompressed files are memory mapped, and the most frequent event types are created without going through
+	 * the xml reader. The result must be the same as when reading from a stream.
+	 */
+	@Test
+	public void testMemoryMappedFile() {
+		List<Event> written = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Id<Person> personId = Id.create(i, Person.class);
+			Id<Vehicle> vehicleId = Id.create(i, Vehicle.class);
+			Id<Link> linkId = Id.create(i % 10, Link.class);
+			double time = 100 + i * 0.5;
+			written.add(new PersonDepartureEvent(time, personId, linkId, "car"));
+			written.add(new PersonEntersVehicleEvent(time, personId, vehicleId));
+			written.add(new VehicleEntersTrafficEvent(time, personId, linkId, vehicleId, "car", 1.0));
+			written.add(new LinkLeaveEvent(time + 1, vehicleId, linkId));
+			written.add(new LinkEnterEvent(time + 1, vehicleId, Id.create("x", Link.class)));
+			written.add(new VehicleLeavesTrafficEvent(time + 2, personId, Id.create("x", Link.class), vehicleId, "car", 0.5));
+			written.add(new PersonLeavesVehicleEvent(time + 2, personId, vehicleId));
+			written.add(new PersonArrivalEvent(time + 2, personId, Id.create("x", Link.class), null));
+		}
+		String filename = new File(this.utils.getOutputDirectory(), "events.bin").getPath();
+		EventWriterBinary writer = new EventWriterBinary(new File(filename));
+		written.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+
+		assertEventsEqual(written, collector.getEvents());
+
+		// the directly created events must have the same fields as the written ones
+		PersonDepartureEvent departure = (PersonDepartureEvent) collector.getEvents().get(8);
+		Assert.assertEquals(100.5, departure.getTime(), 0.0);
+		Assert.assertEquals(Id.create(1, Person.class), departure.getPersonId());
+		Assert.assertEquals(Id.create(1, Link.class), departure.getLinkId());
+		Assert.assertEquals("car", departure.getLegMode());
+		VehicleEntersTrafficEvent entersTraffic = (VehicleEntersTrafficEvent) collector.getEvents().get(10);
+		Assert.assertEquals(Id.create(1, Person.class), entersTraffic.getPersonId());
+		Assert.assertEquals(Id.create(1, Vehicle.class), entersTraffic.getVehicleId());
+		Assert.assertEquals(Id.create(1, Link.class), entersTraffic.getLinkId());
+		Assert.assertEquals("car", entersTraffic.getNetworkMode());
+		Assert.assertEquals(1.0, entersTraffic.getRelativePositionOnLink(), 0.0);
+		LinkEnterEvent linkEnter = (LinkEnterEvent) collector.getEvents().get(12);
+		Assert.assertEquals(101.5, linkEnter.getTime(), 0.0);
+		Assert.assertEquals(Id.create(1, Vehicle.class), linkEnter.getVehicleId());
+		Assert.assertEquals(Id.create("x", Link.class), linkEnter.getLinkId());
+	}
+
+	/**
+	 * Events outside the time window or of other types must not be decoded at all, which is visible through the
+	 * custom event mappers not being called for them.
+	 */
+	@Test
+	public void testFilteredEventsAreNotDecoded() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos, 16);
+		for (int i = 0; i < 1000; i++) {
+			GenericEvent wanted = new GenericEvent("wanted", i * 10);
+			wanted.getAttributes().put("index", Integer.toString(i));
+			writer.handleEvent(wanted);
+			writer.handleEvent(new GenericEvent("unwanted", i * 10 + 5));
+		}
+		writer.closeFile();
+
+		List<Double> wantedTimes = new ArrayList<>();
+		List<Double> unwantedTimes = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		reader.addCustomEventMapper("wanted", event -> {
+			wantedTimes.add(event.getTime());
+			return event;
+		});
+		reader.addCustomEventMapper("unwanted", event -> {
+			unwantedTimes.add(event.getTime());
+			return event;
+		});
+		reader.setTimeWindow(2000, 3000);
+		reader.setEventTypes(Collections.singleton("wanted"));
+		reader.parse(new ByteArrayInputStream(baos.toByteArray()));
+		events.finishProcessing();
+
+		Assert.assertEquals(0, unwantedTimes.size());
+		Assert.assertEquals(100, wantedTimes.size());
+		for (double time : wantedTimes) {
+			Assert.assertTrue(time >= 2000 && time < 3000);
+		}
+		Assert.assertEquals(100, collector.getEvents().size());
+		Event first = collector.getEvents().get(0);
+		Assert.assertEquals("wanted", first.getEventType());
+		Assert.assertEquals(2000.0, first.getTime(), 0.0);
+		Assert.assertEquals("200", first.getAttributes().get("index"));
+	}
+
+	private static void assertEventsEqual(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getEventType(), actual.get(i).getEventType());
+			Assert.assertEquals(expected.get(i).getTime(), actual.get(i).getTime(), 0.0);
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+	private static List<Event> read(byte[] data, java.util.function.Consumer<EventsReaderBinary> filter) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		filter.accept(reader);
+		reader.parse(new ByteArrayInputStream(data));
+		events.finishProcessing();
+		return collector.getEvents();
+	}
+}
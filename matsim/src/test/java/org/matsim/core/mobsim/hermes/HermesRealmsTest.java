@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.EventsToScore;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+
+public class HermesRealmsTest {
+
+	private static final int NODES = 9;
+
+	@Before
+	public void prepareTest() {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		HermesConfigGroup.SIM_STEPS = 30 * 60 * 60;
+	}
+
+	/**
+	 * Without congestion, partitioning the network must not change any event or score.
+	 */
+	@Test
+	public void testFreeFlowSameAsSingleRealm() {
+		Result single = run(1, 20, 60, 2000);
+		Result partitioned = run(4, 20, 60, 2000);
+		Assert.assertEquals(2 * 20, countArrivals(single.events));
+		Assert.assertEquals(single.events, partitioned.events);
+		Assert.assertEquals(single.scores, partitioned.scores);
+	}
+
+	/**
+	 * With spillback across realm boundaries, the realms must still produce exactly the events of a single realm,
+	 * in the same order, and thus the same scores.
+	 */
+	@Test
+	public void testCongestedSameAsSingleRealm() {
+		Result single = run(1, 300, 0, 300);
+		Assert.assertEquals(2 * 300, countArrivals(single.events));
+		for (int realms : new int[] { 2, 3, 4 }) {
+			Result partitioned = run(realms, 300, 0, 300);
+			Assert.assertEquals("events differ with " + realms + " realms", single.events, partitioned.events);
+			Assert.assertEquals("scores differ with " + realms + " realms", single.scores, partitioned.scores);
+		}
+	}
+
+	/**
+	 * Staggered departures into a bottleneck, so that agents and links of several realms wake up in the same seconds.
+	 */
+	@Test
+	public void testStaggeredCongestionSameAsSingleRealm() {
+		Result single = run(1, 500, 1, 200);
+		Result partitioned = run(4, 500, 1, 200);
+		Assert.assertEquals(2 * 500, countArrivals(single.events));
+		Assert.assertEquals(single.events, partitioned.events);
+		Assert.assertEquals(single.scores, partitioned.scores);
+	}
+
+	private static final class Result {
+		private final List<String> events = new ArrayList<>();
+		private final Map<String, Double> scores = new HashMap<>();
+	}
+
+	private Result run(int realms, int persons, int departureOffset, double capacity) {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		Config config = ConfigUtils.createConfig();
+		config.hermes().setNumberOfRealms(realms);
+		config.planCalcScore().addActivityParams(new ActivityParams("h").setTypicalDuration(16 * 3600));
+		config.planCalcScore().addActivityParams(new ActivityParams("w").setTypicalDuration(8 * 3600));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Link> east = new ArrayList<>();
+		List<Link> west = new ArrayList<>();
+		generateNetwork(scenario.getNetwork(), capacity, east, west);
+
+		for (int i = 0; i < persons; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity home = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", east.get(0).getId());
+			home.setEndTime(6 * 3600 + i * departureOffset);
+			addLeg(scenario, plan, east);
+			Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", east.get(east.size() - 1).getId());
+			work.setMaximumDuration(3600);
+			addLeg(scenario, plan, west);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "h", west.get(west.size() - 1).getId());
+			scenario.getPopulation().addPerson(person);
+		}
+
+		Result result = new Result();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> result.events.add(event.toString()));
+		EventsToScore scoring = EventsToScore.createWithScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), eventsManager);
+		scoring.beginIteration(0, false);
+		HermesTest.createHermes(scenario, eventsManager).run();
+		scoring.finish();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			result.scores.put(person.getId().toString(), person.getSelectedPlan().getScore());
+		}
+		return result;
+	}
+
+	private static long countArrivals(List<String> events) {
+		return events.stream().filter(e -> e.contains("type=\"" + PersonArrivalEvent.EVENT_TYPE + "\"")).count();
+	}
+
+	private static void addLeg(Scenario scenario, Plan plan, List<Link> links) {
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+		NetworkRoute route = scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class,
+				links.get(0).getId(), links.get(links.size() - 1).getId());
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (Link link : links.subList(1, links.size() - 1)) {
+			linkIds.add(link.getId());
+		}
+		route.setLinkIds(links.get(0).getId(), linkIds, links.get(links.size() - 1).getId());
+		leg.setRoute(route);
+	}
+
+	private static void generateNetwork(Network network, double capacity, List<Link> east, List<Link> west) {
+		Node[] nodes = new Node[NODES];
+		for (int i = 0; i < NODES; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 500, 0));
+		}
+		for (int i = 0; i < NODES - 1; i++) {
+			east.add(NetworkUtils.createAndAddLink(network, Id.createLinkId("e" + i), nodes[i], nodes[i + 1], 500, 15, capacity, 1));
+		}
+		for (int i = NODES - 1; i > 0; i--) {
+			west.add(NetworkUtils.createAndAddLink(network, Id.createLinkId("w" + i), nodes[i], nodes[i - 1], 500, 15, capacity, 1));
+		}
+	}
+}
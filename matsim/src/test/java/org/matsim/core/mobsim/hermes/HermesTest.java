@@ -60,8 +60,10 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
@@ -237,6 +239,106 @@ public class HermesTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Passing events on to the events manager every minute must not change them, and the events must reach the
+	 * handlers while the agents are still simulated.
+	 */
+	@Test
+	public void testTwoAgentShortEventsFlushInterval() {
+		Fixture f = new Fixture();
+		f.config.hermes().setEventsFlushInterval(60);
+
+		for (int i = 0; i < 2; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime((6+i)*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		BatchRecordingEventsManager events = new BatchRecordingEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+		EventsCollector allEvents = new EventsCollector();
+		events.addHandler(allEvents);
+
+		Hermes sim = createHermes(f, events);
+		sim.run();
+
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 6.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 6.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in third event.", 7.0*3600, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in fourth event.", 7.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+		for (int i = 1; i < allEvents.getEvents().size(); i++) {
+			Assert.assertTrue("events are not ordered by time.", allEvents.getEvents().get(i - 1).getTime() <= allEvents.getEvents().get(i).getTime());
+		}
+
+		// the events of the first agent are passed on long before the second agent departs
+		Assert.assertTrue("events were only passed on at the end of the simulation.", events.batches.size() > 1);
+		for (double[] batch : events.batches) {
+			Assert.assertTrue("events of more than one flush interval were passed on at once.", batch[1] - batch[0] < 60);
+		}
+	}
+
+	/**
+	 * Passes all events on and remembers the times of the first and the last event of every batch of events the
+	 * mobsim hands over.
+	 */
+	private static class BatchRecordingEventsManager implements EventsManager {
+		private final EventsManager delegate = EventsUtils.createEventsManager();
+		final List<double[]> batches = new ArrayList<>();
+
+		@Override
+		public void processEvent(Event event) {
+			this.delegate.processEvent(event);
+		}
+
+		@Override
+		public void processEvents(EventArray events) {
+			if (events.size() > 0) {
+				this.batches.add(new double[] {events.get(0).getTime(), events.get(events.size() - 1).getTime()});
+			}
+			this.delegate.processEvents(events);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			this.delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			this.delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			this.delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			this.delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			this.delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			this.delegate.finishProcessing();
+		}
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
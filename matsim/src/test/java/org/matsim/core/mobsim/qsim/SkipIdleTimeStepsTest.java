@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.HasNextWakeUpTime;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class SkipIdleTimeStepsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsWithFewerTimeSteps() {
+		StepCounter withoutSkipping = new StepCounter();
+		List<String> expected = runQSim(false, false, withoutSkipping);
+		StepCounter withSkipping = new StepCounter();
+		Assert.assertEquals(expected, runQSim(true, false, withSkipping));
+		Assert.assertTrue(withSkipping.steps < withoutSkipping.steps / 2);
+	}
+
+	/**
+	 * Teleported legs and network change events also have to wake up the simulation at the right time.
+	 */
+	@Test
+	public void testTeleportationAndNetworkChangeEvents() {
+		StepCounter withoutSkipping = new StepCounter();
+		List<String> expected = runQSim(false, true, withoutSkipping);
+		Assert.assertTrue(expected.stream().anyMatch(event -> event.contains("legMode=\"walk\"")));
+		StepCounter withSkipping = new StepCounter();
+		Assert.assertEquals(expected, runQSim(true, true, withSkipping));
+		Assert.assertTrue(withSkipping.steps < withoutSkipping.steps);
+	}
+
+	private List<String> runQSim(boolean skipIdleTimeSteps, boolean teleportationAndChangeEvents, StepCounter counter) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setInputFile("plans100.xml");
+		config.qsim().setSkipIdleTimeSteps(skipIdleTimeSteps);
+		config.network().setTimeVariantNetwork(teleportationAndChangeEvents);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		if (teleportationAndChangeEvents) {
+			int i = 0;
+			for (Person person : scenario.getPopulation().getPersons().values()) {
+				if (i++ % 3 == 0) {
+					for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+						if (pe instanceof Leg) {
+							((Leg) pe).setMode(TransportMode.walk);
+							((Leg) pe).setRoute(null);
+						}
+					}
+				}
+			}
+			// slows down the long links shortly after the morning departures
+			NetworkChangeEvent changeEvent = new NetworkChangeEvent(6 * 3600 + 123.0);
+			changeEvent.setFreespeedChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.FACTOR, 0.5));
+			for (int link = 2; link <= 10; link++) {
+				changeEvent.addLink(scenario.getNetwork().getLinks().get(Id.create(link, Link.class)));
+			}
+			NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), changeEvent);
+		}
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.addQueueSimulationListeners(counter);
+		qsim.run();
+
+		List<String> strings = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			strings.add(event.toString());
+		}
+		return strings;
+	}
+
+	/**
+	 * Counts the simulated time steps. It has nothing to do in particular time steps, so it does not prevent skipping.
+	 */
+	private static class StepCounter implements MobsimAfterSimStepListener, HasNextWakeUpTime {
+		int steps = 0;
+
+		@Override
+		public void notifyMobsimAfterSimStep(org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent e) {
+			this.steps++;
+		}
+
+		@Override
+		public double getNextWakeUpTime(double now) {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+}
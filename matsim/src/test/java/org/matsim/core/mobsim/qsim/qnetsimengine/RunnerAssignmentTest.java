@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NodeAssignment;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RunnerAssignmentTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Which runner handles a node must not have an influence on the traffic dynamics.
+	 */
+	@Test
+	public void testSpatialNodeAssignmentKeepsResults() {
+		List<String> expected = runQSim(1, NodeAssignment.roundRobin);
+		Assert.assertEquals(expected, runQSim(4, NodeAssignment.coordinateBisection));
+		Assert.assertEquals(expected, runQSim(4, NodeAssignment.hilbertCurve));
+	}
+
+	private List<String> runQSim(int threads, NodeAssignment nodeAssignment) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(threads);
+		config.qsim().setNodeAssignment(nodeAssignment);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		return toSortedStrings(collector.getEvents());
+	}
+
+	private static List<String> toSortedStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		Collections.sort(strings);
+		return strings;
+	}
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RunnerRebalancingTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Which runner handles a node must not have an influence on the traffic dynamics.
+	 */
+	@Test
+	public void testRebalancingKeepsResults() {
+		List<String> expected = runQSim(1, 0);
+
+		EventsCollector collector = new EventsCollector();
+		QSim qsim = createQSim(4, 1, collector);
+		qsim.run();
+		Assert.assertEquals(expected, toSortedStrings(collector.getEvents()));
+
+		AbstractQNetsimEngine<?> engine = (AbstractQNetsimEngine<?>) qsim.getChildInjector().getInstance(QNetsimEngineI.class);
+		Assert.assertTrue(engine.getRebalancedLoad() > 0);
+	}
+
+	private List<String> runQSim(int threads, int rebalancingInterval) {
+		EventsCollector collector = new EventsCollector();
+		createQSim(threads, rebalancingInterval, collector).run();
+		return toSortedStrings(collector.getEvents());
+	}
+
+	private QSim createQSim(int threads, int rebalancingInterval, EventsCollector collector) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(threads);
+		config.qsim().setRunnerRebalancingInterval(rebalancingInterval);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(collector);
+		return new QSimBuilder(config).useDefaults().build(scenario, events);
+	}
+
+	private static List<String> toSortedStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		Collections.sort(strings);
+		return strings;
+	}
+}
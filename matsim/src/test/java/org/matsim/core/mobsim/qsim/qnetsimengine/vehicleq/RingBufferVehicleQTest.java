@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+public class RingBufferVehicleQTest {
+
+	@Test
+	public void testFifoOrderAndAddFirst() {
+		List<QVehicle> vehicles = createVehicles(3);
+		RingBufferVehicleQ queue = new RingBufferVehicleQ();
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+
+		queue.add(vehicles.get(1));
+		queue.add(vehicles.get(2));
+		queue.addFirst(vehicles.get(0));
+		Assert.assertEquals(3, queue.size());
+		Assert.assertSame(vehicles.get(0), queue.peek());
+		Assert.assertSame(vehicles.get(0), queue.poll());
+		Assert.assertSame(vehicles.get(1), queue.poll());
+		Assert.assertSame(vehicles.get(2), queue.poll());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testGrowsAndWrapsAround() {
+		List<QVehicle> vehicles = createVehicles(100);
+		RingBufferVehicleQ queue = new RingBufferVehicleQ();
+		FIFOVehicleQ reference = new FIFOVehicleQ();
+		for (int i = 0; i < vehicles.size(); i++) {
+			queue.add(vehicles.get(i));
+			reference.add(vehicles.get(i));
+			if (i % 3 == 0) {
+				Assert.assertSame(reference.poll(), queue.poll());
+			}
+			if (i % 7 == 0 && !reference.isEmpty()) {
+				QVehicle first = reference.poll();
+				queue.poll();
+				reference.addFirst(first);
+				queue.addFirst(first);
+			}
+			Assert.assertEquals(new ArrayList<>(reference), new ArrayList<>(queue));
+		}
+		while (!reference.isEmpty()) {
+			Assert.assertSame(reference.poll(), queue.poll());
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testIteratorRemoveAndClear() {
+		List<QVehicle> vehicles = createVehicles(10);
+		RingBufferVehicleQ queue = new RingBufferVehicleQ();
+		// move the head so that the content wraps around the end of the array
+		for (int i = 0; i < 5; i++) {
+			queue.add(vehicles.get(i));
+			queue.poll();
+		}
+		queue.addAll(vehicles);
+
+		Iterator<QVehicle> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			QVehicle vehicle = iterator.next();
+			if (vehicles.indexOf(vehicle) % 2 == 1) {
+				iterator.remove();
+			}
+		}
+		Assert.assertEquals(5, queue.size());
+		for (int i = 0; i < 10; i += 2) {
+			Assert.assertSame(vehicles.get(i), queue.poll());
+		}
+
+		queue.addAll(vehicles);
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.peek());
+	}
+
+	@Test
+	public void testValuesStayWithVehicles() {
+		List<QVehicle> vehicles = createVehicles(20);
+		RingBufferVehicleQ queue = new RingBufferVehicleQ();
+		queue.add(vehicles.get(0));
+		for (int i = 1; i < vehicles.size(); i++) {
+			queue.offer(vehicles.get(i), i * 0.5);
+			if (i % 4 == 0) {
+				queue.poll();
+			}
+		}
+		queue.addFirst(vehicles.get(0));
+		Assert.assertEquals(0.0, queue.getValue(0), 0.0);
+		for (int i = 1; i < queue.size(); i++) {
+			QVehicle vehicle = queue.get(i);
+			Assert.assertEquals(vehicles.indexOf(vehicle) * 0.5, queue.getValue(i), 0.0);
+		}
+
+		queue.remove(queue.get(2));
+		for (int i = 1; i < queue.size(); i++) {
+			Assert.assertEquals(vehicles.indexOf(queue.get(i)) * 0.5, queue.getValue(i), 0.0);
+		}
+	}
+
+	private static List<QVehicle> createVehicles(int count) {
+		VehicleType type = VehicleUtils.createVehicleType(Id.create("car", VehicleType.class));
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			vehicles.add(new QVehicleImpl(VehicleUtils.createVehicle(Id.create(i, Vehicle.class), type)));
+		}
+		return vehicles;
+	}
+}
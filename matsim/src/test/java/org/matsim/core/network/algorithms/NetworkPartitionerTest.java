@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class NetworkPartitionerTest {
+
+	@Test
+	public void testHilbertIndex() {
+		Assert.assertEquals(0, NetworkPartitioner.hilbertIndex(0, 0, 2));
+		Assert.assertEquals(1, NetworkPartitioner.hilbertIndex(0, 1, 2));
+		Assert.assertEquals(2, NetworkPartitioner.hilbertIndex(1, 1, 2));
+		Assert.assertEquals(3, NetworkPartitioner.hilbertIndex(1, 0, 2));
+		// consecutive cells along the curve are neighbours
+		int cells = 8;
+		int[] x = new int[cells * cells];
+		int[] y = new int[cells * cells];
+		for (int i = 0; i < cells; i++) {
+			for (int j = 0; j < cells; j++) {
+				int d = (int) NetworkPartitioner.hilbertIndex(i, j, cells);
+				x[d] = i;
+				y[d] = j;
+			}
+		}
+		for (int d = 1; d < cells * cells; d++) {
+			Assert.assertEquals(1, Math.abs(x[d] - x[d - 1]) + Math.abs(y[d] - y[d - 1]));
+		}
+	}
+
+	@Test
+	public void testCoordinateBisection() {
+		assertCompactAndBalanced(NetworkPartitioner.Method.coordinateBisection);
+	}
+
+	@Test
+	public void testHilbertCurve() {
+		assertCompactAndBalanced(NetworkPartitioner.Method.hilbertCurve);
+	}
+
+	private static void assertCompactAndBalanced(NetworkPartitioner.Method method) {
+		int size = 16;
+		Network network = createGrid(size);
+		int[] parts = NetworkPartitioner.partition(network, 4, method);
+
+		int[] weights = new int[4];
+		for (Node node : network.getNodes().values()) {
+			weights[parts[node.getId().index()]] += 1 + node.getOutLinks().size();
+		}
+		int total = weights[0] + weights[1] + weights[2] + weights[3];
+		for (int weight : weights) {
+			Assert.assertEquals(total / 4.0, weight, total * 0.05);
+		}
+
+		int cut = 0;
+		for (Link link : network.getLinks().values()) {
+			if (parts[link.getFromNode().getId().index()] != parts[link.getToNode().getId().index()]) {
+				cut++;
+			}
+		}
+		// a perfect split of the grid into quadrants cuts 4 * 16 links, round robin almost all of them
+		Assert.assertTrue("too many links between parts: " + cut, cut <= 8 * size);
+	}
+
+	private static Network createGrid(int size) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		Node[][] nodes = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				nodes[i][j] = nf.createNode(Id.createNodeId(i + "_" + j), new Coord(i * 100.0, j * 100.0));
+				network.addNode(nodes[i][j]);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (i + 1 < size) {
+					network.addLink(nf.createLink(Id.createLinkId(i + "_" + j + "-e"), nodes[i][j], nodes[i + 1][j]));
+					network.addLink(nf.createLink(Id.createLinkId(i + "_" + j + "-w"), nodes[i + 1][j], nodes[i][j]));
+				}
+				if (j + 1 < size) {
+					network.addLink(nf.createLink(Id.createLinkId(i + "_" + j + "-n"), nodes[i][j], nodes[i][j + 1]));
+					network.addLink(nf.createLink(Id.createLinkId(i + "_" + j + "-s"), nodes[i][j + 1], nodes[i][j]));
+				}
+			}
+		}
+		return network;
+	}
+}
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPlanTest {
+
+	@Test
+	public void testCompactAndDecode() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		Person person = population.getFactory().createPerson(Id.create(1, Person.class));
+		population.addPerson(person);
+
+		Plan selectedPlan = PopulationUtils.createPlan(person);
+		PopulationUtils.createAndAddActivityFromLinkId(selectedPlan, "home", Id.create("1", Link.class));
+		person.addPlan(selectedPlan);
+		Plan plan = createPlan(person);
+		person.addPlan(plan);
+		person.setSelectedPlan(selectedPlan);
+
+		Assert.assertEquals(1, PopulationUtils.compactUnselectedPlans(population));
+		Assert.assertSame(selectedPlan, person.getPlans().get(0));
+		Plan compactPlan = person.getPlans().get(1);
+		Assert.assertTrue(compactPlan instanceof CompactPlan);
+		Assert.assertTrue(((CompactPlan) compactPlan).isCompact());
+
+		// these do not need to decode the plan
+		Assert.assertEquals(12.5, compactPlan.getScore(), 0.0);
+		Assert.assertEquals("special", compactPlan.getType());
+		Assert.assertSame(person, compactPlan.getPerson());
+		Assert.assertEquals("value", compactPlan.getAttributes().getAttribute("planAttribute"));
+		Assert.assertTrue(((CompactPlan) compactPlan).isCompact());
+
+		assertSamePlanElements(plan, compactPlan);
+		Assert.assertFalse(((CompactPlan) compactPlan).isCompact());
+
+		// decoded plans can be modified and are compacted again
+		((Activity) compactPlan.getPlanElements().get(0)).setEndTime(7 * 3600);
+		Assert.assertEquals(1, PopulationUtils.compactUnselectedPlans(population));
+		Assert.assertSame(compactPlan, person.getPlans().get(1));
+		Assert.assertTrue(((CompactPlan) compactPlan).isCompact());
+		Assert.assertEquals(7 * 3600, ((Activity) compactPlan.getPlanElements().get(0)).getEndTime().seconds(), 0.0);
+
+		// compact plans can be selected
+		person.setSelectedPlan(compactPlan);
+		Assert.assertEquals(5, person.getSelectedPlan().getPlanElements().size());
+	}
+
+	@Test
+	public void testNonStringAttributesAreNotCompacted() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = createPlan(person);
+		plan.getPlanElements().get(0).getAttributes().putAttribute("number", 42);
+		Assert.assertNull(CompactPlan.create(plan, new CompactPlan.Dictionary()));
+	}
+
+	private static Plan createPlan(Person person) {
+		Plan plan = PopulationUtils.createPlan(person);
+		plan.setScore(12.5);
+		plan.setType("special");
+		plan.getAttributes().putAttribute("planAttribute", "value");
+
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "home", new Coord(100, 200));
+		home.setLinkId(Id.create("1", Link.class));
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(8 * 3600);
+
+		Leg carLeg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		carLeg.setDepartureTime(8 * 3600);
+		carLeg.setTravelTime(600);
+		TripStructureUtils.setRoutingMode(carLeg, TransportMode.car);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class),
+				Arrays.asList(Id.create("2", Link.class), Id.create("3", Link.class)), Id.create("4", Link.class));
+		networkRoute.setVehicleId(Id.create("v1", Vehicle.class));
+		networkRoute.setDistance(1234.5);
+		networkRoute.setTravelTime(600);
+		carLeg.setRoute(networkRoute);
+
+		Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "work", Id.create("4", Link.class));
+		work.setCoord(new Coord(1000, 2000, 30));
+		work.setStartTime(8 * 3600 + 600);
+		work.setMaximumDuration(8 * 3600);
+
+		Leg walkLeg = PopulationUtils.createAndAddLeg(plan, TransportMode.walk);
+		GenericRouteImpl genericRoute = new GenericRouteImpl(Id.create("4", Link.class), Id.create("1", Link.class));
+		genericRoute.setRouteDescription("somewhere");
+		walkLeg.setRoute(genericRoute);
+
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "home", Id.create("1", Link.class));
+		return plan;
+	}
+
+	private static void assertSamePlanElements(Plan expected, Plan actual) {
+		List<?> expectedElements = expected.getPlanElements();
+		List<?> actualElements = actual.getPlanElements();
+		Assert.assertEquals(expectedElements.size(), actualElements.size());
+		for (int i = 0; i < expectedElements.size(); i++) {
+			if (expectedElements.get(i) instanceof Activity) {
+				Activity e = (Activity) expectedElements.get(i);
+				Activity a = (Activity) actualElements.get(i);
+				Assert.assertEquals(e.getType(), a.getType());
+				Assert.assertEquals(e.getLinkId(), a.getLinkId());
+				Assert.assertEquals(e.getFacilityId(), a.getFacilityId());
+				Assert.assertEquals(e.getCoord(), a.getCoord());
+				Assert.assertEquals(e.getStartTime(), a.getStartTime());
+				Assert.assertEquals(e.getEndTime(), a.getEndTime());
+				Assert.assertEquals(e.getMaximumDuration(), a.getMaximumDuration());
+			} else {
+				Leg e = (Leg) expectedElements.get(i);
+				Leg a = (Leg) actualElements.get(i);
+				Assert.assertEquals(e.getMode(), a.getMode());
+				Assert.assertEquals(TripStructureUtils.getRoutingMode(e), TripStructureUtils.getRoutingMode(a));
+				Assert.assertEquals(e.getDepartureTime(), a.getDepartureTime());
+				Assert.assertEquals(e.getTravelTime(), a.getTravelTime());
+				Assert.assertEquals(e.getRoute().getStartLinkId(), a.getRoute().getStartLinkId());
+				Assert.assertEquals(e.getRoute().getEndLinkId(), a.getRoute().getEndLinkId());
+				Assert.assertEquals(e.getRoute().getRouteDescription(), a.getRoute().getRouteDescription());
+				Assert.assertEquals(e.getRoute().getDistance(), a.getRoute().getDistance(), 0.0);
+				Assert.assertEquals(e.getRoute().getTravelTime(), a.getRoute().getTravelTime());
+				if (e.getRoute() instanceof NetworkRoute) {
+					Assert.assertEquals(((NetworkRoute) e.getRoute()).getLinkIds(), ((NetworkRoute) a.getRoute()).getLinkIds());
+					Assert.assertEquals(((NetworkRoute) e.getRoute()).getVehicleId(), ((NetworkRoute) a.getRoute()).getVehicleId());
+				}
+			}
+		}
+	}
+}
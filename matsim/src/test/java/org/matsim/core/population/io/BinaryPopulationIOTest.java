@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPopulationIOTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class BinaryPopulationIOTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() {
+		Population population = createPopulation();
+		String filename = utils.getOutputDirectory() + "/population.pop.bin.gz";
+		new PopulationWriter(population).write(filename);
+
+		Population readPopulation = PopulationUtils.readPopulation(filename);
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, readPopulation));
+
+		Person person = readPopulation.getPersons().get(Id.create("2", Person.class));
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertNull(person.getPlans().get(1).getScore());
+		Assert.assertEquals(-12.25, person.getPlans().get(0).getScore(), 0.0);
+
+		Leg leg = (Leg) person.getPlans().get(0).getPlanElements().get(1);
+		Assert.assertTrue(leg.getRoute() instanceof NetworkRoute);
+		Assert.assertEquals(Arrays.asList(Id.create("b", Link.class), Id.create("c", Link.class)), ((NetworkRoute) leg.getRoute()).getLinkIds());
+		Assert.assertEquals(Id.create("v2", Vehicle.class), ((NetworkRoute) leg.getRoute()).getVehicleId());
+		Assert.assertEquals(1234.5, leg.getDepartureTime().seconds(), 0.0);
+		Assert.assertTrue(leg.getTravelTime().isUndefined());
+
+		Activity act = (Activity) person.getPlans().get(0).getPlanElements().get(2);
+		Assert.assertEquals(-100, act.getCoord().getZ(), 0.0);
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), act.getFacilityId());
+		Assert.assertEquals(7, person.getAttributes().getAttribute("age"));
+		Assert.assertEquals(Boolean.TRUE, person.getAttributes().getAttribute("carAvail"));
+		Assert.assertEquals(1L << 40, person.getAttributes().getAttribute("long"));
+		Assert.assertEquals(new Coord(1, 2), person.getAttributes().getAttribute("home"));
+		Assert.assertEquals("binary", readPopulation.getAttributes().getAttribute("name"));
+	}
+
+	@Test
+	public void testFileTypeGuesser() {
+		Population population = createPopulation();
+		String filename = utils.getOutputDirectory() + "/population.pop.bin";
+		new BinaryPopulationWriter(population).write(filename);
+
+		Assert.assertTrue(BinaryPopulationFormat.isBinaryPopulationFile(filename));
+		Assert.assertTrue(BinaryPopulationFormat.isBinaryPopulationFile("output_plans.pop.bin.zst"));
+		Assert.assertFalse(BinaryPopulationFormat.isBinaryPopulationFile("output_plans.xml.gz"));
+		Assert.assertEquals(MatsimFileTypeGuesser.FileType.Population, new MatsimFileTypeGuesser(filename).getGuessedFileType());
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new BinaryPopulationReader(scenario).readFile(filename);
+		Assert.assertEquals(population.getPersons().keySet(), scenario.getPopulation().getPersons().keySet());
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("name", "binary");
+
+		for (int i = 0; i < 3; i++) {
+			Person person = pf.createPerson(Id.create(i, Person.class));
+			person.getAttributes().putAttribute("age", 5 + i);
+			person.getAttributes().putAttribute("carAvail", Boolean.TRUE);
+			person.getAttributes().putAttribute("long", 1L << 40);
+			person.getAttributes().putAttribute("home", new Coord(1, 2));
+
+			Plan plan = pf.createPlan();
+			plan.setScore(-12.25);
+			plan.setType("regular");
+			Activity home = pf.createActivityFromLinkId("home", Id.create("a", Link.class));
+			home.setCoord(new Coord(100.5, 200));
+			home.setEndTime(7 * 3600);
+			home.getAttributes().putAttribute("note", "früh");
+			plan.addActivity(home);
+
+			Leg car = pf.createLeg("car");
+			car.setDepartureTime(1234.5);
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("a", Link.class),
+					Arrays.asList(Id.create("b", Link.class), Id.create("c", Link.class)), Id.create("d", Link.class));
+			route.setVehicleId(Id.create("v" + i, Vehicle.class));
+			route.setDistance(1500);
+			route.setTravelTime(600);
+			car.setRoute(route);
+			car.getAttributes().putAttribute("routingMode", "car");
+			plan.addLeg(car);
+
+			Activity work = pf.createActivityFromCoord("work", new Coord(0, 0, -100));
+			work.setFacilityId(Id.create("f1", ActivityFacility.class));
+			work.setStartTime(8 * 3600);
+			work.setMaximumDuration(8 * 3600);
+			plan.addActivity(work);
+
+			Leg walk = pf.createLeg("walk");
+			walk.setTravelTime(300.75);
+			GenericRouteImpl genericRoute = new GenericRouteImpl(Id.create("d", Link.class), Id.create("a", Link.class));
+			genericRoute.setRouteDescription("walking home");
+			genericRoute.setDistance(1000);
+			walk.setRoute(genericRoute);
+			plan.addLeg(walk);
+			plan.addActivity(pf.createActivityFromLinkId("home", Id.create("a", Link.class)));
+			person.addPlan(plan);
+
+			Plan otherPlan = pf.createPlan();
+			otherPlan.addActivity(pf.createActivityFromLinkId("home", Id.create("a", Link.class)));
+			person.addPlan(otherPlan);
+			person.setSelectedPlan(otherPlan);
+
+			population.addPerson(person);
+		}
+		return population;
+	}
+}
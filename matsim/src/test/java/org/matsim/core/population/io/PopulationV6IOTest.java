@@ -38,10 +38,18 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * @author thibautd
@@ -321,4 +329,114 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReadingKeepsPersonOrder() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("name", "parallel");
+
+		// ids not added in file order, so that a population in insertion order would be detected
+		for (int i = 0; i < 1000; i++) {
+			Person person = pf.createPerson(Id.create((i * 7919) % 1000, Person.class));
+			person.getAttributes().putAttribute("index", i);
+			Plan plan = pf.createPlan();
+			Activity act1 = pf.createActivityFromCoord("home", new Coord(i, 0));
+			act1.setEndTime(8*3600 + i);
+			Leg leg = pf.createLeg("special");
+			GenericRouteImpl route = new GenericRouteImpl(Id.create("a" + i, Link.class), Id.create("b" + i, Link.class));
+			route.setRouteDescription("route " + i);
+			leg.setRoute(route);
+			plan.addActivity(act1);
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromCoord("work", new Coord(i, 1000)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+
+		// ----
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().global().setNumberOfThreads(4);
+
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		new PopulationReader(scenario).parse(in);
+
+		Assert.assertEquals("parallel", scenario.getPopulation().getAttributes().getAttribute("name"));
+		// the writer writes the persons sorted by id, and the reader must keep the order of the file
+		List<Id<Person>> expectedIds = new ArrayList<>(PopulationUtils.getSortedPersons(population).keySet());
+		List<Id<Person>> readIds = new ArrayList<>(scenario.getPopulation().getPersons().keySet());
+		Assert.assertEquals(expectedIds, readIds);
+
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			int i = (Integer) person.getAttributes().getAttribute("index");
+			Plan plan = person.getSelectedPlan();
+			Assert.assertEquals(3, plan.getPlanElements().size());
+			Assert.assertEquals(8*3600 + i, ((Activity) plan.getPlanElements().get(0)).getEndTime().seconds(), 0.0);
+			Assert.assertEquals("route " + i, ((Leg) plan.getPlanElements().get(1)).getRoute().getRouteDescription());
+			Assert.assertEquals(Id.create("b" + i, Link.class), ((Leg) plan.getPlanElements().get(1)).getRoute().getEndLinkId());
+		}
+	}
+
+	@Test
+	public void testParallelGzipWritingProducesSameContent() throws IOException, DataFormatException {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 3500; i++) {
+			Person person = pf.createPerson(Id.create((i * 7919) % 3500, Person.class));
+			person.getAttributes().putAttribute("index", i);
+			Plan plan = pf.createPlan();
+			Activity act1 = pf.createActivityFromCoord("home", new Coord(i, 0));
+			act1.setEndTime(8*3600 + i);
+			plan.addActivity(act1);
+			plan.addLeg(pf.createLeg("car"));
+			plan.addActivity(pf.createActivityFromCoord("work", new Coord(i, 1000)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		final String sequentialFile = utils.getOutputDirectory() + "/population_sequential.xml.gz";
+		final String parallelFile = utils.getOutputDirectory() + "/population_parallel.xml.gz";
+		new PopulationWriter(population).write(sequentialFile);
+		PopulationWriter parallelWriter = new PopulationWriter(population);
+		parallelWriter.setNumberOfThreads(4);
+		parallelWriter.write(parallelFile);
+
+		// the chunks written in parallel must decompress to the same xml
+		Assert.assertTrue(IOUtils.isEqual(
+				IOUtils.getInputStream(IOUtils.getFileUrl(sequentialFile)),
+				IOUtils.getInputStream(IOUtils.getFileUrl(parallelFile))));
+		Assert.assertTrue(countGzipMembers(Files.readAllBytes(Paths.get(parallelFile))) > 1);
+
+		// the writer writes the persons sorted by id
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(scenario).readFile(parallelFile);
+		Assert.assertEquals(new ArrayList<>(PopulationUtils.getSortedPersons(population).keySet()), new ArrayList<>(scenario.getPopulation().getPersons().keySet()));
+	}
+
+	/**
+	 * Counts the members of a gzip file as written by {@link java.util.zip.GZIPOutputStream}, i.e. with a 10 byte
+	 * header without optional fields.
+	 */
+	private static int countGzipMembers(final byte[] data) throws DataFormatException {
+		int members = 0;
+		int pos = 0;
+		byte[] buffer = new byte[1 << 16];
+		while (pos < data.length) {
+			Assert.assertEquals(0x1f, data[pos] & 0xff);
+			Assert.assertEquals(0x8b, data[pos + 1] & 0xff);
+			Inflater inflater = new Inflater(true);
+			inflater.setInput(data, pos + 10, data.length - pos - 10);
+			while (!inflater.finished()) {
+				inflater.inflate(buffer);
+			}
+			pos = data.length - inflater.getRemaining() + 8; // skip the crc and size trailer
+			inflater.end();
+			members++;
+		}
+		return members;
+	}
 }
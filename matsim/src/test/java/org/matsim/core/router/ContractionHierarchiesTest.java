@@ -0,0 +1,162 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createGrid(25, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 7 * 3600, null, null);
+			Path path = ch.calcLeastCostPath(from, to, 7 * 3600, null, null);
+			assertEquals(expected.travelCost, path.travelCost, 1e-9 * Math.max(1.0, Math.abs(expected.travelCost)));
+			assertEquals(expected.travelTime, path.travelTime, 1e-6);
+			assertEquals(from, path.getFromNode());
+			assertEquals(to, path.getToNode());
+			assertEquals(path.links.size() + 1, path.nodes.size());
+			for (int l = 0; l < path.links.size(); l++) {
+				assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+				assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testUnreachableNode() {
+		Network network = createGrid(5, new Random(1));
+		Node island = NetworkUtils.createAndAddNode(network, Id.create("island", Node.class), new Coord(-1000, -1000));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		assertNull(ch.calcLeastCostPath(network.getNodes().get(Id.create("0_0", Node.class)), island, 0, null, null));
+	}
+
+	/**
+	 * The weights depend on the time slice of the departure, and are updated after resetting the customizations.
+	 */
+	public void testTimeSlicesAndReset() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.create("a", Node.class), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.create("b", Node.class), new Coord(1000, 1000));
+		Node c = NetworkUtils.createAndAddNode(network, Id.create("c", Node.class), new Coord(1000, -1000));
+		Node d = NetworkUtils.createAndAddNode(network, Id.create("d", Node.class), new Coord(2000, 0));
+		Link ab = NetworkUtils.createAndAddLink(network, Id.create("ab", Link.class), a, b, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("bd", Link.class), b, d, 1000, 10, 1000, 1);
+		Link ac = NetworkUtils.createAndAddLink(network, Id.create("ac", Link.class), a, c, 1100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("cd", Link.class), c, d, 1100, 10, 1000, 1);
+
+		CongestedTravelTime travelTime = new CongestedTravelTime(ab, 12 * 3600.0);
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		LeastCostPathCalculator ch = factory.createPathCalculator(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+
+		assertEquals(ab, ch.calcLeastCostPath(a, d, 8 * 3600, null, null).links.get(0));
+		Path afternoon = ch.calcLeastCostPath(a, d, 14 * 3600, null, null);
+		assertEquals(ac, afternoon.links.get(0));
+		assertEquals(220.0, afternoon.travelTime, 1e-9);
+
+		travelTime.congestedLink = ac;
+		// still the old weights
+		assertEquals(ac, ch.calcLeastCostPath(a, d, 14 * 3600, null, null).links.get(0));
+		factory.resetCustomizations();
+		ch = factory.createPathCalculator(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		assertEquals(ab, ch.calcLeastCostPath(a, d, 14 * 3600, null, null).links.get(0));
+		assertEquals(ab, ch.calcLeastCostPath(a, d, 8 * 3600, null, null).links.get(0));
+	}
+
+	private static Network createGrid(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node from, Node to, int linkId, Random random) {
+		double length = 100 + random.nextInt(50);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), from, to, length, 5 + random.nextInt(20), 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), to, from, length, 5 + random.nextInt(20), 1000, 1);
+	}
+
+	/**
+	 * Free speed travel times, but ten times as long on one link after a given time.
+	 */
+	private static class CongestedTravelTime implements TravelTime {
+		private Link congestedLink;
+		private final double congestionStart;
+
+		CongestedTravelTime(Link congestedLink, double congestionStart) {
+			this.congestedLink = congestedLink;
+			this.congestionStart = congestionStart;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double travelTime = link.getLength() / link.getFreespeed();
+			return link == this.congestedLink && time >= this.congestionStart ? 10 * travelTime : travelTime;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class OneToManyPathCalculatorTest {
+
+	@Test
+	public void testSameResultsAsDijkstra() {
+		Network network = createGrid(12, new Random(4711));
+		TravelTime travelTime = new TimeDependentTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+		OneToManyPathCalculator calculator = new OneToManyPathCalculatorFactory().createPathCalculator(network, travelDisutility, travelTime);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		List<Node> fromNodes = new ArrayList<>();
+		List<Node> toNodes = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			fromNodes.add(nodes.get(random.nextInt(nodes.size())));
+			toNodes.add(nodes.get(random.nextInt(nodes.size())));
+		}
+		toNodes.add(fromNodes.get(0));
+
+		Path[][] paths = calculator.calcLeastCostPaths(fromNodes, toNodes, 7 * 3600, null, null);
+		double[][] costs = calculator.calcLeastCosts(fromNodes, toNodes, 7 * 3600, null, null);
+		for (int i = 0; i < fromNodes.size(); i++) {
+			for (int j = 0; j < toNodes.size(); j++) {
+				Path expected = dijkstra.calcLeastCostPath(fromNodes.get(i), toNodes.get(j), 7 * 3600, null, null);
+				Path path = paths[i][j];
+				Assert.assertEquals(expected.travelCost, path.travelCost, 1e-9);
+				Assert.assertEquals(expected.travelTime, path.travelTime, 1e-9);
+				Assert.assertEquals(expected.travelCost, costs[i][j], 1e-9);
+				Assert.assertEquals(fromNodes.get(i), path.getFromNode());
+				Assert.assertEquals(toNodes.get(j), path.getToNode());
+				Assert.assertEquals(path.links.size() + 1, path.nodes.size());
+				for (int l = 0; l < path.links.size(); l++) {
+					Assert.assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+					Assert.assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFullTree() {
+		Network network = createGrid(5, new Random(1));
+		TravelTime travelTime = new TimeDependentTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+		OneToManyPathCalculator calculator = new OneToManyPathCalculatorFactory().createPathCalculator(network, travelDisutility, travelTime);
+
+		Node fromNode = network.getNodes().get(Id.create("2_2", Node.class));
+		calculator.calcLeastCostPathTree(fromNode, 0, null, null);
+		for (Node toNode : network.getNodes().values()) {
+			Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 0, null, null);
+			Assert.assertEquals(expected.travelCost, calculator.getCost(toNode), 1e-9);
+			Assert.assertEquals(expected.travelTime, calculator.getArrivalTime(toNode), 1e-9);
+		}
+	}
+
+	@Test
+	public void testUnreachableNode() {
+		Network network = createGrid(5, new Random(1));
+		Node island = NetworkUtils.createAndAddNode(network, Id.create("island", Node.class), new Coord(-1000, -1000));
+		TravelTime travelTime = new TimeDependentTravelTime();
+		OneToManyPathCalculator calculator = new OneToManyPathCalculatorFactory().createPathCalculator(network,
+				new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+
+		Node fromNode = network.getNodes().get(Id.create("0_0", Node.class));
+		Node reachable = network.getNodes().get(Id.create("4_4", Node.class));
+		List<Node> toNodes = List.of(island, reachable);
+		Path[] paths = calculator.calcLeastCostPaths(fromNode, toNodes, 0, null, null);
+		Assert.assertNull(paths[0]);
+		Assert.assertNotNull(paths[1]);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, calculator.getCost(island), 0.0);
+	}
+
+	private static Network createGrid(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node from, Node to, int linkId, Random random) {
+		double length = 100 + random.nextInt(50);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), from, to, length, 5 + random.nextInt(20), 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), to, from, length, 5 + random.nextInt(20), 1000, 1);
+	}
+
+	/**
+	 * Free speed travel times which get longer during the day, so that the tree has to be expanded time-dependent.
+	 */
+	private static class TimeDependentTravelTime implements TravelTime {
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed() * (1 + time / 36000);
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class RouteCacheTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCacheIsUsedByControler() {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.controler().setLastIteration(2);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(false);
+		config.plansCalcRoute().setRoutingRandomness(0);
+		config.plansCalcRoute().setRouteCacheSize(1000);
+		StrategySettings reRoute = new StrategySettings();
+		reRoute.setStrategyName(DefaultPlanStrategiesModule.DefaultStrategy.ReRoute);
+		reRoute.setWeight(1.0);
+		config.strategy().addStrategySettings(reRoute);
+
+		Controler controler = new Controler(ScenarioUtils.loadScenario(config));
+		controler.run();
+
+		RouteCache cache = controler.getInjector().getInstance(RouteCache.class);
+		Assert.assertTrue(cache.size() > 0);
+	}
+
+	@Test
+	public void testHitsAndInvalidation() {
+		Network network = createGrid(5);
+		FactorTravelTime travelTime = new FactorTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		RouteCache cache = new RouteCache(100, 900, 0.1);
+		LeastCostPathCalculator calculator = cache.wrap("car", new Dijkstra(network, travelDisutility, travelTime), travelDisutility, travelTime);
+
+		Node from = node(network, 0, 0);
+		Node to = node(network, 4, 2);
+		Path computed = calculator.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Path cached = calculator.calcLeastCostPath(from, to, 8 * 3600 + 100, null, null);
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(computed.links, cached.links);
+		Assert.assertEquals(computed.travelTime, cached.travelTime, 1e-9);
+		Assert.assertEquals(computed.travelCost, cached.travelCost, 1e-9);
+
+		// other time bin
+		calculator.calcLeastCostPath(from, to, 9 * 3600, null, null);
+		Assert.assertEquals(2, cache.getMisses());
+		Assert.assertEquals(2, cache.size());
+
+		// small changes keep the routes
+		Link link = computed.links.get(0);
+		travelTime.factors.put(link, 1.05);
+		Assert.assertEquals(0, cache.invalidateChangedPaths());
+
+		// larger ones discard all routes over the link
+		travelTime.factors.put(link, 2.0);
+		Assert.assertEquals(2, cache.invalidateChangedPaths());
+		Assert.assertEquals(0, cache.size());
+		calculator.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Assert.assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedRoutesAreEvicted() {
+		Network network = createGrid(5);
+		FactorTravelTime travelTime = new FactorTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		RouteCache cache = new RouteCache(2, 900, 0.1);
+		LeastCostPathCalculator calculator = cache.wrap("car", new Dijkstra(network, travelDisutility, travelTime), travelDisutility, travelTime);
+
+		Node from = node(network, 0, 0);
+		calculator.calcLeastCostPath(from, node(network, 1, 1), 0, null, null);
+		calculator.calcLeastCostPath(from, node(network, 2, 2), 0, null, null);
+		calculator.calcLeastCostPath(from, node(network, 1, 1), 0, null, null);
+		calculator.calcLeastCostPath(from, node(network, 3, 3), 0, null, null);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getHits());
+
+		// (2, 2) was used least recently
+		calculator.calcLeastCostPath(from, node(network, 1, 1), 0, null, null);
+		Assert.assertEquals(2, cache.getHits());
+		calculator.calcLeastCostPath(from, node(network, 2, 2), 0, null, null);
+		Assert.assertEquals(2, cache.getHits());
+	}
+
+	private static Node node(Network network, int x, int y) {
+		return network.getNodes().get(Id.create(x + "_" + y, Node.class));
+	}
+
+	private static Network createGrid(int size) {
+		Network network = NetworkUtils.createNetwork();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, node(network, x, y), node(network, x + 1, y), linkId);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					addLinks(network, node(network, x, y), node(network, x, y + 1), linkId);
+					linkId += 2;
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node from, Node to, int linkId) {
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), from, to, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), to, from, 100, 10, 1000, 1);
+	}
+
+	private static class FactorTravelTime implements TravelTime {
+		private final Map<Link, Double> factors = new HashMap<>();
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed() * this.factors.getOrDefault(link, 1.0);
+		}
+	}
+
+}
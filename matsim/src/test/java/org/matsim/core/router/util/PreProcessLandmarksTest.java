@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class PreProcessLandmarksTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCachedLandmarksAreReused() {
+		Network network = loadNetwork();
+		TravelDisutility disutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = this.utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks computed = new PreProcessLandmarks(disutility, 4);
+		computed.setCacheDirectory(cacheDirectory);
+		computed.run(network);
+
+		File[] files = new File(cacheDirectory).listFiles();
+		Assert.assertEquals(1, files.length);
+		// a re-computation would replace the file
+		Assert.assertTrue(files[0].setLastModified(0));
+
+		PreProcessLandmarks cached = new PreProcessLandmarks(disutility, 4);
+		cached.setCacheDirectory(cacheDirectory);
+		cached.run(network);
+
+		Assert.assertEquals(0, files[0].lastModified());
+		Assert.assertArrayEquals(computed.getLandmarks(), cached.getLandmarks());
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(computed.getNodeData(node).getMinLandmarkTravelTime(i), cached.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				Assert.assertEquals(computed.getNodeData(node).getMaxLandmarkTravelTime(i), cached.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testOtherDisutilityIsNotReadFromCache() {
+		Network network = loadNetwork();
+		TravelDisutility disutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelDisutility doubledDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return 2 * disutility.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return 2 * disutility.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		String cacheDirectory = this.utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks original = new PreProcessLandmarks(disutility, 4);
+		original.setCacheDirectory(cacheDirectory);
+		original.run(network);
+
+		PreProcessLandmarks doubled = new PreProcessLandmarks(doubledDisutility, 4);
+		doubled.setCacheDirectory(cacheDirectory);
+		doubled.run(network);
+
+		Assert.assertEquals(2, new File(cacheDirectory).listFiles().length);
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(2 * original.getNodeData(node).getMaxLandmarkTravelTime(i), doubled.getNodeData(node).getMaxLandmarkTravelTime(i), 1e-9);
+			}
+		}
+	}
+
+	private Network loadNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		return network;
+	}
+
+}
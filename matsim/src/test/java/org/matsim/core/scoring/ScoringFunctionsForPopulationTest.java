@@ -21,6 +21,10 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
@@ -126,12 +130,55 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	public void testParallelScoring() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 100; i++) {
+			population.addPerson(pf.createPerson(Id.create(i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+
+		EventsToActivities eventsToActivities = new EventsToActivities();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		ScoringFunctionFactory scoringFunctionFactory = agentId -> new RecordingScoringFunction();
+
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 4);
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		eventsManager.initProcessing();
+		for (int round = 1; round <= 3; round++) {
+			for (Person person : population.getPersons().values()) {
+				eventsManager.processEvent(new PersonScoreEvent(round * 3600, person.getId(), round, "testing"));
+			}
+		}
+		eventsManager.finishProcessing();
+		for (Person person : population.getPersons().values()) {
+			sf.handleActivity(new PersonExperiencedActivity(person.getId(), pf.createActivityFromCoord("home", new Coord(100, 100))));
+			sf.handleLeg(new PersonExperiencedLeg(person.getId(), pf.createLeg("walk")));
+			sf.handleActivity(new PersonExperiencedActivity(person.getId(), pf.createActivityFromCoord("work", new Coord(1000, 100))));
+		}
+		sf.finishScoringFunctions();
+
+		for (Person person : population.getPersons().values()) {
+			RecordingScoringFunction rsf = (RecordingScoringFunction) sf.getScoringFunctionForAgent(person.getId());
+			Assert.assertEquals(Arrays.asList(1.0, 2.0, 3.0), rsf.separateScores);
+			Assert.assertEquals(1, rsf.tripCounter);
+			Assert.assertTrue(rsf.finished);
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
 		TripStructureUtils.Trip lastTrip = null;
 		int separateScoreCounter = 0;
 		double separateScoreSum = 0;
+		List<Double> separateScores = new ArrayList<>();
+		boolean finished = false;
 
 		@Override
 		public void handleActivity(Activity activity) {
@@ -159,10 +206,12 @@ public class ScoringFunctionsForPopulationTest {
 		public void addScore(double amount) {
 			this.separateScoreCounter++;
 			this.separateScoreSum += amount;
+			this.separateScores.add(amount);
 		}
 
 		@Override
 		public void finish() {
+			this.finished = true;
 		}
 
 		@Override
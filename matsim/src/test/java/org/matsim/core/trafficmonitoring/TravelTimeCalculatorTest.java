@@ -50,6 +50,8 @@ import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.ArrayRoutingNetwork;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.io.IOUtils;
@@ -280,6 +282,99 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(freeSpeedTT, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 5*timeBinSize + offset, null, null), EPSILON);
 	}
 	
+	/**
+	 * Tests that splitting the aggregation over several shards results in the same travel times.
+	 */
+	public void testShardedAggregation() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		final Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, 1.0 );
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000.0, 10.0, 3600.0, 1.0 );
+
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder( network );
+		TravelTimeCalculator ttcalc = builder.build();
+		builder.setNumberOfShards( 3 );
+		TravelTimeCalculator shardedTtcalc = builder.build();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		ttcalc.addEventHandlers(events);
+		shardedTtcalc.addEventHandlers(events);
+		events.initProcessing();
+		for (int i = 0; i < 10; i++) {
+			Id<Vehicle> vehId = Id.create(i, Vehicle.class);
+			double time = 7.0 * 3600 + i * 300;
+			events.processEvent(new LinkEnterEvent(time, vehId, link1.getId()));
+			events.processEvent(new LinkLeaveEvent(time + 100 + 10 * i, vehId, link1.getId()));
+			events.processEvent(new LinkEnterEvent(time + 100 + 10 * i, vehId, link2.getId()));
+			events.processEvent(new LinkLeaveEvent(time + 200 + 20 * i, vehId, link2.getId()));
+		}
+		events.finishProcessing();
+
+		for (double time = 7.0 * 3600; time < 8.0 * 3600; time += 300) {
+			assertEquals(ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, time, null, null),
+					shardedTtcalc.getLinkTravelTimes().getLinkTravelTime(link1, time, null, null), EPSILON);
+			assertEquals(ttcalc.getLinkTravelTimes().getLinkTravelTime(link2, time, null, null),
+					shardedTtcalc.getLinkTravelTimes().getLinkTravelTime(link2, time, null, null), EPSILON);
+		}
+		assertEquals(110.0, shardedTtcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+
+		// the shards reset the calculator for the next iteration
+		events.resetHandlers(1);
+		assertEquals(100.0, shardedTtcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+	}
+
+	public void testLinkTravelTimeMatrix() {
+		for (String getterType : new String[] { "average", "linearinterpolation" }) {
+			Config config = ConfigUtils.createConfig();
+			config.travelTimeCalculator().setTravelTimeGetterType(getterType);
+			config.travelTimeCalculator().setMaxTime(12 * 3600);
+
+			Scenario scenario = ScenarioUtils.createScenario(config);
+			Network network = scenario.getNetwork();
+			final Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+			final Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+			final Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+			Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, 1.0 );
+			Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000.0, 10.0, 3600.0, 1.0 );
+
+			TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+			for (int i = 0; i < 10; i++) {
+				Id<Vehicle> vehId = Id.create(i, Vehicle.class);
+				double time = 7.0 * 3600 + i * 600;
+				ttcalc.handleEvent(new LinkEnterEvent(time, vehId, link1.getId()));
+				ttcalc.handleEvent(new LinkLeaveEvent(time + 100 + 50 * i, vehId, link1.getId()));
+			}
+
+			ArrayRoutingNetwork routingNetwork = new ArrayRoutingNetworkFactory().createRoutingNetwork(network);
+			LinkTravelTimeMatrix matrix = ttcalc.createLinkTravelTimeMatrix(routingNetwork);
+			for (Link routingLink : new Link[] { routingNetwork.getNodes().get(node1.getId()).getOutLinksArray()[0],
+					routingNetwork.getNodes().get(node2.getId()).getOutLinksArray()[0] }) {
+				for (double time = 0; time < 14 * 3600; time += 60) {
+					assertEquals(getterType + " " + routingLink.getId() + " " + time,
+							ttcalc.getLinkTravelTimes().getLinkTravelTime(routingLink, time, null, null),
+							matrix.getLinkTravelTime(routingLink, time, null, null), EPSILON);
+				}
+			}
+			// links without array index are answered by the calculator
+			assertEquals(ttcalc.getLinkTravelTimes().getLinkTravelTime(link2, 8.0 * 3600, null, null),
+					matrix.getLinkTravelTime(link2, 8.0 * 3600, null, null), EPSILON);
+
+			// so are links of another routing network, even if their array index is used in the matrix
+			Network otherNetwork = NetworkUtils.createNetwork();
+			otherNetwork.addNode(NetworkUtils.createNode(node2.getId(), node2.getCoord()));
+			otherNetwork.addNode(NetworkUtils.createNode(node3.getId(), node3.getCoord()));
+			NetworkUtils.createAndAddLink(otherNetwork, Id.create("3", Link.class), otherNetwork.getNodes().get(node2.getId()),
+					otherNetwork.getNodes().get(node3.getId()), 1000.0, 10.0, 3600.0, 1.0 );
+			ArrayRoutingNetwork otherRoutingNetwork = new ArrayRoutingNetworkFactory().createRoutingNetwork(otherNetwork);
+			Link otherLink = otherRoutingNetwork.getNodes().get(node2.getId()).getOutLinksArray()[0];
+			assertEquals(ttcalc.getLinkTravelTimes().getLinkTravelTime(otherLink, 7.5 * 3600, null, null),
+					matrix.getLinkTravelTime(otherLink, 7.5 * 3600, null, null), EPSILON);
+		}
+	}
+
 	/**
 	 * Test linear interpolation of aggregated travel times at different positions of a time bin. (Previous tests only test the midpoint of each time bin.)
 	 * 
@@ -0,0 +1,87 @@
+package org.matsim.core.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class TravelTimeDataPackedTest {
+
+	private static final int NUM_SLOTS = 24;
+
+	@Test
+	public void testOnHeap() {
+		testAddSetAndReset(false);
+	}
+
+	@Test
+	public void testOffHeap() {
+		testAddSetAndReset(true);
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		Network network = createNetwork();
+		TravelTimeDataPackedFactory factory = new TravelTimeDataPackedFactory(network, NUM_SLOTS, true);
+		TravelTimeData data = factory.createTravelTimeData(Id.createLinkId("2-3"));
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final double travelTime = 10 * (t + 1);
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					data.addTravelTime(5, travelTime);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// (10 + 20 + 30 + 40) / 4, no observation may get lost
+		Assert.assertEquals(25.0, data.getTravelTime(5, 5 * 3600), 1e-3);
+	}
+
+	private static void testAddSetAndReset(boolean offHeap) {
+		Network network = createNetwork();
+		TravelTimeDataPackedFactory factory = new TravelTimeDataPackedFactory(network, NUM_SLOTS, offHeap);
+		TravelTimeData data1 = factory.createTravelTimeData(Id.createLinkId("1-2"));
+		TravelTimeData data2 = factory.createTravelTimeData(Id.createLinkId("2-3"));
+
+		// empty slots return the freespeed travel time
+		Assert.assertEquals(10.0, data1.getTravelTime(12, 12 * 3600), 1e-6);
+		Assert.assertEquals(20.0, data2.getTravelTime(12, 12 * 3600), 1e-6);
+
+		data1.addTravelTime(12, 100.0);
+		data1.addTravelTime(12, 200.0);
+		Assert.assertEquals(150.0, data1.getTravelTime(12, 12 * 3600), 1e-6);
+		// the links do not share their slots
+		Assert.assertEquals(20.0, data2.getTravelTime(12, 12 * 3600), 1e-6);
+
+		data1.setTravelTime(12, 111.0);
+		Assert.assertEquals(111.0, data1.getTravelTime(12, 12 * 3600), 1e-6);
+		data1.addTravelTime(12, 211.0);
+		Assert.assertEquals(161.0, data1.getTravelTime(12, 12 * 3600), 1e-6);
+
+		data1.resetTravelTimes();
+		Assert.assertEquals(10.0, data1.getTravelTime(12, 12 * 3600), 1e-6);
+	}
+
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(100, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(300, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1-2"), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("2-3"), node2, node3, 200, 10, 1000, 1);
+		return network;
+	}
+
+}